@@ -2,14 +2,21 @@ package app.config;
 
 import app.controllers.impl.ExceptionController;
 import app.exceptions.DatabaseException;
+import app.logging.AccessLog;
+import app.metrics.RequestMetrics;
 import app.populators.RecipePopulator;
 import app.populators.UserPopulator;
 import app.routes.Routes;
 import app.security.controllers.AccessController;
 import app.security.enums.Role;
 import app.security.exceptions.ApiException;
+import app.security.exceptions.ServiceUnavailableException;
 import app.security.routes.SecurityRoutes;
+import app.services.NutritionSync;
 import io.javalin.Javalin;
+import io.javalin.compression.Brotli;
+import io.javalin.compression.CompressionStrategy;
+import io.javalin.compression.Gzip;
 import io.javalin.config.JavalinConfig;
 import io.javalin.http.BadRequestResponse;
 import io.javalin.http.Context;
@@ -24,49 +31,109 @@ public class ApplicationConfig {
     private static final Routes routes = new Routes();
     private static final AccessController accessController = new AccessController();
     private static final Logger logger = LoggerFactory.getLogger(ApplicationConfig.class);
-    private static int count = 1;
     private static final EntityManagerFactory emf = HibernateConfig.getEntityManagerFactory();
 
     public static void configuration(JavalinConfig config) {
         config.showJavalinBanner = false;
+        config.useVirtualThreads = useVirtualThreads();
+        // Kører efter exception handlers, så status og tid er de endelige
+        config.requestLogger.http(ApplicationConfig::afterRequest);
+        config.http.customCompression(compressionStrategy());
         config.bundledPlugins.enableRouteOverview("/routes", Role.ANYONE);
         config.router.contextPath = "/api"; // base path for all endpoints
         config.router.apiBuilder(routes.getRoutes());
         config.router.apiBuilder(SecurityRoutes.getSecurityRoutes());
     }
 
+    // EXECUTION_MODE=virtual kører request handling på virtual threads i stedet for Jettys platform thread pool.
+    // Antallet af samtidige DB kald er stadig begrænset af Hikari poolen (DB_POOL_SIZE)
+    private static boolean useVirtualThreads() {
+        String mode = System.getenv("EXECUTION_MODE");
+        if (mode == null) {
+            mode = System.getProperty("executionMode", "platform");
+        }
+        boolean virtual = mode.equalsIgnoreCase("virtual");
+        logger.info("Handling requests on {} threads", virtual ? "virtual" : "platform");
+        return virtual;
+    }
+
+    // Javalins komprimering streamer: svaret bufferes kun op til min størrelsen, derefter komprimeres det direkte
+    // ned i Jettys output stream. Encoding vælges ud fra Accept-Encoding (brotli før gzip).
+    // COMPRESSION_LEVEL: gzip 1-9 (default 6, 0 slår komprimering fra). COMPRESSION_MIN_BYTES: default 1500 (én pakke).
+    // Brotli (BROTLI_LEVEL 0-11, default 4) tilbydes kun når brotli4j er på classpath - der findes ingen ren Java encoder
+    private static CompressionStrategy compressionStrategy() {
+        int level = Settings.intSetting("COMPRESSION_LEVEL", "compressionLevel", 6);
+        if (level <= 0) {
+            logger.info("Response compression disabled");
+            return CompressionStrategy.NONE;
+        }
+        Brotli brotli = brotliAvailable() ? new Brotli(Settings.intSetting("BROTLI_LEVEL", "brotliLevel", 4)) : null;
+        CompressionStrategy strategy = new CompressionStrategy(brotli, new Gzip(Math.min(level, 9)));
+        strategy.setDefaultMinSizeForCompression(Settings.intSetting("COMPRESSION_MIN_BYTES", "compressionMinBytes", 1500));
+        logger.info("Response compression: gzip level {}{}, min {} bytes", Math.min(level, 9),
+                brotli != null ? ", brotli level " + brotli.getLevel() : "", strategy.getDefaultMinSizeForCompression());
+        return strategy;
+    }
+
+    private static boolean brotliAvailable() {
+        try {
+            Class.forName("com.aayushatharva.brotli4j.Brotli4jLoader");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
     public static Javalin startServer(int port) {
+        long start = System.nanoTime();
         Javalin app = Javalin.create(ApplicationConfig::configuration);
+        logPhase("Javalin configured", start);
 
+        // Seeding springes over når data allerede findes
+        long seedStart = System.nanoTime();
         try (EntityManager em = emf.createEntityManager()) {
             UserPopulator.populate(em);
             RecipePopulator.populate(em);
         }
+        logPhase("Seed data checked", seedStart);
+
+        // Tests kører uden kald til nutrition API'et
+        if (!HibernateConfig.getTest()) {
+            NutritionSync.getInstance().start();
+        }
 
         app.beforeMatched(accessController::accessHandler);
-        app.after(ApplicationConfig::afterRequest);
 
         app.before(ApplicationConfig::corsHeaders);
         app.options("/*", ApplicationConfig::corsHeadersOptions);
 
         exceptions(app);
 
+        long listenStart = System.nanoTime();
         app.start(port);
+        logPhase("Server listening on port " + port, listenStart);
+        logPhase("Server started", start);
         return app;
     }
 
-    public static void afterRequest(Context ctx) {
-        String requestInfo = ctx.req().getMethod() + " " + ctx.req().getRequestURI();
-        logger.info(" Request {} - {} was handled with status code {}", count++, requestInfo, ctx.status());
+    private static void logPhase(String phase, long startNanos) {
+        logger.info("Startup: {} in {} ms", phase, (System.nanoTime() - startNanos) / 1_000_000);
+    }
+
+    public static void afterRequest(Context ctx, Float executionTimeMs) {
+        RequestMetrics.getInstance().record(ctx, executionTimeMs);
+        AccessLog.getInstance().log(ctx, executionTimeMs);
     }
 
     public static void stopServer(Javalin app) {
+        NutritionSync.getInstance().stop();
         app.stop();
     }
 
     private static Javalin exceptions(Javalin app){
         app.exception(Exception.class, ExceptionController::exceptionHandler);
         app.exception(ApiException.class, ExceptionController::apiExceptionHandler);
+        app.exception(ServiceUnavailableException.class, ExceptionController::serviceUnavailableHandler);
         app.exception(BadRequestResponse.class, ExceptionController::badRequest);
         app.exception(DatabaseException.class, ExceptionController::dataBaseExceptionHandler);
         app.exception(UnauthorizedResponse.class, ExceptionController::unauthorizedResponseHandler);
@@ -76,14 +143,16 @@ public class ApplicationConfig {
     private static void corsHeaders(Context ctx) {
         ctx.header("Access-Control-Allow-Origin", "*");
         ctx.header("Access-Control-Allow-Methods", "GET, POST, PUT, DELETE, OPTIONS");
-        ctx.header("Access-Control-Allow-Headers", "Content-Type, Authorization");
+        ctx.header("Access-Control-Allow-Headers", "Content-Type, Authorization, If-None-Match, If-Modified-Since");
         ctx.header("Access-Control-Allow-Credentials", "true");
+        // ETag og Last-Modified skal kunne læses af browser klienter, ellers kan de ikke lave conditional GET
+        ctx.header("Access-Control-Expose-Headers", "X-Next-Cursor, X-Total-Count, Retry-After, ETag, Last-Modified");
     }
 
     private static void corsHeadersOptions(Context ctx) {
         ctx.header("Access-Control-Allow-Origin", "*");
         ctx.header("Access-Control-Allow-Methods", "GET, POST, PUT, DELETE, OPTIONS");
-        ctx.header("Access-Control-Allow-Headers", "Content-Type, Authorization");
+        ctx.header("Access-Control-Allow-Headers", "Content-Type, Authorization, If-None-Match, If-Modified-Since");
         ctx.header("Access-Control-Allow-Credentials", "true");
         ctx.status(204);
     }
@@ -3,19 +3,28 @@ package app.config;
 import app.entities.Recipe;
 import app.entities.Ingredient;
 import app.entities.RecipeIngredient;
+import app.entities.UnitConversion;
 import app.security.entities.Role;
 import app.security.entities.User;
 import app.utils.Utils;
 import jakarta.persistence.EntityManagerFactory;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.output.MigrateResult;
 import org.hibernate.SessionFactory;
 import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
 import org.hibernate.cfg.Configuration;
 import org.hibernate.service.ServiceRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.Properties;
 
 public class HibernateConfig {
 
+    // Query cache region til category/type filter queries - størrelse og TTL sættes i application.conf
+    public static final String FILTER_QUERY_REGION = "catalog-filter-queries";
+
+    private static final Logger logger = LoggerFactory.getLogger(HibernateConfig.class);
     private static EntityManagerFactory emf;
     private static EntityManagerFactory emfTest;
     private static Boolean isTest = false;
@@ -50,10 +59,20 @@ public class HibernateConfig {
         configuration.addAnnotatedClass(Recipe.class);
         configuration.addAnnotatedClass(Ingredient.class);
         configuration.addAnnotatedClass(RecipeIngredient.class);
+        configuration.addAnnotatedClass(UnitConversion.class);
+
+    }
 
+    // Ny EMF mod test databasen med ekstra/overskrevne properties - bruges af benchmarks og SecondLevelCacheTest. Kalderen lukker den
+    public static EntityManagerFactory createEntityManagerFactoryForTest(Properties overrides) {
+        return createEMF(true, overrides);
     }
 
     private static EntityManagerFactory createEMF(boolean forTest) {
+        return createEMF(forTest, new Properties());
+    }
+
+    private static EntityManagerFactory createEMF(boolean forTest, Properties overrides) {
         try {
             Configuration configuration = new Configuration();
             Properties props = new Properties();
@@ -66,6 +85,11 @@ public class HibernateConfig {
             } else {
                 props = setDevProperties(props);
             }
+            if (!forTest) {
+                setSchemaProperties(props);
+            }
+            props.putAll(overrides);
+            long start = System.nanoTime();
             configuration.setProperties(props);
             getAnnotationConfiguration(configuration);
 
@@ -74,6 +98,7 @@ public class HibernateConfig {
                     .build();
             SessionFactory sf = configuration.buildSessionFactory(serviceRegistry);
             EntityManagerFactory emf = sf.unwrap(EntityManagerFactory.class);
+            logger.info("Startup: EntityManagerFactory built in {} ms", (System.nanoTime() - start) / 1_000_000);
             return emf;
         }
         catch (Throwable ex) {
@@ -85,11 +110,92 @@ public class HibernateConfig {
     private static Properties setBaseProperties(Properties props) {
         props.put("hibernate.dialect", "org.hibernate.dialect.PostgreSQLDialect");
         props.put("hibernate.connection.driver_class", "org.postgresql.Driver");
-        props.put("hibernate.hbm2ddl.auto", "create");
         props.put("hibernate.current_session_context_class", "thread");
-        props.put("hibernate.show_sql", "true");
-        props.put("hibernate.format_sql", "true");
-        props.put("hibernate.use_sql_comments", "true");
+        setSqlLogProperties(props);
+        setBatchProperties(props);
+        setCacheProperties(props);
+        setPoolProperties(props);
+        return props;
+    }
+
+    // SCHEMA_MODE=migrate kører Flyway migrations (db/migration) og lader Hibernate validere skemaet mod entities.
+    // SCHEMA_MODE=create genskaber skemaet ved hver opstart (sletter data). Default: migrate når deployed, ellers create
+    private static Properties setSchemaProperties(Properties props) {
+        String mode = System.getenv("SCHEMA_MODE");
+        if (mode == null) {
+            mode = System.getenv("DEPLOYED") != null ? "migrate" : "create";
+        }
+        if (mode.equalsIgnoreCase("migrate")) {
+            runMigrations(props);
+            props.put("hibernate.hbm2ddl.auto", "validate");
+        } else {
+            props.put("hibernate.hbm2ddl.auto", "create");
+        }
+        return props;
+    }
+
+    private static void runMigrations(Properties props) {
+        long start = System.nanoTime();
+        Flyway flyway = Flyway.configure()
+                .dataSource(props.getProperty("hibernate.connection.url"),
+                        props.getProperty("hibernate.connection.username"),
+                        props.getProperty("hibernate.connection.password"))
+                .locations("classpath:db/migration")
+                // Databaser fra før migrations (skabt af hbm2ddl) har allerede V1 skemaet
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .load();
+        MigrateResult result = flyway.migrate();
+        logger.info("Startup: {} migration(s) applied, schema at version {} in {} ms",
+                result.migrationsExecuted, result.targetSchemaVersion, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // Fuld SQL logging er som standard slået fra når appen er deployed (SQL_LOG=true slår den til).
+    // Statements langsommere end SLOW_QUERY_MS logges altid via org.hibernate.SQL_SLOW
+    private static Properties setSqlLogProperties(Properties props) {
+        String sqlLog = System.getenv("SQL_LOG");
+        boolean logSql = sqlLog != null ? Boolean.parseBoolean(sqlLog) : System.getenv("DEPLOYED") == null;
+        props.put("hibernate.show_sql", String.valueOf(logSql));
+        props.put("hibernate.format_sql", String.valueOf(logSql));
+        props.put("hibernate.use_sql_comments", String.valueOf(logSql));
+        String slowQueryMs = System.getenv("SLOW_QUERY_MS");
+        props.put("hibernate.log_slow_query", slowQueryMs != null ? slowQueryMs : "200");
+        return props;
+    }
+
+    // Ids kommer fra sekvenser (PooledSequenceGenerator), så Hibernate kan samle INSERTs i JDBC batches.
+    // reWriteBatchedInserts lader PostgreSQL driveren sende en batch som én multi-row INSERT
+    private static Properties setBatchProperties(Properties props) {
+        props.put("hibernate.jdbc.batch_size", "50");
+        props.put("hibernate.order_inserts", "true");
+        props.put("hibernate.order_updates", "true");
+        props.put("hibernate.jdbc.batch_versioned_data", "true");
+        props.put("hibernate.hikari.dataSource.reWriteBatchedInserts", "true");
+        return props;
+    }
+
+    // HikariCP connection pool. Poolen er den reelle grænse for DB concurrency - også når requests kører på virtual threads
+    private static Properties setPoolProperties(Properties props) {
+        String poolSize = System.getenv("DB_POOL_SIZE");
+        props.put("hibernate.connection.provider_class", "org.hibernate.hikaricp.internal.HikariCPConnectionProvider");
+        props.put("hibernate.hikari.maximumPoolSize", poolSize != null ? poolSize : "10");
+        props.put("hibernate.hikari.minimumIdle", "2");
+        // Hvor længe en request venter på en ledig forbindelse før den fejler
+        props.put("hibernate.hikari.connectionTimeout", "5000");
+        return props;
+    }
+
+    // Second-level cache (JCache via Caffeine). Regioner og deres størrelse/TTL er konfigureret i application.conf
+    private static Properties setCacheProperties(Properties props) {
+        props.put("hibernate.cache.use_second_level_cache", "true");
+        props.put("hibernate.cache.use_query_cache", "true");
+        props.put("hibernate.cache.region.factory_class", "jcache");
+        props.put("hibernate.javax.cache.provider", "com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider");
+        props.put("hibernate.javax.cache.missing_cache_strategy", "create-warn");
+        // Evict Recipe.ingredients når en RecipeIngredient slettes/ændres fra den anden side (fx når et ingredient slettes)
+        props.put("hibernate.cache.auto_evict_collection_cache", "true");
+        // Hit/miss statistik per region - vises på /api/admin/cache
+        props.put("hibernate.generate_statistics", "true");
         return props;
     }
 
@@ -117,7 +223,17 @@ public class HibernateConfig {
         props.put("hibernate.connection.password", "postgres");
         props.put("hibernate.archive.autodetection", "class");
         props.put("hibernate.show_sql", "true");
+        props.put("hibernate.generate_statistics", "true"); // bruges af tests til at tælle SQL statements
+        // API tests kører app og test på hver sin EMF mod samme database, så en cache ville blive forældet når tests truncater
+        props.put("hibernate.cache.use_second_level_cache", "false");
+        props.put("hibernate.cache.use_query_cache", "false");
         props.put("hibernate.hbm2ddl.auto", "create-drop"); // brug "update" for production
+        // Tests forventer ids fra 1 efter TRUNCATE ... RESTART IDENTITY: ingen id blokke i hukommelsen,
+        // og sekvenserne ejes af id kolonnerne så TRUNCATE nulstiller dem
+        props.put(PooledSequenceGenerator.INCREMENT_SIZE_SETTING, "1");
+        // search_vector er ikke mappet i Recipe (generated column) og oprettes derfor her som i V3 migrationen.
+        // Det samme gælder navne indexene på lower(name) COLLATE "C" fra V6
+        props.put("hibernate.hbm2ddl.import_files", "/db/test-sequences.sql,/db/test-search.sql,/db/test-filters.sql");
         return props;
     }
 }
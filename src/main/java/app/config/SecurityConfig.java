@@ -0,0 +1,33 @@
+package app.config;
+
+import app.utils.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Purpose: Immutable snapshot of the token settings, read once at startup
+ * from the environment (deployed) or config.properties (dev)
+ */
+public record SecurityConfig(String issuer, String tokenExpireTime, String secretKey) {
+
+    private static final Logger logger = LoggerFactory.getLogger(SecurityConfig.class);
+
+    public static SecurityConfig load() {
+        if (System.getenv("DEPLOYED") != null) {
+            return new SecurityConfig(
+                    System.getenv("ISSUER"),
+                    System.getenv("TOKEN_EXPIRE_TIME"),
+                    System.getenv("SECRET_KEY"));
+        }
+        try {
+            return new SecurityConfig(
+                    Utils.getPropertyValue("ISSUER", "config.properties"),
+                    Utils.getPropertyValue("TOKEN_EXPIRE_TIME", "config.properties"),
+                    Utils.getPropertyValue("SECRET_KEY", "config.properties"));
+        } catch (Exception e) {
+            // Fallback to default values for CI/tests when config.properties is not available
+            logger.warn("Could not read config.properties, using default values for tests");
+            return new SecurityConfig("test-issuer", "1800000", "test-secret-key-for-ci");
+        }
+    }
+}
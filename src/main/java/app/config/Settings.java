@@ -0,0 +1,29 @@
+package app.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Purpose: Read numeric settings from an environment variable, falling back to a system property and then a default.
+ * An invalid value is logged and the default is used, so a typo never stops the server from starting.
+ */
+public class Settings {
+
+    private static final Logger logger = LoggerFactory.getLogger(Settings.class);
+
+    public static int intSetting(String env, String property, int defaultValue) {
+        String value = System.getenv(env);
+        if (value == null) {
+            value = System.getProperty(property);
+        }
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            logger.warn("Ignoring invalid {}={}, using {}", env, value, defaultValue);
+            return defaultValue;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package app.controllers;
+
+import app.config.HibernateConfig;
+import app.services.NutritionService;
+import app.services.ResponseCache;
+import io.javalin.http.Context;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.EntityStatistics;
+import org.hibernate.stat.QueryStatistics;
+import org.hibernate.stat.Statistics;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class AdminController {
+
+    private static final int DEFAULT_QUERY_LIMIT = 50;
+
+    private final Statistics statistics;
+    private final NutritionService nutritionService;
+    private final ResponseCache responseCache;
+
+    public AdminController() {
+        this.statistics = HibernateConfig.getEntityManagerFactory()
+                .unwrap(SessionFactory.class)
+                .getStatistics();
+        this.nutritionService = NutritionService.getInstance();
+        this.responseCache = ResponseCache.getInstance();
+    }
+
+    // Second-level og query cache statistik per region
+    public void cacheStatistics(Context ctx) {
+        Map<String, Object> regions = new LinkedHashMap<>();
+        for (String regionName : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics region = statistics.getCacheRegionStatistics(regionName);
+            if (region != null) {
+                regions.put(regionName, regionStatistics(
+                        region.getHitCount(), region.getMissCount(), region.getPutCount(), region.getElementCountInMemory()));
+            }
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("secondLevelCache", regionStatistics(
+                statistics.getSecondLevelCacheHitCount(),
+                statistics.getSecondLevelCacheMissCount(),
+                statistics.getSecondLevelCachePutCount(),
+                -1));
+        result.put("queryCache", regionStatistics(
+                statistics.getQueryCacheHitCount(),
+                statistics.getQueryCacheMissCount(),
+                statistics.getQueryCachePutCount(),
+                -1));
+        result.put("regions", regions);
+        ctx.status(200).json(result);
+    }
+
+    // Samlet Hibernate statistik: queries (sorteret efter samlet tid), entity loads og forbindelser
+    public void hibernateStatistics(Context ctx) {
+        int limit = ctx.queryParamAsClass("limit", Integer.class)
+                .check(l -> l > 0, "limit must be positive")
+                .getOrDefault(DEFAULT_QUERY_LIMIT);
+
+        List<Map<String, Object>> queries = Arrays.stream(statistics.getQueries())
+                .map(query -> queryStatistics(query, statistics.getQueryStatistics(query)))
+                .sorted(Comparator.comparingLong((Map<String, Object> q) -> (long) q.get("totalTimeMs")).reversed())
+                .limit(limit)
+                .toList();
+
+        Map<String, Object> entities = new LinkedHashMap<>();
+        for (String entityName : statistics.getEntityNames()) {
+            EntityStatistics entity = statistics.getEntityStatistics(entityName);
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("loads", entity.getLoadCount());
+            stats.put("fetches", entity.getFetchCount());
+            stats.put("inserts", entity.getInsertCount());
+            stats.put("updates", entity.getUpdateCount());
+            stats.put("deletes", entity.getDeleteCount());
+            entities.put(entityName, stats);
+        }
+
+        Map<String, Object> totals = new LinkedHashMap<>();
+        totals.put("queryExecutions", statistics.getQueryExecutionCount());
+        totals.put("slowestQueryMs", statistics.getQueryExecutionMaxTime());
+        totals.put("slowestQuery", statistics.getQueryExecutionMaxTimeQueryString());
+        totals.put("entityLoads", statistics.getEntityLoadCount());
+        totals.put("entityFetches", statistics.getEntityFetchCount());
+        totals.put("collectionLoads", statistics.getCollectionLoadCount());
+        totals.put("collectionFetches", statistics.getCollectionFetchCount());
+        totals.put("preparedStatements", statistics.getPrepareStatementCount());
+
+        Map<String, Object> connections = new LinkedHashMap<>();
+        connections.put("acquired", statistics.getConnectCount());
+        connections.put("sessionsOpened", statistics.getSessionOpenCount());
+        connections.put("sessionsClosed", statistics.getSessionCloseCount());
+        connections.put("transactions", statistics.getTransactionCount());
+        connections.put("successfulTransactions", statistics.getSuccessfulTransactionCount());
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("since", statistics.getStart().toString());
+        result.put("totals", totals);
+        result.put("queries", queries);
+        result.put("entities", entities);
+        result.put("secondLevelCache", regionStatistics(
+                statistics.getSecondLevelCacheHitCount(),
+                statistics.getSecondLevelCacheMissCount(),
+                statistics.getSecondLevelCachePutCount(),
+                -1));
+        result.put("queryCache", regionStatistics(
+                statistics.getQueryCacheHitCount(),
+                statistics.getQueryCacheMissCount(),
+                statistics.getQueryCachePutCount(),
+                -1));
+        result.put("connections", connections);
+        ctx.status(200).json(result);
+    }
+
+    // Nulstil statistikken, fx før en belastningstest
+    public void resetHibernateStatistics(Context ctx) {
+        statistics.clear();
+        ctx.status(204);
+    }
+
+    // Hit ratio, load latency og evictions for nutrition cachen
+    public void nutritionCacheStatistics(Context ctx) {
+        ctx.status(200).json(nutritionService.getCacheStatistics());
+    }
+
+    // Størrelse, hit ratio, evictions og invalideringer for response cachen
+    public void responseCacheStatistics(Context ctx) {
+        ctx.status(200).json(responseCache.getStatistics());
+    }
+
+    // Tømmer response cachen, fx efter ændringer direkte i databasen
+    public void clearResponseCache(Context ctx) {
+        responseCache.reset();
+        ctx.status(204);
+    }
+
+    private static Map<String, Object> queryStatistics(String query, QueryStatistics stats) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("query", query);
+        result.put("executions", stats.getExecutionCount());
+        result.put("avgTimeMs", stats.getExecutionAvgTime());
+        result.put("maxTimeMs", stats.getExecutionMaxTime());
+        result.put("totalTimeMs", stats.getExecutionTotalTime());
+        result.put("rows", stats.getExecutionRowCount());
+        result.put("cacheHits", stats.getCacheHitCount());
+        return result;
+    }
+
+    private static Map<String, Object> regionStatistics(long hits, long misses, long puts, long size) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("puts", puts);
+        stats.put("hitRatio", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+        // -1 betyder at størrelsen ikke er kendt
+        if (size >= 0) {
+            stats.put("size", size);
+        }
+        return stats;
+    }
+}
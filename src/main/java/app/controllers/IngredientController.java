@@ -2,29 +2,64 @@ package app.controllers;
 
 import app.config.HibernateConfig;
 import app.daos.IngredientDAO;
+import app.dtos.BulkResultDTO;
+import app.dtos.EntityVersionDTO;
 import app.dtos.IngredientDTO;
+import app.dtos.IngredientFilterDTO;
+import app.dtos.PageDTO;
+import app.enums.IngredientSort;
+import app.enums.Type;
+import app.security.exceptions.ApiException;
+import app.services.NutritionSync;
+import app.services.ResponseCache;
+import app.utils.ConditionalGet;
+import app.utils.CursorUtil;
+import app.utils.FilterParams;
+import app.utils.JsonStreamWriter;
+import app.utils.NdjsonImporter;
+import io.javalin.http.ContentType;
 import io.javalin.http.Context;
 import jakarta.persistence.EntityManagerFactory;
 
+import java.io.IOException;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class IngredientController implements IController<IngredientDTO, Integer> {
 
+    // Sortering, filtre (ud over type), totaler og streaming caches ikke - kun de almindelige lister og sider
+    private static final Set<String> CACHEABLE_LIST_PARAMS = Set.of("type", "after", "limit");
+
     private final IngredientDAO ingredientDAO;
+    private final NutritionSync nutritionSync;
+    private final ResponseCache responseCache;
 
     public IngredientController(){
         EntityManagerFactory emf = HibernateConfig.getEntityManagerFactory();
         this.ingredientDAO = new IngredientDAO(emf);
+        this.nutritionSync = NutritionSync.getInstance();
+        this.responseCache = ResponseCache.getInstance();
     }
 
     @Override
     public void create(Context ctx) {
         IngredientDTO ingredientDTO = validateEntity(ctx);
         IngredientDTO saved = ingredientDAO.create(ingredientDTO);
+        // Nutrition (og dermed recipe totaler) hentes i baggrunden i stedet for at vente på næste planlagte sync
+        nutritionSync.requestSync(saved.getSlug());
         ctx.status(201).json(saved, IngredientDTO.class);
     }
 
+    // NDJSON bulk import: body læses linje for linje fra request streamen, så hele payloaden aldrig ligger i memory
+    public void bulkCreate(Context ctx) throws IOException {
+        NdjsonImporter<IngredientDTO> importer = new NdjsonImporter<>(
+                IngredientDTO.class, this::validateBulkLine, chunk -> Map.of(), ingredientDAO::createAll);
+        BulkResultDTO result = importer.importFrom(ctx.bodyInputStream());
+        ctx.status(200).json(result, BulkResultDTO.class);
+    }
+
     @Override
     public void read(Context ctx){
         int id = ctx.pathParamAsClass("id", Integer.class).get();
@@ -35,6 +70,26 @@ public class IngredientController implements IController<IngredientDTO, Integer>
             return;
         }
 
+        // Svaret er ens for alle og ligger typisk i response cachen. Stamp tages før læsningen, se ResponseCache.put
+        String cacheKey = ResponseCache.key(ctx, Set.of());
+        if (responseCache.serve(ctx, cacheKey)) {
+            return;
+        }
+        long stamp = responseCache.stamp();
+
+        // Conditional GET: først kun version via primary key, så en uændret ingredient giver 304 uden at blive loadet
+        if (ConditionalGet.hasConditions(ctx)) {
+            EntityVersionDTO version = ingredientDAO.readVersion(id);
+            if (version == null) {
+                ctx.status(404).json(Map.of("message", "Ingredient with ID " + id + " not found"));
+                return;
+            }
+            if (ConditionalGet.notModified(ctx, ConditionalGet.etag("ingredient", id, version.getVersion()), version.getUpdatedAt())) {
+                ctx.status(304);
+                return;
+            }
+        }
+
         // Gyldigt ID format så tjekker om ressourcen eksisterer
         IngredientDTO ingredientDTO = ingredientDAO.read(id);
         if (ingredientDTO == null) {
@@ -42,22 +97,76 @@ public class IngredientController implements IController<IngredientDTO, Integer>
             return;
         }
 
-        ctx.status(200).json(ingredientDTO, Map.class);
+        ConditionalGet.setValidators(ctx, ConditionalGet.etag("ingredient", id, ingredientDTO.getVersion()), ingredientDTO.getUpdatedAt());
+        responseCache.put(ctx, cacheKey, stamp, ingredientDTO, List.of(ResponseCache.ingredientTag(id)));
     }
 
     @Override
     public void readAll(Context ctx) {
-        List<IngredientDTO> ingredientDTOS;
         String query = ctx.queryParam("type");
 
-        if (query != null && !query.isBlank()) {
-            ingredientDTOS = ingredientDAO.searchByType(query);
+        // Streaming mode: hele listen skrives element for element direkte til response
+        if (Boolean.parseBoolean(ctx.queryParam("stream"))) {
+            ctx.status(200).contentType(ContentType.APPLICATION_JSON);
+            JsonStreamWriter writer = new JsonStreamWriter(ctx.outputStream());
+            ingredientDAO.streamAll(query, writer::write);
+            writer.finish();
+            return;
+        }
+
+        String cacheKey = ResponseCache.key(ctx, CACHEABLE_LIST_PARAMS);
+        if (responseCache.serve(ctx, cacheKey)) {
+            return;
         }
-        else {
-            ingredientDTOS = ingredientDAO.readAll();
+        long stamp = responseCache.stamp();
+
+        IngredientFilterDTO filter = parseFilter(ctx);
+        int limit = CursorUtil.parseLimit(ctx.queryParam("limit"));
+
+        // Sorteres der efter id er cursoren et id, ellers (navn, id)
+        PageDTO<IngredientDTO> page;
+        if (filter.getSort() == IngredientSort.ID) {
+            page = ingredientDAO.readFiltered(filter, null, CursorUtil.decode(ctx.queryParam("after")), limit);
+        } else {
+            CursorUtil.Keyset after = CursorUtil.decodeKeyset(ctx.queryParam("after"));
+            page = ingredientDAO.readFiltered(filter, after == null ? null : filter.getSort().parseCursorValue(after.value()),
+                    after == null ? null : after.id(), limit);
         }
 
-        ctx.status(200).json(ingredientDTOS, IngredientDTO.class);
+        // Næste cursor sendes som header, så body forbliver et JSON array
+        if (page.isHasMore()) {
+            ctx.header("X-Next-Cursor", page.getLastSortKey() != null
+                    ? CursorUtil.encode(page.getLastSortKey(), page.getLastId())
+                    : CursorUtil.encode(page.getLastId()));
+        }
+        // Estimatet gælder hele tabellen, så det sendes kun når der ikke filtreres
+        boolean filtered = !filter.getTypes().isEmpty() || filter.getNamePrefix() != null;
+        if (Boolean.parseBoolean(ctx.queryParam("includeTotal")) && !filtered) {
+            ingredientDAO.estimateCount().ifPresent(total -> ctx.header("X-Total-Count", String.valueOf(total)));
+        }
+
+        Set<String> tags = new HashSet<>();
+        if (filter.getTypes().isEmpty()) {
+            tags.add(ResponseCache.ingredientListTag(null));
+        }
+        filter.getTypes().forEach(type -> tags.add(ResponseCache.ingredientListTag(type)));
+        page.getItems().forEach(ingredient -> tags.add(ResponseCache.ingredientTag(ingredient.getId())));
+        responseCache.put(ctx, cacheKey, stamp, page.getItems(), tags);
+    }
+
+    // type (flere med komma), namePrefix, sort=id|name og direction=asc|desc
+    private IngredientFilterDTO parseFilter(Context ctx) {
+        String sortParam = ctx.queryParamAsClass("sort", String.class).getOrDefault("id");
+        IngredientSort sort = IngredientSort.fromParam(sortParam);
+        if (sort == null) {
+            throw new ApiException(400, "Invalid sort: " + sortParam + ". Use id or name.");
+        }
+        return IngredientFilterDTO.builder()
+                .types(FilterParams.enumSet(ctx, "type", Type.class))
+                .namePrefix(FilterParams.prefix(ctx, "namePrefix"))
+                .sort(sort)
+                .descending(FilterParams.descending(ctx))
+                .build();
     }
 
     @Override
@@ -73,6 +182,7 @@ public class IngredientController implements IController<IngredientDTO, Integer>
         IngredientDTO ingredientDTO = validateEntity(ctx);
         // Gyldigt ID format så DAO vil kaste 404 hvis ressourcen ik eksisterer
         IngredientDTO updated = ingredientDAO.update(id, ingredientDTO);
+        nutritionSync.requestSync(updated.getSlug());
 
         ctx.status(200).json(updated, IngredientDTO.class);
     }
@@ -106,5 +216,13 @@ public class IngredientController implements IController<IngredientDTO, Integer>
                 .check(i -> i.getSlug() != null && !i.getSlug().isBlank(), "Slug is required")
                 .get();
     }
-}
 
+    // Samme regler som validateEntity, men fejlen returneres så den kan rapporteres per linje
+    private String validateBulkLine(IngredientDTO i) {
+        if (i.getName() == null || i.getName().isBlank()) return "Name is required";
+        if (i.getType() == null) return "Type is required";
+        if (i.getDescription() == null || i.getDescription().isBlank()) return "Description is required";
+        if (i.getSlug() == null || i.getSlug().isBlank()) return "Slug is required";
+        return null;
+    }
+}
@@ -0,0 +1,26 @@
+package app.controllers;
+
+import app.controllers.impl.ExceptionController;
+import app.logging.AccessLog;
+import app.metrics.RequestMetrics;
+import io.javalin.http.Context;
+
+public class MetricsController {
+
+    private static final String PROMETHEUS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private final RequestMetrics metrics = RequestMetrics.getInstance();
+
+    public void scrape(Context ctx) {
+        ctx.contentType(PROMETHEUS_CONTENT_TYPE);
+        ctx.result(metrics.scrape() + loggingMetrics());
+    }
+
+    private static String loggingMetrics() {
+        return "# HELP access_log_dropped_total Access log entries dropped because the buffer was full\n"
+                + "# TYPE access_log_dropped_total counter\n"
+                + "access_log_dropped_total " + AccessLog.getInstance().getDropped() + "\n"
+                + "# HELP error_log_suppressed_total Repeated error log lines suppressed by rate limiting\n"
+                + "# TYPE error_log_suppressed_total counter\n"
+                + "error_log_suppressed_total " + ExceptionController.getSuppressedLogCount() + "\n";
+    }
+}
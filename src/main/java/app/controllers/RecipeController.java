@@ -4,29 +4,59 @@ import app.config.HibernateConfig;
 import app.daos.IngredientDAO;
 import app.daos.RecipeDAO;
 import app.dtos.AddIngredientRequestDTO;
-import app.dtos.ServiceDTOs.NutritionDTO;
+import app.dtos.BulkRecipeDTO;
+import app.dtos.BulkResultDTO;
+import app.dtos.EntityVersionDTO;
+import app.dtos.PageDTO;
 import app.dtos.RecipeDTO;
+import app.dtos.RecipeFilterDTO;
 import app.dtos.RecipeIngredientDTO;
-import app.services.FetchTools;
-import app.services.NutritionService;
+import app.dtos.RecipeSummaryDTO;
+import app.enums.Category;
+import app.enums.RecipeSort;
+import app.security.exceptions.ApiException;
+import app.services.ResponseCache;
+import app.utils.ConditionalGet;
+import app.utils.CursorUtil;
+import app.utils.FilterParams;
+import app.utils.JsonStreamWriter;
+import app.utils.NdjsonImporter;
+import app.utils.RecipeExportWriter;
+import io.javalin.http.ContentType;
 import io.javalin.http.Context;
 import jakarta.persistence.EntityManagerFactory;
-
+import org.eclipse.jetty.server.Request;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
 
 public class RecipeController implements IController<RecipeDTO, Integer> {
 
+    // Sortering, filtre (ud over category), totaler og streaming caches ikke - kun de almindelige lister og sider
+    private static final Set<String> CACHEABLE_LIST_PARAMS = Set.of("category", "after", "limit");
+    private static final int MAX_INGREDIENT_FILTER = 10;
+
+    private static final Logger logger = LoggerFactory.getLogger(RecipeController.class);
+
     private final RecipeDAO recipeDAO;
     private final IngredientDAO ingredientDAO;
-    private final NutritionService nutritionService;
+    private final ResponseCache responseCache;
 
     public RecipeController(){
         EntityManagerFactory emf = HibernateConfig.getEntityManagerFactory();
         this.recipeDAO = new RecipeDAO(emf);
         this.ingredientDAO = new IngredientDAO(emf);
-        this.nutritionService = new NutritionService(new FetchTools());
+        this.responseCache = ResponseCache.getInstance();
     }
 
     @Override
@@ -36,6 +66,14 @@ public class RecipeController implements IController<RecipeDTO, Integer> {
         ctx.status(201).json(saved, RecipeDTO.class);
     }
 
+    // NDJSON bulk import: body læses linje for linje fra request streamen, så hele payloaden aldrig ligger i memory
+    public void bulkCreate(Context ctx) throws IOException {
+        NdjsonImporter<BulkRecipeDTO> importer = new NdjsonImporter<>(
+                BulkRecipeDTO.class, this::validateBulkLine, this::findUnknownIngredients, recipeDAO::createAll);
+        BulkResultDTO result = importer.importFrom(ctx.bodyInputStream());
+        ctx.status(200).json(result, BulkResultDTO.class);
+    }
+
     @Override
     public void read(Context ctx){
         int id = ctx.pathParamAsClass("id", Integer.class).get();
@@ -46,6 +84,26 @@ public class RecipeController implements IController<RecipeDTO, Integer> {
             return;
         }
 
+        // Svaret er ens for alle og ligger typisk i response cachen. Stamp tages før læsningen, se ResponseCache.put
+        String cacheKey = ResponseCache.key(ctx, Set.of());
+        if (responseCache.serve(ctx, cacheKey)) {
+            return;
+        }
+        long stamp = responseCache.stamp();
+
+        // Conditional GET: først kun version via primary key, så en uændret recipe giver 304 uden at blive loadet
+        if (ConditionalGet.hasConditions(ctx)) {
+            EntityVersionDTO version = recipeDAO.readVersion(id);
+            if (version == null) {
+                ctx.status(404).json(Map.of("message", "Recipe with ID " + id + " not found"));
+                return;
+            }
+            if (ConditionalGet.notModified(ctx, ConditionalGet.etag("recipe", id, version.getVersion()), version.getUpdatedAt())) {
+                ctx.status(304);
+                return;
+            }
+        }
+
         // Gyldigt ID format så tjekker om ressourcen eksisterer
         RecipeDTO recipeDTO = recipeDAO.read(id);
         if (recipeDTO == null) {
@@ -53,23 +111,240 @@ public class RecipeController implements IController<RecipeDTO, Integer> {
             return;
         }
 
-        getNutrition(recipeDTO);
-        ctx.status(200).json(recipeDTO, Map.class);
+        // Validators fra den version der faktisk sendes - den kan være nyere end den der blev tjekket ovenfor
+        ConditionalGet.setValidators(ctx, ConditionalGet.etag("recipe", id, recipeDTO.getVersion()), recipeDTO.getUpdatedAt());
+        responseCache.put(ctx, cacheKey, stamp, recipeDTO, addTags(recipeDTO, new HashSet<>()));
     }
 
     @Override
     public void readAll(Context ctx) {
-        List<RecipeDTO> recipeDTOS;
         String query = ctx.queryParam("category");
 
-        if (query != null && !query.isBlank()) {
-            recipeDTOS = recipeDAO.searchByCategory(query);
+        // Streaming mode: hele listen skrives element for element direkte til response
+        if (Boolean.parseBoolean(ctx.queryParam("stream"))) {
+            ctx.status(200).contentType(ContentType.APPLICATION_JSON);
+            JsonStreamWriter writer = new JsonStreamWriter(ctx.outputStream());
+            recipeDAO.streamAll(query, writer::write);
+            writer.finish();
+            return;
+        }
+
+        String cacheKey = ResponseCache.key(ctx, CACHEABLE_LIST_PARAMS);
+        if (responseCache.serve(ctx, cacheKey)) {
+            return;
+        }
+        long stamp = responseCache.stamp();
+
+        RecipeFilterDTO filter = parseFilter(ctx);
+        int limit = CursorUtil.parseLimit(ctx.queryParam("limit"));
+
+        // Sorteres der efter id er cursoren et id, ellers (sorteringsværdi, id)
+        PageDTO<RecipeDTO> page;
+        if (filter.getSort() == RecipeSort.ID) {
+            page = recipeDAO.readFiltered(filter, null, CursorUtil.decode(ctx.queryParam("after")), limit);
+        } else {
+            CursorUtil.Keyset after = CursorUtil.decodeKeyset(ctx.queryParam("after"));
+            page = recipeDAO.readFiltered(filter, after == null ? null : parseCursorValue(filter.getSort(), after, ctx),
+                    after == null ? null : after.id(), limit);
+        }
+
+        // Næste cursor sendes som header, så body forbliver et JSON array
+        if (page.isHasMore()) {
+            ctx.header("X-Next-Cursor", page.getLastSortKey() != null
+                    ? CursorUtil.encode(page.getLastSortKey(), page.getLastId())
+                    : CursorUtil.encode(page.getLastId()));
+        }
+        // Estimatet gælder hele tabellen, så det sendes kun når der ikke filtreres
+        boolean filtered = !filter.getCategories().isEmpty() || filter.getNamePrefix() != null || !filter.getIngredientIds().isEmpty()
+                || filter.getMinIngredients() != null || filter.getMaxIngredients() != null
+                || filter.getMinCalories() != null || filter.getMaxCalories() != null;
+        if (Boolean.parseBoolean(ctx.queryParam("includeTotal")) && !filtered) {
+            recipeDAO.estimateCount().ifPresent(total -> ctx.header("X-Total-Count", String.valueOf(total)));
+        }
+
+        // Siden afhænger af dens recipes og af hvilke recipes der findes i listen (en ny recipe kan lande på siden)
+        Set<String> tags = new HashSet<>();
+        if (filter.getCategories().isEmpty()) {
+            tags.add(ResponseCache.recipeListTag(null));
+        }
+        filter.getCategories().forEach(category -> tags.add(ResponseCache.recipeListTag(category)));
+        page.getItems().forEach(recipe -> addTags(recipe, tags));
+        responseCache.put(ctx, cacheKey, stamp, page.getItems(), tags);
+    }
+
+    // En recipe's svar indeholder dens ingredients, så det skal også invalideres når en af dem ændres
+    private static Set<String> addTags(RecipeDTO recipe, Set<String> tags) {
+        tags.add(ResponseCache.recipeTag(recipe.getId()));
+        if (recipe.getIngredients() != null) {
+            for (RecipeIngredientDTO line : recipe.getIngredients()) {
+                if (line.getIngredient() != null && line.getIngredient().getId() != null) {
+                    tags.add(ResponseCache.ingredientTag(line.getIngredient().getId()));
+                }
+            }
+        }
+        return tags;
+    }
+
+    // Fuldtekst søgning i navn, ingredients og beskrivelse. Cursoren er (rank, id) for sidste resultat
+    public void search(Context ctx) {
+        String q = ctx.queryParam("q");
+        if (q == null || q.isBlank()) {
+            ctx.status(400).json(Map.of("message", "Query parameter q is required"));
+            return;
+        }
+        CursorUtil.Keyset after = CursorUtil.decodeKeyset(ctx.queryParam("after"));
+        Float afterRank = null;
+        if (after != null) {
+            try {
+                afterRank = Float.parseFloat(after.value());
+            } catch (NumberFormatException e) {
+                throw new ApiException(400, "Invalid cursor: " + ctx.queryParam("after"));
+            }
+        }
+        int limit = CursorUtil.parseLimit(ctx.queryParam("limit"));
+
+        List<RecipeSummaryDTO> results = recipeDAO.search(q, afterRank, after == null ? null : after.id(), limit);
+        if (results.size() > limit) {
+            results = results.subList(0, limit);
+            RecipeSummaryDTO last = results.get(limit - 1);
+            // Float.toString giver den korteste tekst der parses tilbage til præcis samme float
+            ctx.header("X-Next-Cursor", CursorUtil.encode(Float.toString(last.getRank()), last.getId()));
+        }
+        ctx.status(200).json(results, RecipeSummaryDTO.class);
+    }
+
+    // "Hvad kan jeg lave": all/any/only er kommaseparerede ingredient ids og slås op i det in-memory indeks.
+    // Ids pagineres med keyset cursor som list endpoints, og kun den aktuelle side hentes fra databasen
+    public void findByIngredients(Context ctx) {
+        int[] all = parseIngredientIds(ctx, "all");
+        int[] any = parseIngredientIds(ctx, "any");
+        int[] only = parseIngredientIds(ctx, "only");
+        if (all.length == 0 && any.length == 0 && only.length == 0) {
+            ctx.status(400).json(Map.of("message", "At least one of all, any or only is required"));
+            return;
+        }
+        Integer after = CursorUtil.decode(ctx.queryParam("after"));
+        int limit = CursorUtil.parseLimit(ctx.queryParam("limit"));
+
+        int[] ids = recipeDAO.findByIngredients(all, any, only);
+        int start = 0;
+        if (after != null) {
+            int position = Arrays.binarySearch(ids, after);
+            start = position >= 0 ? position + 1 : -position - 1;
+        }
+        int end = Math.min(start + limit, ids.length);
+
+        if (end < ids.length) {
+            ctx.header("X-Next-Cursor", CursorUtil.encode(ids[end - 1]));
+        }
+        ctx.header("X-Total-Count", String.valueOf(ids.length));
+        List<Integer> page = Arrays.stream(ids, start, end).boxed().toList();
+        ctx.status(200).json(recipeDAO.readSummaries(page), RecipeSummaryDTO.class);
+    }
+
+    private Double parseCalories(Context ctx, String param) {
+        String value = ctx.queryParam(param);
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            double calories = Double.parseDouble(value);
+            if (calories < 0 || Double.isNaN(calories) || Double.isInfinite(calories)) {
+                throw new NumberFormatException(value);
+            }
+            return calories;
+        } catch (NumberFormatException e) {
+            throw new ApiException(400, "Invalid " + param + ": " + value + ". Must be a non-negative number.");
+        }
+    }
+
+    // category (flere med komma), namePrefix, ingredients (skal indeholde alle), minIngredients/maxIngredients,
+    // minCalories/maxCalories, sort=id|name|ingredientCount|calories og direction=asc|desc
+    private RecipeFilterDTO parseFilter(Context ctx) {
+        String sortParam = ctx.queryParamAsClass("sort", String.class).getOrDefault("id");
+        RecipeSort sort = RecipeSort.fromParam(sortParam);
+        if (sort == null) {
+            throw new ApiException(400, "Invalid sort: " + sortParam + ". Use id, name, ingredientCount or calories.");
+        }
+        int[] ingredientIds = parseIngredientIds(ctx, "ingredients");
+        // Hver ingredient er sit eget EXISTS i queryen
+        if (ingredientIds.length > MAX_INGREDIENT_FILTER) {
+            throw new ApiException(400, "At most " + MAX_INGREDIENT_FILTER + " ingredients can be filtered on");
+        }
+        return RecipeFilterDTO.builder()
+                .categories(FilterParams.enumSet(ctx, "category", Category.class))
+                .namePrefix(FilterParams.prefix(ctx, "namePrefix"))
+                .ingredientIds(Arrays.stream(ingredientIds).boxed().collect(Collectors.toSet()))
+                .minIngredients(FilterParams.nonNegativeInt(ctx, "minIngredients"))
+                .maxIngredients(FilterParams.nonNegativeInt(ctx, "maxIngredients"))
+                .minCalories(parseCalories(ctx, "minCalories"))
+                .maxCalories(parseCalories(ctx, "maxCalories"))
+                .sort(sort)
+                .descending(FilterParams.descending(ctx))
+                .build();
+    }
+
+    private Object parseCursorValue(RecipeSort sort, CursorUtil.Keyset cursor, Context ctx) {
+        try {
+            return sort.parseCursorValue(cursor.value());
+        } catch (NumberFormatException e) {
+            throw new ApiException(400, "Invalid cursor: " + ctx.queryParam("after"));
+        }
+    }
+
+    private int[] parseIngredientIds(Context ctx, String param) {
+        String value = ctx.queryParam(param);
+        if (value == null || value.isBlank()) {
+            return new int[0];
+        }
+        try {
+            return Arrays.stream(value.split(",")).map(String::trim).filter(id -> !id.isEmpty())
+                    .mapToInt(Integer::parseInt).toArray();
+        } catch (NumberFormatException e) {
+            throw new ApiException(400, "Invalid ingredient ids in " + param + ": " + value);
+        }
+    }
+
+    // Hele kataloget med ingredients i én query, streamet som NDJSON eller CSV. gzip=true giver en .gz fil
+    public void export(Context ctx) throws IOException {
+        String format = ctx.queryParamAsClass("format", String.class).getOrDefault(RecipeExportWriter.NDJSON).toLowerCase();
+        if (!format.equals(RecipeExportWriter.NDJSON) && !format.equals(RecipeExportWriter.CSV)) {
+            ctx.status(400).json(Map.of("message", "Invalid format: " + format + ". Use ndjson or csv."));
+            return;
         }
-        else {
-            recipeDTOS = recipeDAO.readAll();
+        boolean gzip = Boolean.parseBoolean(ctx.queryParam("gzip"));
+
+        // Export er filer der gemmes og har sin egen gzip=true, så de sendes som de er i stedet for
+        // at blive komprimeret af Javalin oveni
+        ctx.disableCompression();
+        ctx.status(200);
+        ctx.header("Content-Disposition", "attachment; filename=\"recipes." + format + (gzip ? ".gz" : "") + "\"");
+        OutputStream out;
+        if (gzip) {
+            ctx.contentType("application/gzip");
+            out = new GZIPOutputStream(ctx.res().getOutputStream(), 64 * 1024);
+        } else {
+            ctx.contentType(format.equals(RecipeExportWriter.CSV) ? "text/csv; charset=utf-8" : "application/x-ndjson");
+            out = ctx.outputStream();
         }
 
-        ctx.status(200).json(recipeDTOS, RecipeDTO.class);
+        RecipeExportWriter writer = RecipeExportWriter.create(format, out);
+        try {
+            recipeDAO.exportAll(writer::write);
+            writer.finish();
+            if (out instanceof GZIPOutputStream gzipOut) {
+                gzipOut.finish();
+            }
+        } catch (RuntimeException | IOException e) {
+            // Før første byte er sendt kan fejlen stadig blive et almindeligt fejlsvar
+            if (!ctx.res().isCommitted()) {
+                ctx.res().reset();
+                throw e;
+            }
+            // Status 200 er sendt. Forbindelsen afbrydes, så klienten ser en afkortet fil og ikke en færdig
+            logger.warn("Export aborted after the response was committed: {}", e.toString());
+            Request.getBaseRequest(ctx.req()).getHttpChannel().abort(e);
+        }
     }
 
     @Override
@@ -173,36 +448,37 @@ public class RecipeController implements IController<RecipeDTO, Integer> {
     }
 
 
-    private void getNutrition(RecipeDTO recipeDTO) {
-        // Henter alle slugs fra ingredients og konverter til lowercase
-        List<String> slugs = recipeDTO.getIngredients()
-                .stream()
-                .map(s -> s.getIngredient().getSlug().toLowerCase())
-                .toList();
-
-        if (!slugs.isEmpty()) {
-            // Henter nutrition data fra ekstern API
-            List<NutritionDTO> nutritionDTOs = nutritionService.getNutrition(slugs);
-
-
-            // API returnerer slugs i lowercase, så vi matcher også med lowercase
-            Map<String, NutritionDTO> nutritionMap = nutritionDTOs.stream()
-                    .collect(Collectors.toMap(
-                            dto -> dto.getSlug().toLowerCase(),
-                            dto -> dto
-                    ));
-
-            // Går gennem hvert ingredient og match med lowercase slug
-            // Hvis nutrition data findes for ingredient, tilføjes det til ingredient DTO
-            recipeDTO.getIngredients().forEach(ingredient -> {
-                String slug = ingredient.getIngredient().getSlug().toLowerCase();
+    // Samme regler som validateEntity og addIngredient, men fejlen returneres så den kan rapporteres per linje
+    private String validateBulkLine(BulkRecipeDTO r) {
+        if (r.getName() == null || r.getName().isBlank()) return "Name is required";
+        if (r.getCategory() == null) return "Category is required";
+        if (r.getDescription() == null || r.getDescription().isBlank()) return "Description is required";
+        if (r.getIngredients() == null) {
+            r.setIngredients(List.of());
+        }
+        for (AddIngredientRequestDTO i : r.getIngredients()) {
+            if (i.getIngredientId() == null || i.getIngredientId() <= 0) return "ingredientId must be a positive integer";
+            if (i.getQuantity() <= 0) return "quantity must be greater than 0";
+            if (i.getUnit() == null || i.getUnit().isBlank()) return "unit is required";
+        }
+        return null;
+    }
 
-                NutritionDTO dto = nutritionMap.get(slug);
-                if (dto != null) {
-                    ingredient.getIngredient().setNutritionDTO(dto);
+    // Slår alle ingredient ids i en chunk op med én query og afviser de linjer der refererer til ukendte ids
+    private Map<Integer, String> findUnknownIngredients(List<BulkRecipeDTO> chunk) {
+        Set<Integer> ids = new HashSet<>();
+        chunk.forEach(r -> r.getIngredients().forEach(i -> ids.add(i.getIngredientId())));
+        Set<Integer> existing = ingredientDAO.findExistingIds(ids);
+
+        Map<Integer, String> rejected = new HashMap<>();
+        for (int index = 0; index < chunk.size(); index++) {
+            for (AddIngredientRequestDTO i : chunk.get(index).getIngredients()) {
+                if (!existing.contains(i.getIngredientId())) {
+                    rejected.put(index, "Ingredient with ID " + i.getIngredientId() + " not found");
+                    break;
                 }
-            });
+            }
         }
+        return rejected;
     }
-
 }
@@ -1,5 +1,7 @@
 package app.controllers.impl;
 
+import app.logging.LogRateLimiter;
+import app.metrics.RequestMetrics;
 import app.routes.Routes;
 import app.security.exceptions.ApiException;
 import app.security.exceptions.*;
@@ -14,41 +16,68 @@ import org.slf4j.LoggerFactory;
 
 public class ExceptionController {
     private static final Logger LOGGER = LoggerFactory.getLogger(Routes.class);
+    // Maks 10 ens fejllinjer (samme route, status og exception) per 10 sekunder - resten tælles bare
+    private static final LogRateLimiter LOG_LIMITER = new LogRateLimiter(10, 10_000);
 
     public static void apiExceptionHandler(ApiException e, Context ctx) {
-        LOGGER.error("{} {} {}", ctx.attribute("requestInfo"), ctx.res().getStatus(), e.getMessage());
+        logError(ctx, e.getCode(), e);
+        ctx.status(e.getCode());
+        ctx.json(new Message(e.getCode(), e.getMessage()));
+    }
+
+    public static void serviceUnavailableHandler(ServiceUnavailableException e, Context ctx) {
+        logError(ctx, e.getCode(), e);
+        ctx.header("Retry-After", String.valueOf(e.getRetryAfterSeconds()));
         ctx.status(e.getCode());
         ctx.json(new Message(e.getCode(), e.getMessage()));
     }
 
     public static void badRequest(BadRequestResponse e, Context ctx) {
-        LOGGER.error("{} {} {}", ctx.attribute("requestInfo"), ctx.res().getStatus(), e.getMessage());
+        logError(ctx, 400, e);
         ctx.status(400);
         ctx.json(new Message(400, e.getMessage()));
     }
 
     public static void entityNotFoundHandler(EntityNotFoundException e, Context ctx) {
-        LOGGER.error("{} {} {}", ctx.attribute("requestInfo"), ctx.res().getStatus(), e.getMessage());
+        logError(ctx, 404, e);
         ctx.status(404);
         ctx.json(new Message(404, e.getMessage()));
     }
 
     public static void unauthorizedResponseHandler(UnauthorizedResponse e, Context ctx) {
-        LOGGER.error("{} {} {}", ctx.attribute("requestInfo"), ctx.res().getStatus(), e.getMessage());
+        logError(ctx, 401, e);
         ctx.status(401);
         ctx.json(new Message(401, e.getMessage()));
     }
 
     public static void dataBaseExceptionHandler(DatabaseException e, Context ctx) {
-        LOGGER.error("{} {} {}", ctx.attribute("requestInfo"), ctx.res().getStatus(), e.getMessage());
         // Brug status code fra DatabaseException (400, 404, eller 500)
+        logError(ctx, e.getCode(), e);
         ctx.status(e.getCode());
         ctx.json(new Message(e.getCode(), e.getMessage()));
     }
 
     public static void exceptionHandler(Exception e, Context ctx) {
-        LOGGER.error("{} {} {}", ctx.attribute("requestInfo"), ctx.res().getStatus(), e.getMessage());
+        logError(ctx, 500, e);
         ctx.status(500);
         ctx.json(new Message(500, e.getMessage()));
     }
+
+    public static long getSuppressedLogCount() {
+        return LOG_LIMITER.getSuppressed();
+    }
+
+    // Klientfejl logges som warn, serverfejl som error (med stacktrace). Gentagne fejl rate limites
+    private static void logError(Context ctx, int status, Exception e) {
+        String route = RequestMetrics.routeOf(ctx);
+        long previouslySuppressed = LOG_LIMITER.tryAcquire(route + " " + status + " " + e.getClass().getName());
+        if (previouslySuppressed < 0) {
+            return;
+        }
+        if (status >= 500) {
+            LOGGER.error("{} {} {} {} (suppressed since last: {})", ctx.method(), route, status, e.getMessage(), previouslySuppressed, e);
+        } else {
+            LOGGER.warn("{} {} {} {} (suppressed since last: {})", ctx.method(), route, status, e.getMessage(), previouslySuppressed);
+        }
+    }
 }
@@ -1,16 +1,43 @@
 package app.daos;
 
+import app.config.HibernateConfig;
 import app.dtos.IngredientDTO;
+import app.dtos.EntityVersionDTO;
+import app.dtos.IngredientFilterDTO;
+import app.dtos.PageDTO;
+import app.dtos.ServiceDTOs.NutritionDTO;
 import app.entities.Ingredient;
+import app.enums.IngredientSort;
 import app.enums.Type;
 import app.exceptions.DatabaseException;
+import app.services.IngredientIndex;
+import app.services.ResponseCache;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.TypedQuery;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class IngredientDAO implements IDAO<IngredientDTO, Integer>{
+    private static final String FETCH_SIZE = "org.hibernate.fetchSize";
+    private static final String READ_ONLY = "org.hibernate.readOnly";
+    private static final String CACHEABLE = "org.hibernate.cacheable";
+    private static final String CACHE_REGION = "org.hibernate.cacheRegion";
+    private static final int STREAM_FETCH_SIZE = 200;
+    private static final int BULK_FLUSH_SIZE = 500;
+    // Samme udtryk som idx_ingredients_name_id og idx_ingredients_type_name_id
+    private static final String NAME_KEY = "lower(i.name) COLLATE \"C\"";
     private EntityManagerFactory emf;
 
     public IngredientDAO(EntityManagerFactory emf) {
@@ -27,6 +54,19 @@ public class IngredientDAO implements IDAO<IngredientDTO, Integer>{
         }
     }
 
+    // Kun version og updated_at via primary key - conditional GET kan svare 304 uden at loade ingredient
+    public EntityVersionDTO readVersion(Integer id) {
+        try (EntityManager em = emf.createEntityManager()) {
+            List<Object[]> rows = em.createQuery(
+                            "SELECT i.version, i.updatedAt FROM Ingredient i WHERE i.id = :id", Object[].class)
+                    .setParameter("id", id)
+                    .getResultList();
+            return rows.isEmpty() ? null : new EntityVersionDTO((Long) rows.get(0)[0], (Instant) rows.get(0)[1]);
+        } catch (RuntimeException e) {
+            throw new DatabaseException(500, "Failed to get version of ingredient with ID: " + id);
+        }
+    }
+
     @Override
     public List<IngredientDTO> readAll() {
         try(var em = emf.createEntityManager()) {
@@ -50,12 +90,61 @@ public class IngredientDAO implements IDAO<IngredientDTO, Integer>{
             em.getTransaction().begin();
             em.persist(ingredient);
             em.getTransaction().commit();
+            ResponseCache.getInstance().invalidate(ResponseCache.ingredientListTag(null), ResponseCache.ingredientListTag(ingredient.getType()));
             return new IngredientDTO(ingredient);
         } catch (RuntimeException e) {
             throw new DatabaseException(500, "Failed to create ingredient");
         }
     }
 
+    // Bulk import: hele listen i én transaktion. Ids kommer fra sequence blokken, så INSERTs kan batches af JDBC,
+    // og flush/clear holder persistence context lille. Fejler noget, rulles hele listen tilbage
+    public List<Integer> createAll(List<IngredientDTO> ingredientDTOs) {
+        try (EntityManager em = emf.createEntityManager()) {
+            em.getTransaction().begin();
+            try {
+                List<Integer> ids = new ArrayList<>(ingredientDTOs.size());
+                Set<String> listTags = new HashSet<>();
+                listTags.add(ResponseCache.ingredientListTag(null));
+                for (IngredientDTO ingredientDTO : ingredientDTOs) {
+                    Ingredient ingredient = Ingredient.builder()
+                            .name(ingredientDTO.getName())
+                            .type(ingredientDTO.getType())
+                            .description(ingredientDTO.getDescription())
+                            .slug(ingredientDTO.getSlug())
+                            .build();
+                    em.persist(ingredient);
+                    ids.add(ingredient.getId());
+                    listTags.add(ResponseCache.ingredientListTag(ingredient.getType()));
+                    if (ids.size() % BULK_FLUSH_SIZE == 0) {
+                        em.flush();
+                        em.clear();
+                    }
+                }
+                em.getTransaction().commit();
+                ResponseCache.getInstance().invalidate(listTags);
+                return ids;
+            } catch (RuntimeException e) {
+                em.getTransaction().rollback();
+                throw new DatabaseException(500, "Failed to import ingredients");
+            }
+        }
+    }
+
+    // Hvilke af de givne ids findes - én query i stedet for et find() per id
+    public Set<Integer> findExistingIds(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return Set.of();
+        }
+        try (EntityManager em = emf.createEntityManager()) {
+            return new HashSet<>(em.createQuery("SELECT i.id FROM Ingredient i WHERE i.id IN :ids", Integer.class)
+                    .setParameter("ids", ids)
+                    .getResultList());
+        } catch (RuntimeException e) {
+            throw new DatabaseException(500, "Failed to look up ingredients");
+        }
+    }
+
     @Override
     public IngredientDTO update(Integer integer, IngredientDTO ingredientDTO) {
         try (EntityManager em = emf.createEntityManager()) {
@@ -68,18 +157,40 @@ public class IngredientDAO implements IDAO<IngredientDTO, Integer>{
                     throw new DatabaseException(404, "Ingredient with ID " + integer + " not found");
                 }
 
+                // Ingredient indgår i recipes' representation (og navnet i search_vector), så deres version skal også hæves.
+                // Et PUT uden ændringer rører ingenting, så ETags forbliver gyldige
+                boolean changed = !Objects.equals(ingredient.getName(), ingredientDTO.getName())
+                        || ingredient.getType() != ingredientDTO.getType()
+                        || !Objects.equals(ingredient.getDescription(), ingredientDTO.getDescription())
+                        || !Objects.equals(ingredient.getSlug(), ingredientDTO.getSlug());
+                Type previousType = ingredient.getType();
                 ingredient.setName(ingredientDTO.getName());
                 ingredient.setType(ingredientDTO.getType());
                 ingredient.setDescription(ingredientDTO.getDescription());
                 ingredient.setSlug(ingredientDTO.getSlug());
 
+                if (changed) {
+                    em.flush();
+                    RecipeAggregates.refresh(em, RecipeAggregates.findRecipeIds(em, List.of(integer)));
+                }
                 em.getTransaction().commit();
+                // Ingredient tagget rammer også alle cachede recipes og sider der indeholder den
+                if (previousType != ingredient.getType()) {
+                    ResponseCache.getInstance().invalidate(ResponseCache.ingredientTag(integer), ResponseCache.ingredientListTag(ingredient.getType()));
+                } else if (changed) {
+                    ResponseCache.getInstance().invalidate(ResponseCache.ingredientTag(integer));
+                }
                 return new IngredientDTO(ingredient);
             } catch (RuntimeException e) {
-                em.getTransaction().rollback();
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
+                }
                 if (e instanceof DatabaseException) {
                     throw e;
                 }
+                if (DatabaseException.isOptimisticLockFailure(e)) {
+                    throw new DatabaseException(409, "Ingredient with ID " + integer + " was modified concurrently");
+                }
                 throw new DatabaseException(500, "Failed to update ingredient");
             }
         }
@@ -96,8 +207,14 @@ public class IngredientDAO implements IDAO<IngredientDTO, Integer>{
                     // Gyldigt ID format men ressource eksisterer ikke → 404
                     throw new DatabaseException(404, "Ingredient with ID " + integer + " not found");
                 }
+                // orphanRemoval sletter recipe_ingredients rækkerne, så recipes skal findes før remove
+                List<Integer> recipeIds = RecipeAggregates.findRecipeIds(em, List.of(integer));
                 em.remove(ingredient);
+                em.flush();
+                RecipeAggregates.refresh(em, recipeIds);
                 em.getTransaction().commit();
+                IngredientIndex.getInstance().removeIngredient(integer);
+                ResponseCache.getInstance().invalidate(ResponseCache.ingredientTag(integer));
             } catch (RuntimeException e) {
                 em.getTransaction().rollback();
                 if (e instanceof DatabaseException) {
@@ -108,6 +225,63 @@ public class IngredientDAO implements IDAO<IngredientDTO, Integer>{
         }
     }
 
+    // Alle slugs i lowercase - det er dem NutritionSync slår op i nutrition API'et
+    public List<String> findAllSlugs() {
+        try (EntityManager em = emf.createEntityManager()) {
+            return em.createQuery("SELECT DISTINCT lower(i.slug) FROM Ingredient i WHERE i.slug IS NOT NULL", String.class)
+                    .getResultList();
+        } catch (RuntimeException e) {
+            throw new DatabaseException(500, "Failed to get ingredient slugs");
+        }
+    }
+
+    // Gemmer nutrition per 100 g for ingredients med de givne (lowercase) slugs - en null værdi rydder den.
+    // Kun ingredients hvor værdierne faktisk er ændret skrives, og kun deres recipes får genberegnet totaler.
+    // Returnerer antallet af ændrede ingredients
+    public int updateNutrition(Map<String, NutritionDTO> nutritionBySlug) {
+        if (nutritionBySlug.isEmpty()) {
+            return 0;
+        }
+        try (EntityManager em = emf.createEntityManager()) {
+            em.getTransaction().begin();
+            try {
+                List<Ingredient> ingredients = em.createQuery(
+                                "SELECT i FROM Ingredient i WHERE lower(i.slug) IN :slugs", Ingredient.class)
+                        .setParameter("slugs", nutritionBySlug.keySet())
+                        .getResultList();
+
+                List<Integer> changed = new ArrayList<>();
+                for (Ingredient ingredient : ingredients) {
+                    NutritionDTO nutrition = nutritionBySlug.get(ingredient.getSlug().toLowerCase());
+                    Double calories = nutrition == null || nutrition.getCalories() == null ? null : nutrition.getCalories().doubleValue();
+                    Double protein = nutrition == null ? null : nutrition.getProtein();
+                    Double fat = nutrition == null ? null : nutrition.getFat();
+                    Double carbs = nutrition == null ? null : nutrition.getCarbs();
+                    if (Objects.equals(ingredient.getCalories(), calories) && Objects.equals(ingredient.getProtein(), protein)
+                            && Objects.equals(ingredient.getFat(), fat) && Objects.equals(ingredient.getCarbs(), carbs)) {
+                        continue;
+                    }
+                    ingredient.setCalories(calories);
+                    ingredient.setProtein(protein);
+                    ingredient.setFat(fat);
+                    ingredient.setCarbs(carbs);
+                    changed.add(ingredient.getId());
+                }
+
+                if (!changed.isEmpty()) {
+                    em.flush();
+                    RecipeAggregates.refresh(em, RecipeAggregates.findRecipeIds(em, changed));
+                }
+                em.getTransaction().commit();
+                ResponseCache.getInstance().invalidate(changed.stream().map(ResponseCache::ingredientTag).toList());
+                return changed.size();
+            } catch (RuntimeException e) {
+                em.getTransaction().rollback();
+                throw new DatabaseException(500, "Failed to update ingredient nutrition");
+            }
+        }
+    }
+
     @Override
     public boolean validatePrimaryKey(Integer integer) {
         if (integer == null || integer <= 0) {
@@ -121,12 +295,153 @@ public class IngredientDAO implements IDAO<IngredientDTO, Integer>{
         }
     }
 
+    // Keyset pagination: WHERE id > :after ORDER BY id, så prisen er den samme uanset hvor langt man bladrer
+    public PageDTO<IngredientDTO> readPage(String type, Integer after, int limit) {
+        try(var em = emf.createEntityManager()) {
+            Type ingredientType = (type == null || type.isBlank()) ? null : Type.valueOf(type.toUpperCase());
+            String jpql = "SELECT i FROM Ingredient i WHERE i.id > :after" +
+                    (ingredientType != null ? " AND i.type = :type" : "") +
+                    " ORDER BY i.id";
+            TypedQuery<Ingredient> query = em.createQuery(jpql, Ingredient.class);
+            query.setParameter("after", after == null ? 0 : after);
+            if (ingredientType != null) {
+                query.setParameter("type", ingredientType);
+                query.setHint(CACHEABLE, true);
+                query.setHint(CACHE_REGION, HibernateConfig.FILTER_QUERY_REGION);
+            }
+            // Henter én ekstra række for at vide om der er en næste side
+            query.setMaxResults(limit + 1);
+            List<Ingredient> ingredients = query.getResultList();
+
+            boolean hasMore = ingredients.size() > limit;
+            List<IngredientDTO> items = ingredients.stream().limit(limit).map(IngredientDTO::new).toList();
+            Integer lastId = items.isEmpty() ? after : items.get(items.size() - 1).getId();
+            return new PageDTO<>(items, lastId, hasMore);
+        } catch (IllegalArgumentException e) {
+            throw new DatabaseException(400, "Invalid type: " + type);
+        } catch (RuntimeException e) {
+            throw new DatabaseException(500, "Failed to get ingredients");
+        }
+    }
+
+    // Flere typer, navne præfiks og sort=name med retning som én parameteriseret SQL query (se KeysetQuery).
+    // Den simple liste (højst én type, sorteret stigende efter id) går via readPage og query cachen
+    public PageDTO<IngredientDTO> readFiltered(IngredientFilterDTO filter, Object afterValue, Integer afterId, int limit) {
+        if (filter.getSort() == IngredientSort.ID && !filter.isDescending() && filter.getTypes().size() <= 1
+                && filter.getNamePrefix() == null) {
+            return readPage(filter.getTypes().isEmpty() ? null : filter.getTypes().iterator().next().name(), afterId, limit);
+        }
+        try (var em = emf.createEntityManager()) {
+            List<Object[]> rows = filterQuery(filter).after(afterValue, afterId).getResultList(em, limit + 1);
+
+            boolean hasMore = rows.size() > limit;
+            List<Object[]> pageRows = hasMore ? rows.subList(0, limit) : rows;
+            List<Integer> pageIds = pageRows.stream().map(r -> ((Number) r[0]).intValue()).toList();
+            Map<Integer, Ingredient> ingredients = pageIds.isEmpty() ? Map.of() : em.createQuery(
+                            "SELECT i FROM Ingredient i WHERE i.id IN :ids", Ingredient.class)
+                    .setParameter("ids", pageIds)
+                    .getResultStream()
+                    .collect(Collectors.toMap(Ingredient::getId, i -> i));
+            List<IngredientDTO> items = pageIds.stream().map(ingredients::get).filter(Objects::nonNull).map(IngredientDTO::new).toList();
+
+            PageDTO<IngredientDTO> page = new PageDTO<>(items, afterId, hasMore);
+            if (!pageRows.isEmpty()) {
+                Object[] last = pageRows.get(pageRows.size() - 1);
+                page.setLastId(((Number) last[0]).intValue());
+                if (filter.getSort() != IngredientSort.ID) {
+                    page.setLastSortKey(String.valueOf(last[1]));
+                }
+            }
+            return page;
+        } catch (RuntimeException e) {
+            throw new DatabaseException(500, "Failed to get ingredients");
+        }
+    }
+
+    // Query planen for filterets SQL uden seq scan - bruges af tests til at se at hver filter kombination kan bruge et index
+    public List<String> explainFiltered(IngredientFilterDTO filter, int limit) {
+        try (var em = emf.createEntityManager()) {
+            return filterQuery(filter).explain(em, limit + 1);
+        }
+    }
+
+    // Samme opbygning som RecipeDAO.filterQuery - indexes i V6 migrationen
+    private static KeysetQuery filterQuery(IngredientFilterDTO filter) {
+        KeysetQuery query = new KeysetQuery("ingredients i", "i.id");
+        if (!filter.getTypes().isEmpty()) {
+            query.where("i.type IN (:types)").parameter("types", filter.getTypes().stream().map(Type::name).toList());
+        }
+        if (filter.getNamePrefix() != null) {
+            query.where(NAME_KEY + " LIKE :namePrefix").parameter("namePrefix", KeysetQuery.likePrefix(filter.getNamePrefix()));
+        }
+        switch (filter.getSort()) {
+            case ID -> query.orderBy("i.id", filter.isDescending());
+            case NAME -> query.orderBy(NAME_KEY, filter.isDescending());
+        }
+        return query;
+    }
+
+    // Streamer alle ingredients til consumer via en JDBC cursor (fetch size) og detacher hver entity
+    // efter den er skrevet, så persistence context ikke vokser med antallet af rækker
+    public void streamAll(String type, Consumer<IngredientDTO> consumer) {
+        Type ingredientType;
+        try {
+            ingredientType = (type == null || type.isBlank()) ? null : Type.valueOf(type.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new DatabaseException(400, "Invalid type: " + type);
+        }
+
+        try (EntityManager em = emf.createEntityManager()) {
+            // PostgreSQL driveren bruger kun fetch size (cursor) inde i en transaktion
+            em.getTransaction().begin();
+            try {
+                TypedQuery<Ingredient> query = em.createQuery(
+                        "SELECT i FROM Ingredient i" + (ingredientType != null ? " WHERE i.type = :type" : "") + " ORDER BY i.id",
+                        Ingredient.class);
+                if (ingredientType != null) {
+                    query.setParameter("type", ingredientType);
+                }
+                query.setHint(FETCH_SIZE, STREAM_FETCH_SIZE);
+                query.setHint(READ_ONLY, true);
+
+                try (Stream<Ingredient> ingredients = query.getResultStream()) {
+                    ingredients.forEach(ingredient -> {
+                        consumer.accept(new IngredientDTO(ingredient));
+                        em.detach(ingredient);
+                    });
+                }
+                em.getTransaction().commit();
+            } catch (RuntimeException e) {
+                em.getTransaction().rollback();
+                throw new DatabaseException(500, "Failed to stream ingredients");
+            }
+        }
+    }
+
+    // Estimat fra PostgreSQL statistik (pg_class.reltuples) i stedet for en fuld COUNT(*)
+    public Optional<Long> estimateCount() {
+        try(var em = emf.createEntityManager()) {
+            List<?> result = em.createNativeQuery(
+                    "SELECT CAST(reltuples AS bigint) FROM pg_class WHERE relname = 'ingredients'").getResultList();
+            if (result.isEmpty()) {
+                return Optional.empty();
+            }
+            long estimate = ((Number) result.get(0)).longValue();
+            // reltuples er -1 indtil tabellen er blevet ANALYZE'et
+            return estimate < 0 ? Optional.empty() : Optional.of(estimate);
+        } catch (RuntimeException e) {
+            return Optional.empty();
+        }
+    }
+
     public List<IngredientDTO> searchByType(String type) {
         try(var em = emf.createEntityManager()) {
             Type ingredientType = Type.valueOf(type.toUpperCase());
             TypedQuery<Ingredient> query = em.createQuery(
                     "SELECT i FROM Ingredient i WHERE i.type = :type", Ingredient.class);
             query.setParameter("type", ingredientType);
+            query.setHint(CACHEABLE, true);
+            query.setHint(CACHE_REGION, HibernateConfig.FILTER_QUERY_REGION);
             return query.getResultList().stream().map(IngredientDTO::new).toList();
         } catch (IllegalArgumentException e) {
             // Ugyldigt type format/navn er en 400 Bad Request (ugyldigt input format)
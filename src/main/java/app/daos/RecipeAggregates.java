@@ -0,0 +1,106 @@
+package app.daos;
+
+import app.entities.Recipe;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import org.hibernate.Session;
+import org.hibernate.query.NativeQuery;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Purpose: Recompute the denormalized recipe columns (ingredient_names, ingredient_count and the total_* nutrition
+ * columns) in the database for a given set of recipes. Quantities are converted to grams through unit_conversions,
+ * and ingredient nutrition is per 100 g. A total is null when any line in the recipe has an unknown unit or
+ * an ingredient without that nutrient, so partial sums never show up in filters or sorting.
+ * Every call means the recipe's representation changed, so its version and updated_at are bumped as well (ETag).
+ * Must run inside the caller's transaction, after a flush of the rows it depends on.
+ * Only the refreshed recipes are evicted from the second-level cache, so the rest of the recipe region survives.
+ */
+public class RecipeAggregates {
+
+    // Holder IN listen langt under PostgreSQL's grænse for bind parametre
+    private static final int CHUNK_SIZE = 1000;
+    // Query space som ingen entity eller cachet query bruger. Uden en synchronized space evicter Hibernate hele
+    // second-level cachen efter en native update, og med "recipes" hele recipe regionen - se evict nedenfor
+    private static final String QUERY_SPACE = "recipe_aggregates";
+    private static final String SELECT_AGGREGATES =
+            "SELECT string_agg(i.name, ' ' ORDER BY i.name), count(*), " +
+            total("calories") + ", " + total("protein") + ", " + total("fat") + ", " + total("carbs") + " " +
+            "FROM recipes_ingredients ri " +
+            "JOIN ingredients i ON i.id = ri.ingredient_id " +
+            "LEFT JOIN unit_conversions uc ON uc.unit = lower(trim(ri.unit)) " +
+            "WHERE ri.recipe_id = r.id";
+    private static final String UPDATE_SQL =
+            "UPDATE recipes r SET version = r.version + 1, updated_at = now(), " +
+            "(ingredient_names, ingredient_count, total_calories, total_protein, total_fat, total_carbs) = (" +
+            SELECT_AGGREGATES + ")";
+
+    private static String total(String nutrient) {
+        return "CASE WHEN bool_and(uc.grams IS NOT NULL AND i." + nutrient + " IS NOT NULL) " +
+                "THEN SUM(ri.quantity * uc.grams * i." + nutrient + ") / 100 END";
+    }
+
+    public static void refresh(EntityManager em, Collection<Integer> recipeIds) {
+        List<Integer> ids = new ArrayList<>(recipeIds);
+        for (int from = 0; from < ids.size(); from += CHUNK_SIZE) {
+            execute(em, UPDATE_SQL + " WHERE r.id IN (:ids)",
+                    ids.subList(from, Math.min(from + CHUNK_SIZE, ids.size())));
+        }
+        evict(em, ids);
+    }
+
+    // Hele tabellen i ét statement - bruges efter seed data, så hele recipe regionen evictes
+    public static void refreshAll(EntityManager em) {
+        execute(em, UPDATE_SQL, null);
+        em.getEntityManagerFactory().getCache().evict(Recipe.class);
+    }
+
+    // Recipes der bruger en af de givne ingredients - skal kaldes før ingredient rækkerne slettes
+    public static List<Integer> findRecipeIds(EntityManager em, Collection<Integer> ingredientIds) {
+        if (ingredientIds.isEmpty()) {
+            return List.of();
+        }
+        return em.createQuery("SELECT DISTINCT ri.recipe.id FROM RecipeIngredient ri WHERE ri.ingredient.id IN :ids", Integer.class)
+                .setParameter("ids", ingredientIds)
+                .getResultList();
+    }
+
+    // De cachede queries (category/type lister) afhænger ikke af kolonnerne der genberegnes, så kun de
+    // berørte recipe entities evictes. Både nu og efter commit: ellers kan en anden session nå at lægge
+    // den gamle række i cachen igen, før transaktionen er committet
+    private static void evict(EntityManager em, List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        Cache cache = em.getEntityManagerFactory().getCache();
+        ids.forEach(id -> cache.evict(Recipe.class, id));
+        em.unwrap(Session.class).getTransaction().registerSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    ids.forEach(id -> cache.evict(Recipe.class, id));
+                }
+            }
+        });
+    }
+
+    private static void execute(EntityManager em, String sql, List<Integer> ids) {
+        if (ids != null && ids.isEmpty()) {
+            return;
+        }
+        NativeQuery<?> query = em.createNativeQuery(sql).unwrap(NativeQuery.class);
+        if (ids != null) {
+            query.setParameter("ids", ids);
+        }
+        query.addSynchronizedQuerySpace(QUERY_SPACE).executeUpdate();
+    }
+}
@@ -1,21 +1,77 @@
 package app.daos;
 
+import app.config.HibernateConfig;
+import app.dtos.AddIngredientRequestDTO;
+import app.dtos.BulkRecipeDTO;
+import app.dtos.EntityVersionDTO;
+import app.dtos.PageDTO;
+import app.dtos.RecipeExportRowDTO;
+import app.dtos.RecipeFilterDTO;
 import app.dtos.RecipeDTO;
 import app.dtos.RecipeIngredientDTO;
+import app.dtos.RecipeSummaryDTO;
 import app.entities.Recipe;
 import app.entities.Ingredient;
 import app.entities.RecipeIngredient;
 import app.enums.Category;
+import app.enums.RecipeSort;
 import app.exceptions.DatabaseException;
+import app.services.IngredientIndex;
+import app.services.ResponseCache;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Query;
 import jakarta.persistence.TypedQuery;
+import org.hibernate.Session;
 
+import java.io.UncheckedIOException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class RecipeDAO implements IDAO<RecipeDTO, Integer>{
+    private static final String FETCH_GRAPH = "jakarta.persistence.fetchgraph";
+    private static final String FETCH_SIZE = "org.hibernate.fetchSize";
+    private static final String READ_ONLY = "org.hibernate.readOnly";
+    private static final String CACHEABLE = "org.hibernate.cacheable";
+    private static final String CACHE_REGION = "org.hibernate.cacheRegion";
+    private static final int STREAM_CHUNK_SIZE = 200;
+    private static final int BULK_FLUSH_SIZE = 500;
+    private static final int EXPORT_FETCH_SIZE = 1000;
+    // Højst så mange matches rangeres per søgning (de laveste id'er), så et bredt søgeord ikke betyder
+    // ts_rank og sortering over hele tabellen. Siderne er keyset på (rank DESC, id) inden for kandidaterne
+    public static final int SEARCH_CANDIDATES = 5000;
+    private static final String SEARCH_SQL =
+            "SELECT m.id, m.name, m.category, m.rank FROM (" +
+            "SELECT c.id, c.name, c.category, ts_rank(c.search_vector, websearch_to_tsquery('english', :q)) AS rank " +
+            "FROM (SELECT r.id, r.name, r.category, r.search_vector FROM recipes r " +
+            "WHERE r.search_vector @@ websearch_to_tsquery('english', :q) ORDER BY r.id LIMIT :candidates) c" +
+            ") m ";
+    private static final String SEARCH_AFTER = "WHERE m.rank < :afterRank OR (m.rank = :afterRank AND m.id > :afterId) ";
+    private static final String SEARCH_ORDER = "ORDER BY m.rank DESC, m.id LIMIT :limit";
+    private static final String EXPORT_SQL =
+            "SELECT r.id AS recipe_id, r.name AS recipe_name, r.category, r.description, " +
+            "i.id AS ingredient_id, i.name AS ingredient_name, i.type, ri.quantity, ri.unit, ri.preparation " +
+            "FROM recipes r " +
+            "LEFT JOIN recipes_ingredients ri ON ri.recipe_id = r.id " +
+            "LEFT JOIN ingredients i ON i.id = ri.ingredient_id " +
+            "ORDER BY r.id, ri.id";
+    // Samme udtryk som idx_recipes_name_id og idx_recipes_category_name_id
+    private static final String NAME_KEY = "lower(r.name) COLLATE \"C\"";
     private EntityManagerFactory emf;
 
+    private final IngredientIndex ingredientIndex = IngredientIndex.getInstance();
+    private final ResponseCache responseCache = ResponseCache.getInstance();
+
     public RecipeDAO(EntityManagerFactory emf) {
         this.emf = emf;
     }
@@ -23,27 +79,33 @@ public class RecipeDAO implements IDAO<RecipeDTO, Integer>{
     @Override
     public RecipeDTO read(Integer integer) {
         try (EntityManager em = emf.createEntityManager()) {
-            // Bruger JOIN FETCH til at load ingredients og deres tilknyttede ingredient entities
-            // Dette sikrer at alle data er tilgængelig når vi konverterer til DTO
-            TypedQuery<Recipe> query = em.createQuery(
-                "SELECT DISTINCT r FROM Recipe r " +
-                "LEFT JOIN FETCH r.ingredients ri " +
-                "LEFT JOIN FETCH ri.ingredient " +
-                "WHERE r.id = :id", 
-                Recipe.class
-            );
-            query.setParameter("id", integer);
-            Recipe recipe = query.getResultStream().findFirst().orElse(null);
+            // em.find går via second-level cache - ved cache miss loades ingredients med entity graph i samme SQL
+            Recipe recipe = em.find(Recipe.class, integer,
+                    Map.<String, Object>of(FETCH_GRAPH, em.getEntityGraph(Recipe.WITH_INGREDIENTS)));
             return recipe == null ? null : new RecipeDTO(recipe);
         }  catch (RuntimeException e) {
             throw new DatabaseException(500, "Failed to get recipe with ID: " + integer);
         }
     }
 
+    // Kun version og updated_at via primary key - conditional GET kan svare 304 uden at loade recipe
+    public EntityVersionDTO readVersion(Integer id) {
+        try (EntityManager em = emf.createEntityManager()) {
+            List<Object[]> rows = em.createQuery(
+                            "SELECT r.version, r.updatedAt FROM Recipe r WHERE r.id = :id", Object[].class)
+                    .setParameter("id", id)
+                    .getResultList();
+            return rows.isEmpty() ? null : new EntityVersionDTO((Long) rows.get(0)[0], (Instant) rows.get(0)[1]);
+        } catch (RuntimeException e) {
+            throw new DatabaseException(500, "Failed to get version of recipe with ID: " + id);
+        }
+    }
+
     @Override
     public List<RecipeDTO> readAll() {
         try(var em = emf.createEntityManager()) {
-            TypedQuery<Recipe> query = em.createQuery("SELECT r FROM Recipe r", Recipe.class);
+            TypedQuery<Recipe> query = em.createQuery("SELECT r FROM Recipe r ORDER BY r.id", Recipe.class);
+            query.setHint(FETCH_GRAPH, em.getEntityGraph(Recipe.WITH_INGREDIENTS));
             return query.getResultList().stream().map(RecipeDTO::new).toList();
         } catch (RuntimeException e) {
             throw new DatabaseException(500, "Failed to get all recipes");
@@ -62,12 +124,74 @@ public class RecipeDAO implements IDAO<RecipeDTO, Integer>{
             em.getTransaction().begin();
             em.persist(recipe);
             em.getTransaction().commit();
+            // En ny recipe kan lande på de cachede sider i sin kategori og i den ufiltrerede liste
+            responseCache.invalidate(ResponseCache.recipeListTag(null), ResponseCache.recipeListTag(recipe.getCategory()));
             return new RecipeDTO(recipe);
         } catch (RuntimeException e) {
             throw new DatabaseException(500, "Failed to create recipe");
         }
     }
 
+    // Bulk import: hele listen i én transaktion med batchede INSERTs. Ingredient ids skal være valideret af kalderen -
+    // getReference undgår en SELECT per ingredient. Fejler noget, rulles hele listen tilbage
+    public List<Integer> createAll(List<BulkRecipeDTO> recipeDTOs) {
+        try (EntityManager em = emf.createEntityManager()) {
+            em.getTransaction().begin();
+            try {
+                List<Integer> ids = new ArrayList<>(recipeDTOs.size());
+                List<int[]> indexed = new ArrayList<>(recipeDTOs.size());
+                Set<String> listTags = new HashSet<>();
+                listTags.add(ResponseCache.recipeListTag(null));
+                int persisted = 0;
+                for (BulkRecipeDTO recipeDTO : recipeDTOs) {
+                    Recipe recipe = Recipe.builder()
+                            .name(recipeDTO.getName())
+                            .category(recipeDTO.getCategory())
+                            .description(recipeDTO.getDescription())
+                            .build();
+                    em.persist(recipe);
+                    ids.add(recipe.getId());
+                    listTags.add(ResponseCache.recipeListTag(recipe.getCategory()));
+                    persisted++;
+                    indexed.add(recipeDTO.getIngredients() == null ? new int[0]
+                            : recipeDTO.getIngredients().stream().mapToInt(AddIngredientRequestDTO::getIngredientId).toArray());
+
+                    if (recipeDTO.getIngredients() != null) {
+                        for (AddIngredientRequestDTO line : recipeDTO.getIngredients()) {
+                            RecipeIngredient ri = new RecipeIngredient();
+                            ri.setRecipe(recipe);
+                            ri.setIngredient(em.getReference(Ingredient.class, line.getIngredientId()));
+                            ri.setQuantity(line.getQuantity());
+                            ri.setUnit(line.getUnit());
+                            ri.setPreparation(line.getPreparation() != null ? line.getPreparation() : "");
+                            // Collections på begge sider springes over - entities bliver clearet lige efter alligevel
+                            em.persist(ri);
+                            persisted++;
+                        }
+                    }
+
+                    if (persisted >= BULK_FLUSH_SIZE) {
+                        em.flush();
+                        em.clear();
+                        persisted = 0;
+                    }
+                }
+                // ingredient_names og nutrition totaler for hele listen i ét statement per 1000 recipes
+                em.flush();
+                RecipeAggregates.refresh(em, ids);
+                em.getTransaction().commit();
+                for (int i = 0; i < ids.size(); i++) {
+                    ingredientIndex.setRecipe(ids.get(i), indexed.get(i));
+                }
+                responseCache.invalidate(listTags);
+                return ids;
+            } catch (RuntimeException e) {
+                em.getTransaction().rollback();
+                throw new DatabaseException(500, "Failed to import recipes");
+            }
+        }
+    }
+
     @Override
     public RecipeDTO update(Integer integer, RecipeDTO recipeDTO) {
         try (EntityManager em = emf.createEntityManager()) {
@@ -80,17 +204,29 @@ public class RecipeDAO implements IDAO<RecipeDTO, Integer>{
                     throw new DatabaseException(404, "Recipe with ID " + integer + " not found");
                 }
 
+                Category previousCategory = recipe.getCategory();
                 recipe.setName(recipeDTO.getName());
                 recipe.setCategory(recipeDTO.getCategory());
                 recipe.setDescription(recipeDTO.getDescription());
 
                 em.getTransaction().commit();
+                // Sider med den gamle kategori indeholder recipe og rammes af recipe tagget. Den nye kategori får den som nyt medlem
+                if (previousCategory != recipe.getCategory()) {
+                    responseCache.invalidate(ResponseCache.recipeTag(integer), ResponseCache.recipeListTag(recipe.getCategory()));
+                } else {
+                    responseCache.invalidate(ResponseCache.recipeTag(integer));
+                }
                 return new RecipeDTO(recipe);
             } catch (RuntimeException e) {
-                em.getTransaction().rollback();
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
+                }
                 if (e instanceof DatabaseException) {
                     throw e;
                 }
+                if (DatabaseException.isOptimisticLockFailure(e)) {
+                    throw new DatabaseException(409, "Recipe with ID " + integer + " was modified concurrently");
+                }
                 throw new DatabaseException(500, "Failed to update recipe");
             }
         }
@@ -111,6 +247,9 @@ public class RecipeDAO implements IDAO<RecipeDTO, Integer>{
                 // vil alle tilknyttede RecipeIngredient entities automatisk blive slettet når Recipe fjernes
                 em.remove(recipe);
                 em.getTransaction().commit();
+                ingredientIndex.removeRecipe(integer);
+                // Keyset sider uden recipe har samme indhold, så recipe tagget er nok (højst kan en cursor pege på en tom side)
+                responseCache.invalidate(ResponseCache.recipeTag(integer));
             } catch (RuntimeException e) {
                 em.getTransaction().rollback();
                 if (e instanceof DatabaseException) {
@@ -159,7 +298,11 @@ public class RecipeDAO implements IDAO<RecipeDTO, Integer>{
                     .orElseThrow(() -> new DatabaseException(500, "Failed to create RecipeIngredient"));
 
                 em.persist(recipeIngredient);
+                em.flush();
+                RecipeAggregates.refresh(em, List.of(recipeId));
                 em.getTransaction().commit();
+                ingredientIndex.refreshRecipe(emf, recipeId);
+                responseCache.invalidate(ResponseCache.recipeTag(recipeId));
                 return new RecipeIngredientDTO(recipeIngredient);
             } catch (RuntimeException e) {
                 em.getTransaction().rollback();
@@ -188,8 +331,14 @@ public class RecipeDAO implements IDAO<RecipeDTO, Integer>{
                 }
 
                 recipe.removeIngredient(ingredient);
+                em.flush();
+                RecipeAggregates.refresh(em, List.of(recipeId));
+                // Henter de genberegnede totaler til response
+                em.refresh(recipe);
 
                 em.getTransaction().commit();
+                ingredientIndex.refreshRecipe(emf, recipeId);
+                responseCache.invalidate(ResponseCache.recipeTag(recipeId));
                 return new RecipeDTO(recipe);
             } catch (RuntimeException e) {
                 em.getTransaction().rollback();
@@ -201,12 +350,303 @@ public class RecipeDAO implements IDAO<RecipeDTO, Integer>{
         }
     }
 
+    // Recipe ids (stigende) fra det in-memory ingredient indeks - se IngredientIndex.findRecipes
+    public int[] findByIngredients(int[] all, int[] any, int[] only) {
+        try {
+            ingredientIndex.ensureLoaded(emf);
+        } catch (RuntimeException e) {
+            throw new DatabaseException(500, "Failed to load ingredient index");
+        }
+        return ingredientIndex.findRecipes(all, any, only);
+    }
+
+    // Summaries for en side af ids - ids der ikke findes (længere) springes over
+    public List<RecipeSummaryDTO> readSummaries(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        try (EntityManager em = emf.createEntityManager()) {
+            return em.createQuery("SELECT r.id, r.name, r.category FROM Recipe r WHERE r.id IN :ids ORDER BY r.id", Object[].class)
+                    .setParameter("ids", ids)
+                    .getResultStream()
+                    .map(r -> new RecipeSummaryDTO((Integer) r[0], (String) r[1], (Category) r[2], null))
+                    .toList();
+        } catch (RuntimeException e) {
+            throw new DatabaseException(500, "Failed to get recipes");
+        }
+    }
+
+    // Keyset pagination: WHERE id > :after ORDER BY id, så prisen er den samme uanset hvor langt man bladrer.
+    // minCalories/maxCalories er valgfrie - recipes uden nutrition totaler falder fra når der filtreres på dem
+    public PageDTO<RecipeDTO> readPage(String category, Double minCalories, Double maxCalories, Integer after, int limit) {
+        try(var em = emf.createEntityManager()) {
+            Category cat = parseCategory(category);
+            // Først vælges id'erne for siden, så LIMIT rammer recipes og ikke de joinede ingredient rækker
+            String jpql = "SELECT r.id FROM Recipe r WHERE r.id > :after" +
+                    (cat != null ? " AND r.category = :category" : "") +
+                    caloriesFilter(minCalories, maxCalories) +
+                    " ORDER BY r.id";
+            TypedQuery<Integer> query = em.createQuery(jpql, Integer.class);
+            query.setParameter("after", after == null ? 0 : after);
+            setCaloriesParameters(query, minCalories, maxCalories);
+            if (cat != null) {
+                query.setParameter("category", cat);
+            }
+            // Kalorie filtrene afhænger af totaler, som RecipeAggregates ændrer uden at invalidere query cachen
+            if (cat != null && minCalories == null && maxCalories == null) {
+                query.setHint(CACHEABLE, true);
+                query.setHint(CACHE_REGION, HibernateConfig.FILTER_QUERY_REGION);
+            }
+            // Henter én ekstra række for at vide om der er en næste side
+            query.setMaxResults(limit + 1);
+            List<Integer> ids = query.getResultList();
+
+            boolean hasMore = ids.size() > limit;
+            List<Integer> pageIds = hasMore ? ids.subList(0, limit) : ids;
+            List<RecipeDTO> items = findWithIngredients(em, pageIds).stream().map(RecipeDTO::new).toList();
+            Integer lastId = pageIds.isEmpty() ? after : pageIds.get(pageIds.size() - 1);
+            return new PageDTO<>(items, lastId, hasMore);
+        } catch (IllegalArgumentException e) {
+            throw new DatabaseException(400, "Invalid category: " + category);
+        } catch (RuntimeException e) {
+            throw new DatabaseException(500, "Failed to get recipes");
+        }
+    }
+
+    // Filtre og sortering fra RecipeFilterDTO som én parameteriseret SQL query (se KeysetQuery). afterValue er
+    // sorteringsværdien fra cursoren og bruges ikke ved sortering efter id. Den simple liste (højst én category,
+    // sorteret stigende efter id) går via readPage, så den stadig kan bruge query cachen
+    public PageDTO<RecipeDTO> readFiltered(RecipeFilterDTO filter, Object afterValue, Integer afterId, int limit) {
+        if (isSimple(filter)) {
+            String category = filter.getCategories().isEmpty() ? null : filter.getCategories().iterator().next().name();
+            return readPage(category, filter.getMinCalories(), filter.getMaxCalories(), afterId, limit);
+        }
+        try (var em = emf.createEntityManager()) {
+            // Henter én ekstra række for at vide om der er en næste side
+            List<Object[]> rows = filterQuery(filter).after(afterValue, afterId).getResultList(em, limit + 1);
+
+            boolean hasMore = rows.size() > limit;
+            List<Object[]> pageRows = hasMore ? rows.subList(0, limit) : rows;
+            List<Integer> pageIds = pageRows.stream().map(r -> ((Number) r[0]).intValue()).toList();
+            // findWithIngredients sorterer efter id, så rækkefølgen fra keyset queryen sættes igen
+            Map<Integer, Recipe> recipes = findWithIngredients(em, pageIds).stream()
+                    .collect(Collectors.toMap(Recipe::getId, r -> r));
+            List<RecipeDTO> items = pageIds.stream().map(recipes::get).filter(Objects::nonNull).map(RecipeDTO::new).toList();
+
+            PageDTO<RecipeDTO> page = new PageDTO<>(items, afterId, hasMore);
+            if (!pageRows.isEmpty()) {
+                Object[] last = pageRows.get(pageRows.size() - 1);
+                page.setLastId(((Number) last[0]).intValue());
+                if (filter.getSort() != RecipeSort.ID) {
+                    page.setLastSortKey(String.valueOf(last[1]));
+                }
+            }
+            return page;
+        } catch (RuntimeException e) {
+            throw new DatabaseException(500, "Failed to get recipes");
+        }
+    }
+
+    // Query planen for filterets SQL uden seq scan - bruges af tests til at se at hver filter kombination kan bruge et index
+    public List<String> explainFiltered(RecipeFilterDTO filter, int limit) {
+        try (var em = emf.createEntityManager()) {
+            return filterQuery(filter).explain(em, limit + 1);
+        }
+    }
+
+    private static boolean isSimple(RecipeFilterDTO filter) {
+        return filter.getSort() == RecipeSort.ID && !filter.isDescending() && filter.getCategories().size() <= 1
+                && filter.getNamePrefix() == null && filter.getIngredientIds().isEmpty()
+                && filter.getMinIngredients() == null && filter.getMaxIngredients() == null;
+    }
+
+    // Hver kombination har et B-tree index med filter kolonnen først og (sortering, id) bagefter - se V6 migrationen.
+    // Navnet sammenlignes som lower(name) COLLATE "C", så samme index kan bruges til både præfiks (LIKE 'x%') og sortering
+    private static KeysetQuery filterQuery(RecipeFilterDTO filter) {
+        KeysetQuery query = new KeysetQuery("recipes r", "r.id");
+        if (!filter.getCategories().isEmpty()) {
+            query.where("r.category IN (:categories)")
+                    .parameter("categories", filter.getCategories().stream().map(Category::name).toList());
+        }
+        if (filter.getNamePrefix() != null) {
+            query.where(NAME_KEY + " LIKE :namePrefix").parameter("namePrefix", KeysetQuery.likePrefix(filter.getNamePrefix()));
+        }
+        int n = 0;
+        for (Integer ingredientId : filter.getIngredientIds()) {
+            String param = "ingredient" + n++;
+            query.where("EXISTS (SELECT 1 FROM recipes_ingredients ri WHERE ri.recipe_id = r.id AND ri.ingredient_id = :" + param + ")")
+                    .parameter(param, ingredientId);
+        }
+        if (filter.getMinIngredients() != null) {
+            query.where("r.ingredient_count >= :minIngredients").parameter("minIngredients", filter.getMinIngredients());
+        }
+        if (filter.getMaxIngredients() != null) {
+            query.where("r.ingredient_count <= :maxIngredients").parameter("maxIngredients", filter.getMaxIngredients());
+        }
+        if (filter.getMinCalories() != null) {
+            query.where("r.total_calories >= :minCalories").parameter("minCalories", filter.getMinCalories());
+        }
+        if (filter.getMaxCalories() != null) {
+            query.where("r.total_calories <= :maxCalories").parameter("maxCalories", filter.getMaxCalories());
+        }
+
+        switch (filter.getSort()) {
+            case ID -> query.orderBy("r.id", filter.isDescending());
+            case NAME -> query.orderBy(NAME_KEY, filter.isDescending());
+            case INGREDIENT_COUNT -> query.orderBy("r.ingredient_count", filter.isDescending());
+            case CALORIES -> {
+                // Recipes uden totaler har ingen plads i rækkefølgen og er ikke med
+                query.where("r.total_calories IS NOT NULL");
+                query.orderBy("r.total_calories", filter.isDescending());
+            }
+        }
+        return query;
+    }
+
+    private static Category parseCategory(String category) {
+        return (category == null || category.isBlank()) ? null : Category.valueOf(category.toUpperCase());
+    }
+
+    private static String caloriesFilter(Double minCalories, Double maxCalories) {
+        return (minCalories != null ? " AND r.totalCalories >= :minCalories" : "") +
+                (maxCalories != null ? " AND r.totalCalories <= :maxCalories" : "");
+    }
+
+    private static void setCaloriesParameters(TypedQuery<?> query, Double minCalories, Double maxCalories) {
+        if (minCalories != null) {
+            query.setParameter("minCalories", minCalories);
+        }
+        if (maxCalories != null) {
+            query.setParameter("maxCalories", maxCalories);
+        }
+    }
+
+    // Streamer alle recipes til consumer uden at holde hele listen i hukommelsen.
+    // Id'erne læses via en JDBC cursor (fetch size), og recipes loades i chunks med entity graph,
+    // hvorefter persistence context ryddes så hukommelsesforbruget forbliver fladt.
+    public void streamAll(String category, Consumer<RecipeDTO> consumer) {
+        Category cat;
+        try {
+            cat = (category == null || category.isBlank()) ? null : Category.valueOf(category.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new DatabaseException(400, "Invalid category: " + category);
+        }
+
+        try (EntityManager em = emf.createEntityManager()) {
+            // PostgreSQL driveren bruger kun fetch size (cursor) inde i en transaktion
+            em.getTransaction().begin();
+            try {
+                TypedQuery<Integer> query = em.createQuery(
+                        "SELECT r.id FROM Recipe r" + (cat != null ? " WHERE r.category = :category" : "") + " ORDER BY r.id",
+                        Integer.class);
+                if (cat != null) {
+                    query.setParameter("category", cat);
+                }
+                query.setHint(FETCH_SIZE, STREAM_CHUNK_SIZE);
+
+                List<Integer> chunk = new ArrayList<>(STREAM_CHUNK_SIZE);
+                try (Stream<Integer> ids = query.getResultStream()) {
+                    ids.forEach(id -> {
+                        chunk.add(id);
+                        if (chunk.size() == STREAM_CHUNK_SIZE) {
+                            writeChunk(em, chunk, consumer);
+                        }
+                    });
+                }
+                writeChunk(em, chunk, consumer);
+                em.getTransaction().commit();
+            } catch (RuntimeException e) {
+                em.getTransaction().rollback();
+                throw new DatabaseException(500, "Failed to stream recipes");
+            }
+        }
+    }
+
+    // Fuldtekst søgning via GIN indekset på search_vector, sorteret efter ts_rank. Henter én ekstra række
+    // for at vide om der er en næste side - kalderen skærer den fra
+    // afterRank/afterId er sidste række på forrige side (begge null for første side)
+    public List<RecipeSummaryDTO> search(String q, Float afterRank, Integer afterId, int limit) {
+        try (EntityManager em = emf.createEntityManager()) {
+            Query query = em.createNativeQuery(SEARCH_SQL + (afterId != null ? SEARCH_AFTER : "") + SEARCH_ORDER)
+                    .setParameter("q", q)
+                    .setParameter("candidates", SEARCH_CANDIDATES)
+                    .setParameter("limit", limit + 1);
+            if (afterId != null) {
+                query.setParameter("afterRank", afterRank).setParameter("afterId", afterId);
+            }
+            List<?> rows = query.getResultList();
+            return rows.stream()
+                    .map(row -> (Object[]) row)
+                    .map(r -> new RecipeSummaryDTO(((Number) r[0]).intValue(), (String) r[1],
+                            Category.valueOf((String) r[2]), ((Number) r[3]).floatValue()))
+                    .toList();
+        } catch (RuntimeException e) {
+            throw new DatabaseException(500, "Failed to search recipes");
+        }
+    }
+
+    // Hele kataloget som én join query i et REPEATABLE READ READ ONLY snapshot, læst gennem en JDBC cursor.
+    // Rækkerne går direkte til consumer uden entities eller persistence context, så hukommelsen er konstant
+    public void exportAll(Consumer<RecipeExportRowDTO> consumer) {
+        try (EntityManager em = emf.createEntityManager()) {
+            em.getTransaction().begin();
+            try {
+                // Skal være første statement i transaktionen. Køres direkte på connection, da en native
+                // executeUpdate ville få Hibernate til at tømme hele second-level cachen
+                em.unwrap(Session.class).doWork(connection -> {
+                    try (Statement statement = connection.createStatement()) {
+                        statement.execute("SET TRANSACTION ISOLATION LEVEL REPEATABLE READ READ ONLY");
+                    }
+                });
+
+                Query query = em.createNativeQuery(EXPORT_SQL);
+                query.setHint(FETCH_SIZE, EXPORT_FETCH_SIZE);
+                try (Stream<?> rows = query.getResultStream()) {
+                    rows.forEach(row -> {
+                        Object[] r = (Object[]) row;
+                        consumer.accept(new RecipeExportRowDTO(
+                                ((Number) r[0]).intValue(), (String) r[1], (String) r[2], (String) r[3],
+                                r[4] == null ? null : ((Number) r[4]).intValue(), (String) r[5], (String) r[6],
+                                r[7] == null ? null : ((Number) r[7]).intValue(), (String) r[8], (String) r[9]));
+                    });
+                }
+                em.getTransaction().commit();
+            } catch (RuntimeException e) {
+                em.getTransaction().rollback();
+                // Skrivefejl fra consumer (fx en klient der har lukket forbindelsen) er ikke en database fejl
+                if (e instanceof UncheckedIOException) {
+                    throw e;
+                }
+                throw new DatabaseException(500, "Failed to export recipes");
+            }
+        }
+    }
+
+    // Estimat fra PostgreSQL statistik (pg_class.reltuples) i stedet for en fuld COUNT(*)
+    public Optional<Long> estimateCount() {
+        try(var em = emf.createEntityManager()) {
+            List<?> result = em.createNativeQuery(
+                    "SELECT CAST(reltuples AS bigint) FROM pg_class WHERE relname = 'recipes'").getResultList();
+            if (result.isEmpty()) {
+                return Optional.empty();
+            }
+            long estimate = ((Number) result.get(0)).longValue();
+            // reltuples er -1 indtil tabellen er blevet ANALYZE'et
+            return estimate < 0 ? Optional.empty() : Optional.of(estimate);
+        } catch (RuntimeException e) {
+            return Optional.empty();
+        }
+    }
+
     public List<RecipeDTO> searchByCategory(String category) {
         try(var em = emf.createEntityManager()) {
             Category cat = Category.valueOf(category.toUpperCase());
             TypedQuery<Recipe> query = em.createQuery(
-                    "SELECT r FROM Recipe r WHERE r.category = :category", Recipe.class);
+                    "SELECT r FROM Recipe r WHERE r.category = :category ORDER BY r.id", Recipe.class);
             query.setParameter("category", cat);
+            query.setHint(FETCH_GRAPH, em.getEntityGraph(Recipe.WITH_INGREDIENTS));
+            query.setHint(CACHEABLE, true);
+            query.setHint(CACHE_REGION, HibernateConfig.FILTER_QUERY_REGION);
             return query.getResultList().stream().map(RecipeDTO::new).toList();
         } catch (IllegalArgumentException e) {
             throw new DatabaseException(400, "Invalid category: " + category);
@@ -214,5 +654,31 @@ public class RecipeDAO implements IDAO<RecipeDTO, Integer>{
             throw new DatabaseException(500, "Failed to get recipes with category: " + category);
         }
     }
-}
 
+    // Loader recipes med ingredients via entity graph - én SQL uanset hvor mange recipes der er
+    private List<Recipe> findWithIngredients(EntityManager em, List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        TypedQuery<Recipe> query = em.createQuery(
+                "SELECT r FROM Recipe r WHERE r.id IN :ids ORDER BY r.id", Recipe.class);
+        query.setParameter("ids", ids);
+        query.setHint(FETCH_GRAPH, em.getEntityGraph(Recipe.WITH_INGREDIENTS));
+        return query.getResultList();
+    }
+
+    private void writeChunk(EntityManager em, List<Integer> chunk, Consumer<RecipeDTO> consumer) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        TypedQuery<Recipe> query = em.createQuery(
+                "SELECT r FROM Recipe r WHERE r.id IN :ids ORDER BY r.id", Recipe.class);
+        query.setParameter("ids", chunk);
+        query.setHint(FETCH_GRAPH, em.getEntityGraph(Recipe.WITH_INGREDIENTS));
+        query.setHint(READ_ONLY, true);
+        query.getResultList().forEach(recipe -> consumer.accept(new RecipeDTO(recipe)));
+        // Frigiv de entities der allerede er skrevet til response
+        em.clear();
+        chunk.clear();
+    }
+}
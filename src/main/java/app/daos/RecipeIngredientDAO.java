@@ -3,6 +3,8 @@ package app.daos;
 import app.dtos.RecipeIngredientDTO;
 import app.entities.RecipeIngredient;
 import app.exceptions.DatabaseException;
+import app.services.IngredientIndex;
+import app.services.ResponseCache;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.TypedQuery;
@@ -11,9 +13,11 @@ import java.util.List;
 
 public class RecipeIngredientDAO implements IDAO<RecipeIngredientDTO, Long>{
     private EntityManagerFactory emf;
+    private final RecipeDAO recipeDAO;
 
     public RecipeIngredientDAO(EntityManagerFactory emf) {
         this.emf = emf;
+        this.recipeDAO = new RecipeDAO(emf);
     }
 
     @Override
@@ -36,24 +40,22 @@ public class RecipeIngredientDAO implements IDAO<RecipeIngredientDTO, Long>{
         }
     }
 
+    // En række skal høre til en recipe, og oprettelsen skal opdatere recipe totaler, ingredient indeks og
+    // response cache - derfor går den gennem RecipeDAO.addIngredient
     @Override
     public RecipeIngredientDTO create(RecipeIngredientDTO recipeIngredientDTO) {
-        try (EntityManager em = emf.createEntityManager()) {
-            // Bemærk: RecipeIngredient bør typisk oprettes gennem Recipe.addIngredient()
-            // Denne metode er tilføjet for fuldstændighed, men kræver at recipe og ingredient er sat
-            RecipeIngredient recipeIngredient = RecipeIngredient.builder()
-                    .quantity(recipeIngredientDTO.getQuantity())
-                    .unit(recipeIngredientDTO.getUnit())
-                    .preparation(recipeIngredientDTO.getPreparation())
-                    .build();
-
-            em.getTransaction().begin();
-            em.persist(recipeIngredient);
-            em.getTransaction().commit();
-            return new RecipeIngredientDTO(recipeIngredient);
-        } catch (RuntimeException e) {
-            throw new DatabaseException(500, "Failed to create recipe ingredient");
+        if (recipeIngredientDTO.getRecipeId() == null) {
+            throw new DatabaseException(400, "Recipe ID is required");
+        }
+        if (recipeIngredientDTO.getIngredient() == null || recipeIngredientDTO.getIngredient().getId() == null) {
+            throw new DatabaseException(400, "Ingredient ID is required");
         }
+        return recipeDAO.addIngredient(
+                recipeIngredientDTO.getRecipeId(),
+                recipeIngredientDTO.getIngredient().getId(),
+                recipeIngredientDTO.getQuantity(),
+                recipeIngredientDTO.getUnit(),
+                recipeIngredientDTO.getPreparation());
     }
 
     @Override
@@ -72,7 +74,15 @@ public class RecipeIngredientDAO implements IDAO<RecipeIngredientDTO, Long>{
                 recipeIngredient.setUnit(recipeIngredientDTO.getUnit());
                 recipeIngredient.setPreparation(recipeIngredientDTO.getPreparation());
 
+                // Quantity og unit indgår i recipe's nutrition totaler
+                if (recipeIngredient.getRecipe() != null) {
+                    em.flush();
+                    RecipeAggregates.refresh(em, List.of(recipeIngredient.getRecipe().getId()));
+                }
                 em.getTransaction().commit();
+                if (recipeIngredient.getRecipe() != null) {
+                    ResponseCache.getInstance().invalidate(ResponseCache.recipeTag(recipeIngredient.getRecipe().getId()));
+                }
                 return new RecipeIngredientDTO(recipeIngredient);
             } catch (RuntimeException e) {
                 em.getTransaction().rollback();
@@ -92,8 +102,18 @@ public class RecipeIngredientDAO implements IDAO<RecipeIngredientDTO, Long>{
                     // Gyldigt ID format men ressource eksisterer ikke → 404
                     throw new DatabaseException(404, "RecipeIngredient with ID " + aLong + " not found");
                 }
+                Integer recipeId = recipeIngredient.getRecipe() == null ? null : recipeIngredient.getRecipe().getId();
                 em.remove(recipeIngredient);
+                if (recipeId != null) {
+                    em.flush();
+                    RecipeAggregates.refresh(em, List.of(recipeId));
+                }
                 em.getTransaction().commit();
+                if (recipeId != null) {
+                    // Recipe kan have samme ingredient i en anden række, så indekset læser recipe's rækker igen
+                    IngredientIndex.getInstance().refreshRecipe(emf, recipeId);
+                    ResponseCache.getInstance().invalidate(ResponseCache.recipeTag(recipeId));
+                }
             } catch (RuntimeException e) {
                 em.getTransaction().rollback();
                 if (e instanceof DatabaseException) {
@@ -0,0 +1,31 @@
+package app.dtos;
+
+import app.enums.Category;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Én linje i en NDJSON bulk import af recipes - ingredients refererer til eksisterende ingredient ids
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@EqualsAndHashCode
+public class BulkRecipeDTO {
+
+    @JsonProperty("name")
+    private String name;
+
+    @JsonProperty("category")
+    private Category category;
+
+    @JsonProperty("description")
+    private String description;
+
+    @JsonProperty("ingredients")
+    @Builder.Default
+    private List<AddIngredientRequestDTO> ingredients = new ArrayList<>();
+}
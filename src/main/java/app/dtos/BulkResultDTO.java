@@ -0,0 +1,72 @@
+package app.dtos;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Resultat af en bulk import: totaler og de fejlede linjer. Oprettede linjer tælles kun, så hukommelsen
+// ikke vokser med importens størrelse. Højst MAX_ERRORS fejl beholdes - de med de laveste linjenumre
+@Getter
+@NoArgsConstructor
+public class BulkResultDTO {
+
+    public static final int MAX_ERRORS = 1000;
+
+    @JsonProperty("lines")
+    private int lines;
+
+    @JsonProperty("created")
+    private int created;
+
+    @JsonProperty("failed")
+    private int failed;
+
+    // Fejl kommer ikke altid i linjerækkefølge (en chunk skrives efter senere linjer er læst), så de sorteres her
+    @JsonIgnore
+    private final TreeMap<Integer, String> errorsByLine = new TreeMap<>();
+
+    public void created(int count) {
+        lines += count;
+        created += count;
+    }
+
+    public void failed(int line, String error) {
+        lines++;
+        failed++;
+        errorsByLine.put(line, error);
+        if (errorsByLine.size() > MAX_ERRORS) {
+            errorsByLine.pollLastEntry();
+        }
+    }
+
+    @JsonProperty("errors")
+    public List<Line> getErrors() {
+        List<Line> errors = new ArrayList<>(errorsByLine.size());
+        for (Map.Entry<Integer, String> entry : errorsByLine.entrySet()) {
+            errors.add(new Line(entry.getKey(), entry.getValue()));
+        }
+        return errors;
+    }
+
+    // Sand når der var flere fejl end MAX_ERRORS, så errors ikke er den fulde liste
+    @JsonProperty("errorsTruncated")
+    public boolean isErrorsTruncated() {
+        return failed > errorsByLine.size();
+    }
+
+    @Getter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Line {
+        @JsonProperty("line")
+        private int line;
+
+        @JsonProperty("error")
+        private String error;
+    }
+}
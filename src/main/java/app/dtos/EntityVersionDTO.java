@@ -0,0 +1,16 @@
+package app.dtos;
+
+import lombok.*;
+
+import java.time.Instant;
+
+// Version og updated_at for én entity - nok til ETag/Last-Modified uden at loade selve entity
+@Getter
+@AllArgsConstructor
+@EqualsAndHashCode
+public class EntityVersionDTO {
+
+    private long version;
+
+    private Instant updatedAt;
+}
@@ -1,11 +1,14 @@
 package app.dtos;
 
 import app.dtos.ServiceDTOs.NutritionDTO;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import app.entities.Ingredient;
 import app.enums.Type;
 import lombok.*;
 
+import java.time.Instant;
+
 @Getter
 @Setter
 @NoArgsConstructor
@@ -32,11 +35,27 @@ public class IngredientDTO {
     @JsonProperty("nutrition")
     private NutritionDTO nutritionDTO;
 
+    // Sendes som ETag/Last-Modified headers i stedet for i body
+    @JsonIgnore
+    private Long version;
+
+    @JsonIgnore
+    private Instant updatedAt;
+
     public IngredientDTO(Ingredient ingredient) {
         this.id = ingredient.getId();
         this.name = ingredient.getName();
         this.type = ingredient.getType();
         this.description = ingredient.getDescription();
         this.slug = ingredient.getSlug();
+        this.version = ingredient.getVersion();
+        this.updatedAt = ingredient.getUpdatedAt();
+        // Gemt nutrition (NutritionSync) - samme data for samme version, så version alene kan bruges i ETag'en
+        if (ingredient.getCalories() != null || ingredient.getProtein() != null
+                || ingredient.getFat() != null || ingredient.getCarbs() != null) {
+            this.nutritionDTO = new NutritionDTO(ingredient.getSlug(),
+                    ingredient.getCalories() == null ? null : (int) Math.round(ingredient.getCalories()),
+                    ingredient.getProtein(), ingredient.getFat(), ingredient.getCarbs());
+        }
     }
 }
@@ -0,0 +1,25 @@
+package app.dtos;
+
+import app.enums.IngredientSort;
+import app.enums.Type;
+import lombok.*;
+
+import java.util.Set;
+
+// Filtre og sortering for GET /ingredients. Tomme sæt og null betyder at filteret ikke bruges
+@Getter
+@Builder
+@EqualsAndHashCode
+public class IngredientFilterDTO {
+
+    @Builder.Default
+    private Set<Type> types = Set.of();
+
+    // Case-insensitive præfiks på navnet
+    private String namePrefix;
+
+    @Builder.Default
+    private IngredientSort sort = IngredientSort.ID;
+
+    private boolean descending;
+}
@@ -0,0 +1,40 @@
+package app.dtos;
+
+import app.entities.Recipe;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.*;
+
+// Nutrition for hele recipe, regnet ud fra ingredients' nutrition per 100 g og unit_conversions (se RecipeAggregates)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode
+public class NutritionTotalsDTO {
+
+    @JsonProperty("calories")
+    private Double calories;
+
+    @JsonProperty("protein")
+    private Double protein;
+
+    @JsonProperty("fat")
+    private Double fat;
+
+    @JsonProperty("carbs")
+    private Double carbs;
+
+    // null når ingen af totalerne kendes
+    public static NutritionTotalsDTO of(Recipe recipe) {
+        if (recipe.getTotalCalories() == null && recipe.getTotalProtein() == null
+                && recipe.getTotalFat() == null && recipe.getTotalCarbs() == null) {
+            return null;
+        }
+        return new NutritionTotalsDTO(round(recipe.getTotalCalories()), round(recipe.getTotalProtein()),
+                round(recipe.getTotalFat()), round(recipe.getTotalCarbs()));
+    }
+
+    private static Double round(Double value) {
+        return value == null ? null : Math.round(value * 10) / 10.0;
+    }
+}
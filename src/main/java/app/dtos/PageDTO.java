@@ -0,0 +1,27 @@
+package app.dtos;
+
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode
+public class PageDTO<T> {
+
+    private List<T> items;
+
+    // ID på sidste element i siden - bruges som keyset cursor til næste side
+    private Integer lastId;
+
+    private boolean hasMore;
+
+    // Sorteringsværdien for sidste element, når siden ikke er sorteret efter id - keyset cursoren er så (værdi, id)
+    private String lastSortKey;
+
+    public PageDTO(List<T> items, Integer lastId, boolean hasMore) {
+        this(items, lastId, hasMore, null);
+    }
+}
@@ -1,10 +1,12 @@
 package app.dtos;
 
 import app.enums.Category;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import app.entities.Recipe;
 import lombok.*;
 
+import java.time.Instant;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -32,11 +34,25 @@ public class RecipeDTO {
     @JsonProperty("ingredients")
     private Set<RecipeIngredientDTO> ingredients = new HashSet<>();
 
+    // Kun til læsning - ignoreres ved create/update
+    @JsonProperty("nutrition")
+    private NutritionTotalsDTO nutrition;
+
+    // Sendes som ETag/Last-Modified headers i stedet for i body
+    @JsonIgnore
+    private Long version;
+
+    @JsonIgnore
+    private Instant updatedAt;
+
     public RecipeDTO(Recipe recipe){
         this.id = recipe.getId();
         this.name = recipe.getName();
         this.category = recipe.getCategory();
         this.description = recipe.getDescription();
+        this.nutrition = NutritionTotalsDTO.of(recipe);
+        this.version = recipe.getVersion();
+        this.updatedAt = recipe.getUpdatedAt();
 
         if (recipe.getIngredients() != null) {
             this.ingredients = recipe.getIngredients().stream()
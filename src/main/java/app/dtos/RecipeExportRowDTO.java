@@ -0,0 +1,22 @@
+package app.dtos;
+
+import lombok.*;
+
+// Én række fra export joinet: recipe felterne gentages for hver ingredient, og ingredient felterne er null
+// for en recipe uden ingredients
+@Getter
+@AllArgsConstructor
+@EqualsAndHashCode
+public class RecipeExportRowDTO {
+
+    private Integer recipeId;
+    private String recipeName;
+    private String category;
+    private String recipeDescription;
+    private Integer ingredientId;
+    private String ingredientName;
+    private String ingredientType;
+    private Integer quantity;
+    private String unit;
+    private String preparation;
+}
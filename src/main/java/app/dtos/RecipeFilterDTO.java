@@ -0,0 +1,37 @@
+package app.dtos;
+
+import app.enums.Category;
+import app.enums.RecipeSort;
+import lombok.*;
+
+import java.util.Set;
+
+// Filtre og sortering for GET /recipes. Tomme sæt og null betyder at filteret ikke bruges
+@Getter
+@Builder
+@EqualsAndHashCode
+public class RecipeFilterDTO {
+
+    @Builder.Default
+    private Set<Category> categories = Set.of();
+
+    // Case-insensitive præfiks på navnet
+    private String namePrefix;
+
+    // Recipe skal indeholde alle disse ingredients
+    @Builder.Default
+    private Set<Integer> ingredientIds = Set.of();
+
+    private Integer minIngredients;
+
+    private Integer maxIngredients;
+
+    private Double minCalories;
+
+    private Double maxCalories;
+
+    @Builder.Default
+    private RecipeSort sort = RecipeSort.ID;
+
+    private boolean descending;
+}
@@ -29,6 +29,10 @@ public class RecipeIngredientDTO {
     @JsonProperty("preparation")
     private String preparation;
 
+    // Kun til oprettelse via RecipeIngredientDAO.create - recipe'n fremgår allerede af hvor rækken vises
+    @JsonProperty(value = "recipeId", access = JsonProperty.Access.WRITE_ONLY)
+    private Integer recipeId;
+
     public RecipeIngredientDTO(RecipeIngredient recipeIngredient) {
         this.id = recipeIngredient.getId();
         this.quantity = recipeIngredient.getQuantity();
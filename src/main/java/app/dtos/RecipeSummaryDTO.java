@@ -0,0 +1,29 @@
+package app.dtos;
+
+import app.enums.Category;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.*;
+
+// Let søgeresultat - uden ingredients, så søgningen kun læser recipes tabellen
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode
+public class RecipeSummaryDTO {
+
+    @JsonProperty("id")
+    private Integer id;
+
+    @JsonProperty("name")
+    private String name;
+
+    @JsonProperty("category")
+    private Category category;
+
+    // Kun sat for fuldtekst søgning
+    @JsonProperty("rank")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Float rank;
+}
@@ -1,9 +1,18 @@
 package app.entities;
 
+import app.config.PooledSequenceGenerator;
 import app.enums.Type;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.OptimisticLock;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.annotations.UpdateTimestamp;
 
+import java.time.Instant;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -13,11 +22,18 @@ import java.util.Set;
 @NoArgsConstructor
 @Builder
 @Entity
-@Table(name = "Ingredients")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "ingredient")
+@Table(name = "Ingredients", indexes = {
+        // Understøtter keyset pagination med type filter (WHERE type = ? AND id > ? ORDER BY id)
+        @Index(name = "idx_ingredients_type_id", columnList = "type, id")
+})
 public class Ingredient {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "ingredients_seq")
+    @GenericGenerator(name = "ingredients_seq", type = PooledSequenceGenerator.class,
+            parameters = @Parameter(name = "sequence_name", value = "ingredients_seq"))
     private Integer id;
 
     @Column(nullable = false)
@@ -33,6 +49,27 @@ public class Ingredient {
     @Column(nullable = true)
     private String slug;
 
+    // Nutrition per 100 g fra nutrition API'et (NutritionSync) - null indtil slug er slået op
+    private Double calories;
+
+    private Double protein;
+
+    private Double fat;
+
+    private Double carbs;
+
+    // Optimistic locking og ETag. Hæves af Hibernate ved hver UPDATE
+    @Version
+    @Column(nullable = false)
+    private long version;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
     @OneToMany(mappedBy = "ingredient", cascade = CascadeType.PERSIST, orphanRemoval = true)
+    @BatchSize(size = 50)
+    // Ingredient's representation indeholder ikke recipes, så nye eller fjernede recipe linjer hæver ikke version
+    @OptimisticLock(excluded = true)
     private Set<RecipeIngredient> recipes = new HashSet<>();
 }
@@ -1,10 +1,19 @@
 package app.entities;
 
+import app.config.PooledSequenceGenerator;
 import app.enums.Category;
 import app.enums.Type;
 import jakarta.persistence.*;
 import lombok.*;
-
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.OptimisticLock;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.Instant;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -14,11 +23,33 @@ import java.util.Set;
 @NoArgsConstructor
 @Builder
 @Entity
-@Table(name = "Recipes")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "recipe")
+// Fetch plan til list queries - henter ingredients og deres Ingredient i samme SQL i stedet for én query per recipe
+@NamedEntityGraph(
+        name = Recipe.WITH_INGREDIENTS,
+        attributeNodes = @NamedAttributeNode(value = "ingredients", subgraph = "recipeIngredients"),
+        subgraphs = @NamedSubgraph(name = "recipeIngredients", attributeNodes = @NamedAttributeNode("ingredient"))
+)
+@Table(name = "Recipes", indexes = {
+        // Understøtter keyset pagination med category filter (WHERE category = ? AND id > ? ORDER BY id)
+        @Index(name = "idx_recipes_category_id", columnList = "category, id"),
+        // Understøtter minCalories/maxCalories og sort=calories (WHERE total_calories BETWEEN ? AND ? ORDER BY total_calories, id)
+        @Index(name = "idx_recipes_total_calories_id", columnList = "total_calories, id"),
+        @Index(name = "idx_recipes_category_total_calories_id", columnList = "category, total_calories, id"),
+        // minIngredients/maxIngredients og sort=ingredientCount, med og uden category filter.
+        // Navne indexene er på lower(name) COLLATE "C" og kan ikke udtrykkes her - se V6 migrationen og db/test-filters.sql
+        @Index(name = "idx_recipes_ingredient_count_id", columnList = "ingredient_count, id"),
+        @Index(name = "idx_recipes_category_ingredient_count_id", columnList = "category, ingredient_count, id")
+})
 public class Recipe {
 
+    public static final String WITH_INGREDIENTS = "Recipe.withIngredients";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "recipes_seq")
+    @GenericGenerator(name = "recipes_seq", type = PooledSequenceGenerator.class,
+            parameters = @Parameter(name = "sequence_name", value = "recipes_seq"))
     private Integer id;
 
     @Column(nullable = false)
@@ -31,7 +62,44 @@ public class Recipe {
     @Column(nullable = false)
     private String description;
 
+    // Navnene på recipe's ingredients i én tekst, så den genererede search_vector kolonne (V3 migration)
+    // kan dække dem - en generated column kan kun læse fra sin egen række.
+    // Denne, ingredient_count og total_* kolonnerne vedligeholdes af databasen via RecipeAggregates og skrives aldrig af Hibernate
+    @Column(name = "ingredient_names", columnDefinition = "text", insertable = false, updatable = false)
+    private String ingredientNames;
+
+    // Antal ingredient linjer - til filtrering og sortering uden at tælle recipes_ingredients per recipe
+    @Column(name = "ingredient_count", nullable = false, insertable = false, updatable = false, columnDefinition = "integer default 0")
+    private int ingredientCount;
+
+    // Nutrition totaler for hele recipe - null hvis en ingredient mangler nutrition data eller en kendt unit
+    @Column(name = "total_calories", insertable = false, updatable = false)
+    private Double totalCalories;
+
+    @Column(name = "total_protein", insertable = false, updatable = false)
+    private Double totalProtein;
+
+    @Column(name = "total_fat", insertable = false, updatable = false)
+    private Double totalFat;
+
+    @Column(name = "total_carbs", insertable = false, updatable = false)
+    private Double totalCarbs;
+
+    // Optimistic locking og ETag. Hæves af Hibernate ved hver UPDATE, og af RecipeAggregates når recipe's
+    // ingredients eller deres ingredient data ændres, da de indgår i recipe's representation
+    @Version
+    @Column(nullable = false)
+    private long version;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
     @OneToMany(mappedBy = "recipe", cascade = CascadeType.PERSIST, orphanRemoval = true)
+    @BatchSize(size = 50)
+    // Ændringer i collection håndteres af RecipeAggregates og hæver ikke version her
+    @OptimisticLock(excluded = true)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "recipe.ingredients")
     private Set<RecipeIngredient> ingredients = new HashSet<>();
 
 
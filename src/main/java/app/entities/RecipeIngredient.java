@@ -1,7 +1,15 @@
 package app.entities;
 
+import app.config.PooledSequenceGenerator;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.Instant;
 
 @Getter
 @Setter
@@ -9,11 +17,19 @@ import lombok.*;
 @NoArgsConstructor
 @Builder
 @Entity
-@Table(name = "Recipes_Ingredients")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "recipeIngredient")
+@Table(name = "Recipes_Ingredients", indexes = {
+        @Index(name = "idx_recipes_ingredients_recipe_id", columnList = "recipe_id"),
+        // Ingredient filteret på GET /recipes (EXISTS ... WHERE ingredient_id = ? AND recipe_id = r.id) som index-only scan
+        @Index(name = "idx_recipes_ingredients_ingredient_id_recipe_id", columnList = "ingredient_id, recipe_id")
+})
 public class RecipeIngredient {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "recipes_ingredients_seq")
+    @GenericGenerator(name = "recipes_ingredients_seq", type = PooledSequenceGenerator.class,
+            parameters = @Parameter(name = "sequence_name", value = "recipes_ingredients_seq"))
     private Long id;
 
     @ManyToOne
@@ -30,4 +46,13 @@ public class RecipeIngredient {
 
     private String preparation;
 
+    // Optimistic locking. Recipe's version hæves af RecipeAggregates når en linje ændres
+    @Version
+    @Column(nullable = false)
+    private long version;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
 }
@@ -0,0 +1,23 @@
+package app.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity
+@Table(name = "Unit_Conversions")
+public class UnitConversion {
+
+    // Gemmes i lowercase uden mellemrum i enderne - matches mod lower(trim(recipes_ingredients.unit))
+    @Id
+    @Column(length = 50)
+    private String unit;
+
+    // Gram per 1 unit
+    @Column(nullable = false)
+    private double grams;
+}
@@ -0,0 +1,31 @@
+package app.enums;
+
+// Sortering for GET /ingredients. NAME pagineres med keyset cursor på (navn, id)
+public enum IngredientSort {
+    ID("id"),
+    NAME("name");
+
+    private final String param;
+
+    IngredientSort(String param) {
+        this.param = param;
+    }
+
+    // Værdien i sort parameteren - null hvis den ikke findes
+    public static IngredientSort fromParam(String value) {
+        for (IngredientSort sort : values()) {
+            if (sort.param.equalsIgnoreCase(value)) {
+                return sort;
+            }
+        }
+        return null;
+    }
+
+    // Cursorens sorteringsværdi i den type kolonnen har
+    public Object parseCursorValue(String value) {
+        return switch (this) {
+            case ID -> Integer.parseInt(value);
+            case NAME -> value;
+        };
+    }
+}
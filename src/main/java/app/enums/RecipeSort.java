@@ -0,0 +1,35 @@
+package app.enums;
+
+// Sortering for GET /recipes. Alle andre end ID pagineres med keyset cursor på (værdi, id)
+public enum RecipeSort {
+    ID("id"),
+    NAME("name"),
+    INGREDIENT_COUNT("ingredientCount"),
+    CALORIES("calories");
+
+    private final String param;
+
+    RecipeSort(String param) {
+        this.param = param;
+    }
+
+    // Værdien i sort parameteren - null hvis den ikke findes
+    public static RecipeSort fromParam(String value) {
+        for (RecipeSort sort : values()) {
+            if (sort.param.equalsIgnoreCase(value)) {
+                return sort;
+            }
+        }
+        return null;
+    }
+
+    // Cursorens sorteringsværdi i den type kolonnen har
+    public Object parseCursorValue(String value) {
+        return switch (this) {
+            case ID -> Integer.parseInt(value);
+            case NAME -> value;
+            case INGREDIENT_COUNT -> Integer.parseInt(value);
+            case CALORIES -> Double.parseDouble(value);
+        };
+    }
+}
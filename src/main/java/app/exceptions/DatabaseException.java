@@ -1,5 +1,7 @@
 package app.exceptions;
 
+import jakarta.persistence.OptimisticLockException;
+
 public class DatabaseException extends RuntimeException {
     private int code;
 
@@ -10,4 +12,14 @@ public class DatabaseException extends RuntimeException {
     public int getCode(){
         return code;
     }
-}
\ No newline at end of file
+
+    // Version konflikt fra flush eller commit (hvor den er pakket ind i en RollbackException)
+    public static boolean isOptimisticLockFailure(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof OptimisticLockException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
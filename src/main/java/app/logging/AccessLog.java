@@ -0,0 +1,130 @@
+package app.logging;
+
+import app.metrics.RequestMetrics;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import dk.bugelhartmann.UserDTO;
+import io.javalin.http.Context;
+import org.eclipse.jetty.server.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Purpose: Structured (JSON) access log. Request threads only drop a small entry into a bounded buffer -
+ * a background thread formats and writes it. When the buffer is full the entry is dropped and counted
+ */
+public class AccessLog {
+
+    private static final Logger accessLogger = LoggerFactory.getLogger("access");
+    private static final Logger logger = LoggerFactory.getLogger(AccessLog.class);
+    private static final int DEFAULT_CAPACITY = 8192;
+    private static final int DRAIN_BATCH = 256;
+    private static AccessLog instance;
+
+    private final BlockingQueue<Entry> buffer;
+    private final LongAdder dropped = new LongAdder();
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    // Public til tests: uden start() er der ingen writer, så bufferen kan fyldes op
+    public AccessLog(int capacity) {
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+    }
+
+    public static synchronized AccessLog getInstance() {
+        if (instance == null) {
+            instance = new AccessLog(DEFAULT_CAPACITY);
+            instance.start();
+        }
+        return instance;
+    }
+
+    private void start() {
+        Thread writer = new Thread(this::drain, "access-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public void log(Context ctx, float durationMs) {
+        if (!accessLogger.isInfoEnabled()) {
+            return;
+        }
+        UserDTO user = ctx.attribute("user");
+        log(ctx.method().name(), RequestMetrics.routeOf(ctx), ctx.statusCode(), durationMs,
+                user != null ? user.getUsername() : null, bytesWritten(ctx));
+    }
+
+    public void log(String method, String route, int status, float durationMs, String user, long bytes) {
+        Entry entry = new Entry(System.currentTimeMillis(), method, route, status, durationMs, user, bytes);
+        // offer blokerer aldrig - er bufferen fuld, tælles linjen som droppet
+        if (!buffer.offer(entry)) {
+            dropped.increment();
+        }
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    private static long bytesWritten(Context ctx) {
+        if (ctx.res() instanceof Response response) {
+            return response.getHttpOutput().getWritten();
+        }
+        return -1;
+    }
+
+    private void drain() {
+        List<Entry> batch = new ArrayList<>(DRAIN_BATCH);
+        StringWriter out = new StringWriter(256);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(buffer.take());
+                buffer.drainTo(batch, DRAIN_BATCH - 1);
+                for (Entry entry : batch) {
+                    out.getBuffer().setLength(0);
+                    write(entry, out);
+                    accessLogger.info(out.toString());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                logger.warn("Could not write access log entry: {}", e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(Entry entry, StringWriter out) throws IOException {
+        try (JsonGenerator json = jsonFactory.createGenerator(out)) {
+            json.writeStartObject();
+            json.writeStringField("ts", Instant.ofEpochMilli(entry.timestamp()).toString());
+            json.writeStringField("method", entry.method());
+            json.writeStringField("route", entry.route());
+            json.writeNumberField("status", entry.status());
+            json.writeNumberField("durationMs", entry.durationMs());
+            if (entry.user() != null) {
+                json.writeStringField("user", entry.user());
+            } else {
+                json.writeNullField("user");
+            }
+            if (entry.bytes() >= 0) {
+                json.writeNumberField("bytes", entry.bytes());
+            } else {
+                json.writeNullField("bytes");
+            }
+            json.writeEndObject();
+        }
+    }
+
+    private record Entry(long timestamp, String method, String route, int status, float durationMs,
+                         String user, long bytes) { }
+}
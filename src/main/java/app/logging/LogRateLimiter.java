@@ -0,0 +1,60 @@
+package app.logging;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Purpose: Let the first few log lines of a kind through per time window and count the rest,
+ * so a flood of identical errors cannot fill the log (or its buffers)
+ */
+public class LogRateLimiter {
+
+    private static final int MAX_KEYS = 1000;
+
+    private final int permitsPerWindow;
+    private final long windowMillis;
+    private final ConcurrentHashMap<String, Window> windows = new ConcurrentHashMap<>();
+    private final LongAdder suppressed = new LongAdder();
+
+    public LogRateLimiter(int permitsPerWindow, long windowMillis) {
+        this.permitsPerWindow = permitsPerWindow;
+        this.windowMillis = windowMillis;
+    }
+
+    /**
+     * Returns -1 if the line should be suppressed, otherwise the number of lines suppressed
+     * for this key in the previous window (so the caller can mention them)
+     */
+    public long tryAcquire(String key) {
+        if (windows.size() >= MAX_KEYS && !windows.containsKey(key)) {
+            // Mange forskellige nøgler (fx fejlbeskeder med ids) - start forfra i stedet for at vokse
+            windows.clear();
+        }
+        Window window = windows.computeIfAbsent(key, k -> new Window());
+        long now = System.currentTimeMillis();
+        long start = window.start.get();
+        long carried = 0;
+        if (now - start >= windowMillis && window.start.compareAndSet(start, now)) {
+            carried = window.suppressed.getAndSet(0);
+            window.used.set(0);
+        }
+        if (window.used.incrementAndGet() <= permitsPerWindow) {
+            return carried;
+        }
+        window.suppressed.incrementAndGet();
+        suppressed.increment();
+        return -1;
+    }
+
+    public long getSuppressed() {
+        return suppressed.sum();
+    }
+
+    private static class Window {
+        private final AtomicLong start = new AtomicLong(System.currentTimeMillis());
+        private final AtomicInteger used = new AtomicInteger();
+        private final AtomicLong suppressed = new AtomicLong();
+    }
+}
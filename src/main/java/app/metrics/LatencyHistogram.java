@@ -0,0 +1,93 @@
+package app.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Purpose: Lock-free latency histogram with HDR-style log-linear buckets (8 sub-buckets per power of two,
+ * max 12.5% error). Counts are striped per thread so concurrent requests rarely hit the same cache line
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR_LIMIT = SUB_BUCKETS * 2;
+    // Værdier i mikrosekunder - højeste bucket dækker op til 2^36 µs (ca. 19 timer)
+    private static final int MAX_MAGNITUDE = 36;
+    static final int BUCKETS = LINEAR_LIMIT + (MAX_MAGNITUDE - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+    private static final int STRIPES = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1);
+
+    private final AtomicLongArray counts = new AtomicLongArray(STRIPES * BUCKETS);
+    private final LongAdder totalMicros = new LongAdder();
+    private final LongAdder count = new LongAdder();
+
+    public void record(long micros) {
+        int stripe = (int) (Thread.currentThread().threadId() & (STRIPES - 1));
+        counts.incrementAndGet(stripe * BUCKETS + bucketOf(Math.max(0, micros)));
+        totalMicros.add(micros);
+        count.increment();
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getTotalMicros() {
+        return totalMicros.sum();
+    }
+
+    /**
+     * Returns the upper bound (in microseconds) of the bucket holding the given quantiles, e.g. 0.5, 0.99.
+     * One pass over the buckets serves all requested quantiles
+     */
+    public long[] quantiles(double... quantiles) {
+        long[] merged = new long[BUCKETS];
+        long total = 0;
+        for (int stripe = 0; stripe < STRIPES; stripe++) {
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                long c = counts.get(stripe * BUCKETS + bucket);
+                merged[bucket] += c;
+                total += c;
+            }
+        }
+        long[] result = new long[quantiles.length];
+        if (total == 0) {
+            return result;
+        }
+        for (int i = 0; i < quantiles.length; i++) {
+            long rank = Math.max(1, (long) Math.ceil(quantiles[i] * total));
+            long seen = 0;
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                seen += merged[bucket];
+                if (seen >= rank) {
+                    result[i] = upperBoundOf(bucket);
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    static int bucketOf(long micros) {
+        if (micros < LINEAR_LIMIT) {
+            return (int) micros;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(micros);
+        if (magnitude >= MAX_MAGNITUDE) {
+            return BUCKETS - 1;
+        }
+        int subBucket = (int) (micros >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR_LIMIT + (magnitude - SUB_BUCKET_BITS - 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long upperBoundOf(int bucket) {
+        if (bucket < LINEAR_LIMIT) {
+            return bucket;
+        }
+        int offset = bucket - LINEAR_LIMIT;
+        int magnitude = offset / SUB_BUCKETS + SUB_BUCKET_BITS + 1;
+        int subBucket = offset % SUB_BUCKETS;
+        long width = 1L << (magnitude - SUB_BUCKET_BITS);
+        return (1L << magnitude) + (subBucket + 1) * width - 1;
+    }
+}
@@ -0,0 +1,180 @@
+package app.metrics;
+
+import io.javalin.http.Context;
+import io.javalin.http.HandlerType;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Purpose: Per-route request counts (by status) and latency histograms, rendered in Prometheus text format
+ * together with JVM heap, GC and thread gauges
+ */
+public class RequestMetrics {
+
+    private static final String UNMATCHED_ROUTE = "unmatched";
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final int MAX_STATUS = 600;
+    private static RequestMetrics instance;
+
+    // route template -> metrics per HTTP metode. Nøglen er Javalins egen path-streng, så opslag allokerer ikke
+    private final ConcurrentHashMap<String, AtomicReferenceArray<RouteMetrics>> routes = new ConcurrentHashMap<>();
+
+    private RequestMetrics() { }
+
+    public static synchronized RequestMetrics getInstance() {
+        if (instance == null) {
+            instance = new RequestMetrics();
+        }
+        return instance;
+    }
+
+    // Kaldes fra Javalins request logger, efter exception handlers har sat den endelige status
+    public void record(Context ctx, float executionTimeMs) {
+        record(ctx.method(), routeOf(ctx), ctx.statusCode(), (long) (executionTimeMs * 1000));
+    }
+
+    public void record(HandlerType method, String route, int status, long micros) {
+        AtomicReferenceArray<RouteMetrics> byMethod = routes.get(route);
+        if (byMethod == null) {
+            byMethod = routes.computeIfAbsent(route, r -> new AtomicReferenceArray<>(HandlerType.values().length));
+        }
+        RouteMetrics metrics = byMethod.get(method.ordinal());
+        if (metrics == null) {
+            byMethod.compareAndSet(method.ordinal(), null, new RouteMetrics());
+            metrics = byMethod.get(method.ordinal());
+        }
+        metrics.record(status, micros);
+    }
+
+    public static String routeOf(Context ctx) {
+        try {
+            String path = ctx.endpointHandlerPath();
+            return path == null || path.isEmpty() ? UNMATCHED_ROUTE : path;
+        } catch (IllegalStateException e) {
+            // Ingen endpoint matchede (fx 404) - saml dem under én label, så ukendte URL'er ikke giver nye serier
+            return UNMATCHED_ROUTE;
+        }
+    }
+
+    public String scrape() {
+        StringBuilder sb = new StringBuilder(8192);
+        Map<String, AtomicReferenceArray<RouteMetrics>> sorted = new TreeMap<>(routes);
+
+        sb.append("# HELP http_requests_total Requests handled, by route and status\n");
+        sb.append("# TYPE http_requests_total counter\n");
+        forEachRoute(sorted, (labels, metrics) -> {
+            for (int status = 0; status < MAX_STATUS; status++) {
+                LongAdder counter = metrics.statusCounts.get(status);
+                if (counter != null) {
+                    sb.append("http_requests_total{").append(labels).append(",status=\"").append(status).append("\"} ")
+                            .append(counter.sum()).append('\n');
+                }
+            }
+        });
+
+        sb.append("# HELP http_request_duration_seconds Request latency by route\n");
+        sb.append("# TYPE http_request_duration_seconds summary\n");
+        forEachRoute(sorted, (labels, metrics) -> {
+            long[] values = metrics.latency.quantiles(QUANTILES);
+            for (int i = 0; i < QUANTILES.length; i++) {
+                sb.append("http_request_duration_seconds{").append(labels).append(",quantile=\"").append(QUANTILES[i])
+                        .append("\"} ").append(seconds(values[i])).append('\n');
+            }
+            sb.append("http_request_duration_seconds_sum{").append(labels).append("} ")
+                    .append(seconds(metrics.latency.getTotalMicros())).append('\n');
+            sb.append("http_request_duration_seconds_count{").append(labels).append("} ")
+                    .append(metrics.latency.getCount()).append('\n');
+        });
+
+        appendJvmMetrics(sb);
+        return sb.toString();
+    }
+
+    private void forEachRoute(Map<String, AtomicReferenceArray<RouteMetrics>> sorted, RouteWriter writer) {
+        HandlerType[] methods = HandlerType.values();
+        sorted.forEach((route, byMethod) -> {
+            for (HandlerType method : methods) {
+                RouteMetrics metrics = byMethod.get(method.ordinal());
+                if (metrics != null) {
+                    writer.write("method=\"" + method.name() + "\",route=\"" + escape(route) + "\"", metrics);
+                }
+            }
+        });
+    }
+
+    private static void appendJvmMetrics(StringBuilder sb) {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        MemoryUsage heap = memory.getHeapMemoryUsage();
+        MemoryUsage nonHeap = memory.getNonHeapMemoryUsage();
+        gauge(sb, "jvm_memory_used_bytes", "Used JVM memory", "area=\"heap\"", heap.getUsed());
+        sb.append("jvm_memory_used_bytes{area=\"nonheap\"} ").append(nonHeap.getUsed()).append('\n');
+        gauge(sb, "jvm_memory_committed_bytes", "Committed JVM memory", "area=\"heap\"", heap.getCommitted());
+        sb.append("jvm_memory_committed_bytes{area=\"nonheap\"} ").append(nonHeap.getCommitted()).append('\n');
+        gauge(sb, "jvm_memory_max_bytes", "Max JVM heap, -1 if undefined", "area=\"heap\"", heap.getMax());
+
+        sb.append("# HELP jvm_gc_collections_total GC runs per collector\n");
+        sb.append("# TYPE jvm_gc_collections_total counter\n");
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            sb.append("jvm_gc_collections_total{gc=\"").append(escape(gc.getName())).append("\"} ")
+                    .append(gc.getCollectionCount()).append('\n');
+        }
+        sb.append("# HELP jvm_gc_collection_seconds_total Time spent in GC per collector\n");
+        sb.append("# TYPE jvm_gc_collection_seconds_total counter\n");
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            sb.append("jvm_gc_collection_seconds_total{gc=\"").append(escape(gc.getName())).append("\"} ")
+                    .append(gc.getCollectionTime() / 1000.0).append('\n');
+        }
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        gauge(sb, "jvm_threads_live", "Live platform threads", null, threads.getThreadCount());
+        gauge(sb, "jvm_threads_daemon", "Live daemon threads", null, threads.getDaemonThreadCount());
+        gauge(sb, "jvm_threads_peak", "Peak live platform threads", null, threads.getPeakThreadCount());
+    }
+
+    private static void gauge(StringBuilder sb, String name, String help, String labels, long value) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(" gauge\n");
+        sb.append(name);
+        if (labels != null) {
+            sb.append('{').append(labels).append('}');
+        }
+        sb.append(' ').append(value).append('\n');
+    }
+
+    private static String seconds(long micros) {
+        return Double.toString(micros / 1_000_000.0);
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private interface RouteWriter {
+        void write(String labels, RouteMetrics metrics);
+    }
+
+    private static class RouteMetrics {
+        private final AtomicReferenceArray<LongAdder> statusCounts = new AtomicReferenceArray<>(MAX_STATUS);
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        void record(int status, long micros) {
+            int index = status >= 0 && status < MAX_STATUS ? status : 0;
+            LongAdder counter = statusCounts.get(index);
+            if (counter == null) {
+                statusCounts.compareAndSet(index, null, new LongAdder());
+                counter = statusCounts.get(index);
+            }
+            counter.increment();
+            latency.record(micros);
+        }
+    }
+}
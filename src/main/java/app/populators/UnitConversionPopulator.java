@@ -0,0 +1,46 @@
+package app.populators;
+
+import app.entities.UnitConversion;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityTransaction;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+public class UnitConversionPopulator {
+
+    private static final String SEED_FILE = "seed/units.txt";
+
+    // Seeder kun hvis tabellen er tom - kan derfor køres ved hver opstart
+    public static void populate(EntityManager em) {
+        Long existing = em.createQuery("SELECT COUNT(u) FROM UnitConversion u", Long.class).getSingleResult();
+        if (existing > 0) {
+            return;
+        }
+
+        EntityTransaction transaction = em.getTransaction();
+        try (InputStream is = UnitConversionPopulator.class.getClassLoader().getResourceAsStream(SEED_FILE)) {
+            if (is == null) {
+                throw new IllegalStateException("Seed file " + SEED_FILE + " not found");
+            }
+            BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8));
+            transaction.begin();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split("\\|", -1);
+                em.persist(new UnitConversion(fields[0].trim().toLowerCase(), Double.parseDouble(fields[1])));
+            }
+            transaction.commit();
+        } catch (Exception e) {
+            if (transaction.isActive()) {
+                transaction.rollback();
+            }
+            throw new RuntimeException("Error populating unit conversions", e);
+        }
+    }
+}
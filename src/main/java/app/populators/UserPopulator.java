@@ -10,18 +10,25 @@ public class UserPopulator {
 
     private static SecurityDAO securityDAO;
 
+    // Opretter kun brugerne hvis der ikke findes nogen - kan derfor køres ved hver opstart
     public static List<UserDTO> populate(EntityManager em) {
-        securityDAO = new SecurityDAO(em.getEntityManagerFactory());
-
         String username1 = "A";
         String password1 = "A1";
         UserDTO u1 = new UserDTO(username1, password1);
-        securityDAO.createUser(username1, password1);
-        securityDAO.addRole(u1, "admin");
 
         String username2 = "U";
         String password2 = "U1";
         UserDTO u2 = new UserDTO(username2, password2);
+
+        Long existing = em.createQuery("SELECT COUNT(u) FROM User u", Long.class).getSingleResult();
+        if (existing > 0) {
+            return List.of(u1, u2);
+        }
+
+        securityDAO = new SecurityDAO(em.getEntityManagerFactory());
+        securityDAO.createUser(username1, password1);
+        securityDAO.addRole(u1, "admin");
+
         securityDAO.createUser(username2, password2);
         securityDAO.addRole(u1, "user");
 
@@ -0,0 +1,23 @@
+package app.routes;
+
+import app.controllers.AdminController;
+import app.security.enums.Role;
+import io.javalin.apibuilder.EndpointGroup;
+
+import static io.javalin.apibuilder.ApiBuilder.*;
+
+public class AdminRoutes {
+    private final AdminController adminController = new AdminController();
+
+    public EndpointGroup getRoutes() {
+        return () -> {
+                // Drift/monitorering - kun for admins
+                get("/cache", adminController::cacheStatistics, Role.ADMIN);
+                get("/nutrition-cache", adminController::nutritionCacheStatistics, Role.ADMIN);
+                get("/response-cache", adminController::responseCacheStatistics, Role.ADMIN);
+                delete("/response-cache", adminController::clearResponseCache, Role.ADMIN);
+                get("/hibernate", adminController::hibernateStatistics, Role.ADMIN);
+                delete("/hibernate", adminController::resetHibernateStatistics, Role.ADMIN);
+        };
+    }
+}
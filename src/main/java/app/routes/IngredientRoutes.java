@@ -19,6 +19,8 @@ public class IngredientRoutes {
                 post("/", ingredientController::create, Role.USER);
                 put("/{id}", ingredientController::update, Role.USER);
                 delete("/{id}", ingredientController::delete, Role.USER);
+                // NDJSON bulk import (én JSON linje per entity) er kun for admins
+                post("/bulk", ingredientController::bulkCreate, Role.ADMIN);
         };
     }
 }
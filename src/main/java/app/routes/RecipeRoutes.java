@@ -14,11 +14,18 @@ public class RecipeRoutes {
         return () -> {
                 // GET endpoints er public (ingen authentication påkrævet)
                 get("/", recipeController::readAll, Role.ANYONE);
+                // Skal registreres før /{id}, ellers matches fx "search" som et id
+                // Export er hele kataloget i én lang transaktion, så den er kun for admins ligesom bulk import
+                get("/export", recipeController::export, Role.ADMIN);
+                get("/search", recipeController::search, Role.ANYONE);
+                get("/by-ingredients", recipeController::findByIngredients, Role.ANYONE);
                 get("/{id}", recipeController::read, Role.ANYONE);
                 // Write endpoints kræver authentication med Role.USER
                 post("/", recipeController::create, Role.USER);
                 put("/{id}", recipeController::update, Role.USER);
                 delete("/{id}", recipeController::delete, Role.USER);
+                // NDJSON bulk import (én JSON linje per entity) er kun for admins
+                post("/bulk", recipeController::bulkCreate, Role.ADMIN);
                 post("/{recipeId}/ingredients", recipeController::addIngredient, Role.USER);
                 delete("/{recipeId}/ingredients/{ingredientId}", recipeController::removeIngredient, Role.USER);
         };
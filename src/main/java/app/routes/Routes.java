@@ -1,5 +1,7 @@
 package app.routes;
 
+import app.controllers.MetricsController;
+import app.security.enums.Role;
 import io.javalin.apibuilder.EndpointGroup;
 
 import static io.javalin.apibuilder.ApiBuilder.*;
@@ -7,11 +9,16 @@ import static io.javalin.apibuilder.ApiBuilder.*;
 public class Routes {
     private final RecipeRoutes recipeRoutes = new RecipeRoutes();
     private final IngredientRoutes ingredientRoutes = new IngredientRoutes();
+    private final AdminRoutes adminRoutes = new AdminRoutes();
+    private final MetricsController metricsController = new MetricsController();
 
     public EndpointGroup getRoutes() {
         return () -> {
             path("/recipes",recipeRoutes.getRoutes());
             path("/ingredients",ingredientRoutes.getRoutes());
+            path("/admin",adminRoutes.getRoutes());
+            // Prometheus scrape endpoint
+            get("/metrics", metricsController::scrape, Role.ANYONE);
         };
     }
 }
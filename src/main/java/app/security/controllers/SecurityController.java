@@ -2,9 +2,15 @@ package app.security.controllers;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import com.nimbusds.jose.JOSEException;
-import app.utils.Utils;
+import com.nimbusds.jose.crypto.MACVerifier;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
 import app.config.HibernateConfig;
+import app.config.SecurityConfig;
 import app.security.daos.ISecurityDAO;
 import app.security.daos.SecurityDAO;
 import app.security.entities.User;
@@ -23,8 +29,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.text.ParseException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -32,20 +44,41 @@ import java.util.stream.Collectors;
  * Author: Thomas Hartmann
  */
 public class SecurityController implements ISecurityController {
+    private static final long MAX_CACHED_TOKENS = 10_000;
+    private static final Duration UNKNOWN_EXPIRY_TTL = Duration.ofMinutes(1);
+    private static final Duration MAX_TOKEN_TTL = Duration.ofDays(1);
     ObjectMapper objectMapper = new ObjectMapper();
     ITokenSecurity tokenSecurity = new TokenSecurity();
-    private static ISecurityDAO securityDAO;
+    private final ISecurityDAO securityDAO;
+    private final SecurityConfig config;
+    private final Clock clock;
+    // Allerede verificerede tokens -> bruger. Et token udløber fra cachen samtidig med dets exp claim
+    private final Cache<String, VerifiedToken> verifiedTokens;
+    private final Handler authenticateHandler = this::authenticateRequest;
     private static SecurityController instance;
     private static Logger logger = LoggerFactory.getLogger(SecurityController.class);
 
-    private SecurityController() { }
+    private SecurityController() {
+        this(new SecurityDAO(HibernateConfig.getEntityManagerFactory()), SecurityConfig.load(), Clock.systemUTC());
+    }
+
+    // Til tests: clock styrer både exp tjekket og hvornår cachen fjerner et token
+    public SecurityController(ISecurityDAO securityDAO, SecurityConfig config, Clock clock) {
+        this.securityDAO = securityDAO;
+        this.config = config;
+        this.clock = clock;
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(MAX_CACHED_TOKENS)
+                .ticker(() -> TimeUnit.MILLISECONDS.toNanos(clock.millis()))
+                .expireAfter(new TokenExpiry(clock))
+                .build();
+    }
 
     // Singleton pattern - vi vil ikke have flere instanser af samme klasse
-    public static SecurityController getInstance() {
+    public static synchronized SecurityController getInstance() {
         if (instance == null) {
             instance = new SecurityController();
         }
-        securityDAO = new SecurityDAO(HibernateConfig.getEntityManagerFactory());
         return instance;
     }
 
@@ -96,33 +129,34 @@ public class SecurityController implements ISecurityController {
 
     @Override
     public Handler authenticate() throws UnauthorizedResponse {
+        // Samme handler genbruges for alle requests
+        return authenticateHandler;
+    }
 
-        ObjectNode returnObject = objectMapper.createObjectNode();
-        return (ctx) -> {
-            // Dette er en preflight request => OK
-            if (ctx.method().toString().equals("OPTIONS")) {
-                ctx.status(200);
-                return;
-            }
-            String header = ctx.header("Authorization");
-            if (header == null) {
-                throw new UnauthorizedResponse("Authorization header missing");
-            }
+    private void authenticateRequest(Context ctx) {
+        // Dette er en preflight request => OK
+        if (ctx.method().toString().equals("OPTIONS")) {
+            ctx.status(200);
+            return;
+        }
+        String header = ctx.header("Authorization");
+        if (header == null) {
+            throw new UnauthorizedResponse("Authorization header missing");
+        }
 
-            String[] headerParts = header.split(" ");
-            if (headerParts.length != 2) {
-                throw new UnauthorizedResponse("Authorization header malformed");
-            }
+        String[] headerParts = header.split(" ");
+        if (headerParts.length != 2) {
+            throw new UnauthorizedResponse("Authorization header malformed");
+        }
 
-            String token = headerParts[1];
-            UserDTO verifiedTokenUser = verifyToken(token);
+        String token = headerParts[1];
+        UserDTO verifiedTokenUser = verifyToken(token);
 
-            if (verifiedTokenUser == null) {
-                throw new UnauthorizedResponse("Invalid User or Token");
-            }
-            logger.info("User verified: " + verifiedTokenUser);
-            ctx.attribute("user", verifiedTokenUser);
-        };
+        if (verifiedTokenUser == null) {
+            throw new UnauthorizedResponse("Invalid User or Token");
+        }
+        logger.debug("User verified: {}", verifiedTokenUser.getUsername());
+        ctx.attribute("user", verifiedTokenUser);
     }
 
     @Override
@@ -142,29 +176,7 @@ public class SecurityController implements ISecurityController {
     @Override
     public String createToken(UserDTO user) {
         try {
-            String ISSUER;
-            String TOKEN_EXPIRE_TIME;
-            String SECRET_KEY;
-
-            if (System.getenv("DEPLOYED") != null) {
-                ISSUER = System.getenv("ISSUER");
-                TOKEN_EXPIRE_TIME = System.getenv("TOKEN_EXPIRE_TIME");
-                SECRET_KEY = System.getenv("SECRET_KEY");
-            } else {
-                // Try to read from config.properties, fallback to defaults for tests
-                try {
-                    ISSUER = Utils.getPropertyValue("ISSUER", "config.properties");
-                    TOKEN_EXPIRE_TIME = Utils.getPropertyValue("TOKEN_EXPIRE_TIME", "config.properties");
-                    SECRET_KEY = Utils.getPropertyValue("SECRET_KEY", "config.properties");
-                } catch (Exception e) {
-                    // Fallback to default values for CI/tests when config.properties is not available
-                    logger.warn("Could not read config.properties, using default values for tests");
-                    ISSUER = "test-issuer";
-                    TOKEN_EXPIRE_TIME = "1800000"; // 30 minutes
-                    SECRET_KEY = "test-secret-key-for-ci";
-                }
-            }
-            return tokenSecurity.createToken(user, ISSUER, TOKEN_EXPIRE_TIME, SECRET_KEY);
+            return tokenSecurity.createToken(user, config.issuer(), config.tokenExpireTime(), config.secretKey());
         } catch (Exception e) {
             e.printStackTrace();
             throw new ApiException(500, "Could not create token");
@@ -173,30 +185,25 @@ public class SecurityController implements ISecurityController {
 
     @Override
     public UserDTO verifyToken(String token) {
-        boolean IS_DEPLOYED = (System.getenv("DEPLOYED") != null);
-        String SECRET;
-        
-        if (IS_DEPLOYED) {
-            SECRET = System.getenv("SECRET_KEY");
-        } else {
-            // Try to read from config.properties, fallback to default for tests
-            try {
-                SECRET = Utils.getPropertyValue("SECRET_KEY", "config.properties");
-            } catch (Exception e) {
-                // Fallback to default value for CI/tests when config.properties is not available
-                logger.warn("Could not read SECRET_KEY from config.properties, using default value for tests");
-                SECRET = "test-secret-key-for-ci";
-            }
+        // Kendt token - signaturen er allerede verificeret, og cachen har fjernet det hvis det er udløbet
+        VerifiedToken cached = verifiedTokens.getIfPresent(token);
+        if (cached != null) {
+            return cached.user();
         }
 
         try {
-            if (tokenSecurity.tokenIsValid(token, SECRET) && tokenSecurity.tokenNotExpired(token)) {
-                return tokenSecurity.getUserWithRolesFromToken(token);
-            } else {
+            // Signatur tjekkes én gang per token - derefter kommer brugeren fra cachen indtil exp.
+            // Tokenet parses kun én gang, og samme SignedJWT bruges til signatur, exp og claims
+            SignedJWT jwt = SignedJWT.parse(token);
+            JWTClaimsSet claims = jwt.getJWTClaimsSet();
+            if (!jwt.verify(new MACVerifier(config.secretKey())) || isExpired(claims)) {
                 throw new NotAuthorizedException(403, "Token is not valid");
             }
+            UserDTO user = userFromClaims(claims);
+            verifiedTokens.put(token, new VerifiedToken(user, expiresAt(claims)));
+            return user;
         } catch (ParseException | JOSEException | NotAuthorizedException e) {
-            e.printStackTrace();
+            logger.debug("Could not verify token: {}", e.getMessage());
             throw new ApiException(HttpStatus.UNAUTHORIZED.getCode(), "Unauthorized. Could not verify token");
         }
     }
@@ -273,4 +280,53 @@ public class SecurityController implements ISecurityController {
     public void healthCheck(@NotNull Context ctx) {
         ctx.status(200).json("{\"msg\": \"API is up and running\"}");
     }
-}
\ No newline at end of file
+
+    // Samme claims som TokenSecurity skriver i createToken: username og roles som kommaseparereret streng
+    private static UserDTO userFromClaims(JWTClaimsSet claims) throws ParseException, NotAuthorizedException {
+        String username = claims.getStringClaim("username");
+        String roles = claims.getStringClaim("roles");
+        if (username == null || roles == null) {
+            throw new NotAuthorizedException(403, "Token is missing username or roles");
+        }
+        Set<String> roleSet = Arrays.stream(roles.split(","))
+                .map(String::trim)
+                .filter(role -> !role.isEmpty())
+                .collect(Collectors.toSet());
+        return new UserDTO(username, roleSet);
+    }
+
+    private boolean isExpired(JWTClaimsSet claims) {
+        Date expiration = claims.getExpirationTime();
+        return expiration != null && !expiration.toInstant().isAfter(clock.instant());
+    }
+
+    // Tokens uden exp claim caches kun kortvarigt, så de bliver tjekket igen
+    private Instant expiresAt(JWTClaimsSet claims) {
+        Date expiration = claims.getExpirationTime();
+        Instant fallback = clock.instant().plus(UNKNOWN_EXPIRY_TTL);
+        if (expiration == null || expiration.toInstant().isAfter(fallback.plus(MAX_TOKEN_TTL))) {
+            return fallback;
+        }
+        return expiration.toInstant();
+    }
+
+    private record VerifiedToken(UserDTO user, Instant expiresAt) { }
+
+    private record TokenExpiry(Clock clock) implements Expiry<String, VerifiedToken> {
+
+        @Override
+        public long expireAfterCreate(String token, VerifiedToken verified, long currentTime) {
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, verified.expiresAt().toEpochMilli() - clock.millis()));
+        }
+
+        @Override
+        public long expireAfterUpdate(String token, VerifiedToken verified, long currentTime, long currentDuration) {
+            return expireAfterCreate(token, verified, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String token, VerifiedToken verified, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -4,13 +4,18 @@ package app.security.daos;
 import app.security.entities.Role;
 import app.security.entities.User;
 import app.security.exceptions.ApiException;
+import app.security.exceptions.ServiceUnavailableException;
 import app.security.exceptions.ValidationException;
+import app.utils.PasswordHasher;
 import dk.bugelhartmann.UserDTO;
 import jakarta.persistence.EntityExistsException;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.persistence.PersistenceException;
 import jakarta.persistence.TypedQuery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -24,6 +29,7 @@ public class SecurityDAO implements ISecurityDAO {
 
     private static ISecurityDAO instance;
     private static EntityManagerFactory emf;
+    private static final Logger logger = LoggerFactory.getLogger(SecurityDAO.class);
 
     public SecurityDAO(EntityManagerFactory _emf) {
         emf = _emf;
@@ -43,6 +49,8 @@ public class SecurityDAO implements ISecurityDAO {
             user.getRoles().size();
             if (!user.verifyPassword(password))
                 throw new ValidationException("Wrong password");
+            if (PasswordHasher.getInstance().needsRehash(user.getPassword()))
+                rehashPassword(em, user, password);
             return new UserDTO(user.getUsername(), user.getRoles().stream().map(r -> r.getRoleName()).collect(Collectors.toSet()));
         }
     }
@@ -63,12 +71,28 @@ public class SecurityDAO implements ISecurityDAO {
             em.persist(userEntity);
             em.getTransaction().commit();
             return userEntity;
-        }catch (Exception e){
+        } catch (ServiceUnavailableException e) {
+            throw e;
+        } catch (Exception e){
             e.printStackTrace();
             throw new ApiException(400, e.getMessage());
         }
     }
 
+    // Hash passwordet igen med den nuværende cost. Fejler det, prøves der bare igen ved næste login
+    private void rehashPassword(EntityManager em, User user, String password) {
+        try {
+            String newHash = PasswordHasher.getInstance().hash(password);
+            em.getTransaction().begin();
+            user.setPassword(newHash);
+            em.getTransaction().commit();
+        } catch (ServiceUnavailableException | PersistenceException e) {
+            if (em.getTransaction().isActive())
+                em.getTransaction().rollback();
+            logger.warn("Could not rehash password for {}: {}", user.getUsername(), e.getMessage());
+        }
+    }
+
     @Override
     public User addRole(UserDTO userDTO, String newRole) {
         try (EntityManager em = getEntityManager()) {
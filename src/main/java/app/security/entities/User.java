@@ -2,7 +2,7 @@ package app.security.entities;
 
 import jakarta.persistence.*;
 import lombok.*;
-import org.mindrot.jbcrypt.BCrypt;
+import app.utils.PasswordHasher;
 
 import java.io.Serial;
 import java.io.Serializable;
@@ -50,12 +50,12 @@ public class User implements Serializable, ISecurityUser {
     }
 
     public boolean verifyPassword(String pw) {
-        return BCrypt.checkpw(pw, this.password);
+        return PasswordHasher.getInstance().verify(pw, this.password);
     }
 
     public User(String userName, String userPass) {
         this.username = userName;
-        this.password = BCrypt.hashpw(userPass, BCrypt.gensalt());
+        this.password = PasswordHasher.getInstance().hash(userPass);
     }
 
     public User(String userName, Set<Role> roleEntityList) {
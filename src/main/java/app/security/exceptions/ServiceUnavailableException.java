@@ -0,0 +1,17 @@
+package app.security.exceptions;
+
+/**
+ * Purpose: Signal that the server is temporarily overloaded (503) and when the client may retry
+ */
+public class ServiceUnavailableException extends ApiException {
+    private final int retryAfterSeconds;
+
+    public ServiceUnavailableException(String msg, int retryAfterSeconds) {
+        super(503, msg);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
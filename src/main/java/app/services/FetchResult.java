@@ -0,0 +1,17 @@
+package app.services;
+
+// Resultat for ét endpoint i et fan-out kald - enten en værdi eller en fejlbesked
+public record FetchResult<T>(String endpoint, T value, String error) {
+
+    public static <T> FetchResult<T> success(String endpoint, T value) {
+        return new FetchResult<>(endpoint, value, null);
+    }
+
+    public static <T> FetchResult<T> failure(String endpoint, String error) {
+        return new FetchResult<>(endpoint, null, error);
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
@@ -3,97 +3,330 @@ package app.services;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
-import java.util.ArrayList;
-import java.util.List;
+import java.time.Duration;
+import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
 public class FetchTools {
 
-    public <T> T getFromApi(String uri, Class<T> dtoClass) {
-
-        // Konfigurer ObjectMapper med JavaTimeModule for at håndtere ZonedDateTime
-        ObjectMapper objectMapper = new ObjectMapper();
-        objectMapper.registerModule(new JavaTimeModule());
-        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    private static final Logger logger = LoggerFactory.getLogger(FetchTools.class);
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(3);
+    private static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(5);
+    private static final Duration DEFAULT_BATCH_DEADLINE = Duration.ofSeconds(10);
+    private static final int MAX_CONCURRENT_PER_HOST = 8;
+    private static final Map<String, HostLimiter> hostLimiters = new ConcurrentHashMap<>();
 
-        try {
-            HttpClient client = HttpClient.newHttpClient();
+    // Tråde til HttpClient og til at parse response bodies - I/O bundet, så en virtual thread per opgave
+    private static final ExecutorService ioExecutor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("fetch-tools-io-", 0).factory());
 
-            HttpRequest request = HttpRequest
-                    .newBuilder()
-                    .header("Accept", "application/json")
-                    .uri(new URI(uri))
-                    .GET()
-                    .build();
+    // Én langlivet klient - genbruger forbindelser (keep-alive) og forhandler HTTP/2 hvor provideren understøtter det
+    private static final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(CONNECT_TIMEOUT)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .executor(ioExecutor)
+            .build();
 
-            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+    // Konfigurer ObjectMapper med JavaTimeModule for at håndtere ZonedDateTime - deles af alle kald (thread-safe)
+    private static final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
 
-            if (response.statusCode() == 200) {
-                return objectMapper.readValue(response.body(), dtoClass);
-            } else {
-                System.out.println("GET request failed. Status code: " + response.statusCode());
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
+    public <T> T getFromApi(String uri, Class<T> dtoClass) {
+        try {
+            return getFromApiAsync(uri, dtoClass).join();
+        } catch (CompletionException | CancellationException e) {
+            logger.warn("GET request to {} failed: {}", uri, e.getMessage());
         }
         return null;
     }
 
-    public String getFromApiAsString(String uri) {
+    public <T> CompletableFuture<T> getFromApiAsync(String uri, Class<T> dtoClass) {
+        return getFromApiAsync(uri, dtoClass, DEFAULT_TIMEOUT);
+    }
+
+    // Completer med null ved status != 200 og exceptionally ved netværksfejl eller timeout
+    public <T> CompletableFuture<T> getFromApiAsync(String uri, Class<T> dtoClass, Duration timeout) {
+        HttpRequest request;
         try {
-            HttpClient client = HttpClient.newHttpClient();
+            request = buildRequest(uri, timeout);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
 
-            HttpRequest request = HttpRequest
-                    .newBuilder()
-                    .header("Accept", "application/json")
-                    .uri(new URI(uri))
-                    .GET()
-                    .build();
+        CompletableFuture<HttpResponse<InputStream>> exchange = client.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream());
+        BodyReader bodyReader = new BodyReader();
+        CompletableFuture<T> result = exchange
+                // Body parses direkte fra streamen af Jackson - aldrig materialiseret som String
+                .thenApplyAsync(response -> bodyReader.read(response, () -> readBody(uri, response, dtoClass)), ioExecutor)
+                // Dækker også tiden for at læse body, som request timeout ikke gør
+                .orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        // Afbryd selve HTTP kaldet ved timeout eller hvis kalderen annullerer. Request timeout stopper kun
+        // ventetiden på headers, så en body der er ved at blive læst skal lukkes for sig
+        result.whenComplete((value, error) -> {
+            if (error != null) {
+                exchange.cancel(true);
+                bodyReader.abort();
+            }
+        });
+        return result;
+    }
 
-            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+    public String getFromApiAsString(String uri) {
+        try {
+            HttpResponse<String> response = client.send(buildRequest(uri, DEFAULT_TIMEOUT), HttpResponse.BodyHandlers.ofString());
 
             if (response.statusCode() == 200) {
                 return response.body();
             } else {
-                System.out.println("GET request failed. Status code: " + response.statusCode());
+                logger.warn("GET request to {} failed. Status code: {}", uri, response.statusCode());
             }
-        } catch (Exception e) {
-            e.printStackTrace();
+        } catch (IOException | IllegalArgumentException e) {
+            logger.warn("GET request to {} failed: {}", uri, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
         return null;
     }
 
-    public <T> List<T> getFromApiList(List<String> endpoints, Class<T> dto) {
-        List<T> responses = new ArrayList<>();
-        List<Callable<T>> tasks = new ArrayList<>();
-        ExecutorService executorService = createThreadPool(endpoints.size());
+    public <T> List<FetchResult<T>> getFromApiList(List<String> endpoints, Class<T> dto) {
+        return getFromApiList(endpoints, dto, DEFAULT_BATCH_DEADLINE, true);
+    }
 
+    // Fan-out uden en tråd per kald: alle requests kører async på den delte klient, begrænset per upstream host.
+    // Når deadline rammer (eller et kald fejler og cancelOnFailure er sat) annulleres resten,
+    // og hvert endpoint får sit eget resultat eller sin egen fejl i stedet for at hele batchen fejler.
+    public <T> List<FetchResult<T>> getFromApiList(List<String> endpoints, Class<T> dto, Duration deadline, boolean cancelOnFailure) {
+        List<CompletableFuture<T>> futures = new ArrayList<>();
         for (String endpoint : endpoints) {
-            tasks.add(() -> getFromApi(endpoint, dto));
+            futures.add(limiterFor(endpoint).submit(() -> getFromApiAsync(endpoint, dto)));
+        }
+
+        AtomicReference<String> cancelReason = new AtomicReference<>();
+        if (cancelOnFailure) {
+            for (int i = 0; i < futures.size(); i++) {
+                String endpoint = endpoints.get(i);
+                futures.get(i).whenComplete((value, error) -> {
+                    if ((error != null || value == null) && !(error instanceof CancellationException)) {
+                        cancelAll(futures, cancelReason, "Cancelled after " + endpoint + " failed");
+                    }
+                });
+            }
         }
 
         try {
-            List<Future<T>> futures = executorService.invokeAll(tasks);
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                    .get(deadline.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            cancelAll(futures, cancelReason, "Cancelled after batch deadline of " + deadline.toMillis() + " ms");
+        } catch (ExecutionException | CancellationException e) {
+            // Fejl rapporteres per endpoint nedenfor
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancelAll(futures, cancelReason, "Cancelled because the calling thread was interrupted");
+        }
 
-            for (Future<T> future : futures) {
-                responses.add(future.get());
+        List<FetchResult<T>> results = new ArrayList<>();
+        for (int i = 0; i < futures.size(); i++) {
+            results.add(toResult(endpoints.get(i), futures.get(i), cancelReason.get()));
+        }
+        return results;
+    }
+
+    private static <T> void cancelAll(List<CompletableFuture<T>> futures, AtomicReference<String> cancelReason, String reason) {
+        // Kun den første årsag gemmes - resten af annulleringerne er følger af den.
+        // Bagfra, så kald der venter i kø er annulleret før de kørende giver deres plads videre til dem
+        if (cancelReason.compareAndSet(null, reason)) {
+            for (int i = futures.size() - 1; i >= 0; i--) {
+                futures.get(i).cancel(true);
             }
-        } catch (InterruptedException | ExecutionException e) {
-            throw new RuntimeException(e);
-        } finally {
-            executorService.shutdown();
         }
+    }
+
+    private static <T> FetchResult<T> toResult(String endpoint, CompletableFuture<T> future, String cancelReason) {
+        if (future.isCancelled()) {
+            return FetchResult.failure(endpoint, cancelReason != null ? cancelReason : "Cancelled");
+        }
+        try {
+            T value = future.getNow(null);
+            return value != null
+                    ? FetchResult.success(endpoint, value)
+                    : FetchResult.failure(endpoint, "No data returned");
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            String message = cause instanceof TimeoutException ? "Timed out" : cause.getMessage();
+            return FetchResult.failure(endpoint, message != null ? message : cause.getClass().getSimpleName());
+        }
+    }
 
-        return responses;
+    private static HostLimiter limiterFor(String endpoint) {
+        String host;
+        try {
+            host = URI.create(endpoint).getHost();
+        } catch (IllegalArgumentException e) {
+            host = null;
+        }
+        return hostLimiters.computeIfAbsent(host == null ? "" : host, h -> new HostLimiter(MAX_CONCURRENT_PER_HOST));
     }
 
-    private static ExecutorService createThreadPool(int threadPoolSize) {
-        int cores = Runtime.getRuntime().availableProcessors();
-        return Executors.newFixedThreadPool(Math.min(threadPoolSize, cores));
+    private static HttpRequest buildRequest(String uri, Duration timeout) {
+        return HttpRequest
+                .newBuilder()
+                .header("Accept", "application/json")
+                .uri(URI.create(uri))
+                .timeout(timeout)
+                .GET()
+                .build();
+    }
+
+    private static <T> T readBody(String uri, HttpResponse<InputStream> response, Class<T> dtoClass) {
+        try (InputStream body = response.body()) {
+            if (response.statusCode() == 200) {
+                return objectMapper.readValue(body, dtoClass);
+            }
+            logger.warn("GET request to {} failed. Status code: {}", uri, response.statusCode());
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Læsningen af én response body. Ved timeout eller annullering lukkes streamen, og den læsende tråd afbrydes,
+    // så den ikke bliver ved med at læse fra en langsom server efter at future'en er færdig
+    private static class BodyReader {
+        private InputStream stream;
+        private Thread reader;
+        private boolean aborted;
+
+        <T> T read(HttpResponse<InputStream> response, Supplier<T> readBody) {
+            synchronized (this) {
+                if (aborted) {
+                    closeQuietly(response.body());
+                    throw new CancellationException("Aborted before the body was read");
+                }
+                stream = response.body();
+                reader = Thread.currentThread();
+            }
+            try {
+                return readBody.get();
+            } finally {
+                synchronized (this) {
+                    reader = null;
+                }
+            }
+        }
+
+        synchronized void abort() {
+            aborted = true;
+            if (stream != null) {
+                closeQuietly(stream);
+            }
+            if (reader != null) {
+                reader.interrupt();
+            }
+        }
+
+        private static void closeQuietly(InputStream stream) {
+            try {
+                stream.close();
+            } catch (IOException e) {
+                logger.debug("Could not close response body: {}", e.getMessage());
+            }
+        }
+    }
+
+    // Global grænse for samtidige kald mod én host. Kald ud over grænsen venter i kø uden at holde en tråd
+    private static class HostLimiter {
+        private final int maxConcurrent;
+        private final Queue<Runnable> waiting = new ArrayDeque<>();
+        private int active = 0;
+        private boolean draining = false;
+
+        HostLimiter(int maxConcurrent) {
+            this.maxConcurrent = maxConcurrent;
+        }
+
+        <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> task) {
+            CompletableFuture<T> result = new CompletableFuture<>();
+            Runnable start = () -> {
+                // Annulleret mens den ventede i kø - start aldrig kaldet
+                if (result.isDone()) {
+                    release();
+                    return;
+                }
+                CompletableFuture<T> call;
+                try {
+                    call = task.get();
+                } catch (RuntimeException e) {
+                    // Fejler kaldet før det kommer i gang, skal pladsen stadig gives tilbage
+                    release();
+                    result.completeExceptionally(e);
+                    return;
+                }
+                result.whenComplete((value, error) -> {
+                    if (result.isCancelled()) {
+                        call.cancel(true);
+                    }
+                });
+                call.whenComplete((value, error) -> {
+                    release();
+                    if (error != null) {
+                        result.completeExceptionally(error);
+                    } else {
+                        result.complete(value);
+                    }
+                });
+            };
+
+            synchronized (this) {
+                waiting.add(start);
+            }
+            drain();
+            return result;
+        }
+
+        private void release() {
+            synchronized (this) {
+                active--;
+            }
+            drain();
+        }
+
+        // Starter ventende kald så længe der er plads. Kun én tråd dræner ad gangen, og en release undervejs
+        // (et annulleret eller synkront afsluttet kald) fanges af løkken i stedet for at rekursere - en lang kø
+        // af annullerede kald kan ellers sprænge stakken
+        private void drain() {
+            synchronized (this) {
+                if (draining) {
+                    return;
+                }
+                draining = true;
+            }
+            while (true) {
+                Runnable next;
+                synchronized (this) {
+                    if (active >= maxConcurrent || waiting.isEmpty()) {
+                        draining = false;
+                        return;
+                    }
+                    next = waiting.poll();
+                    active++;
+                }
+                next.run();
+            }
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,444 @@
+package app.services;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Purpose: In-memory inverted index from ingredient id to the recipes that use it, for
+ * "contains all of", "contains any of" and "can be made from only these" queries without joins.
+ * Every posting list is a sorted primitive int array of recipe ids, so the set operations are linear merges.
+ * A reverse table (recipe id -> sorted ingredient ids) makes incremental updates and the "only" check cheap.
+ * The index is loaded from the database on first use and kept in sync by the DAOs after each commit
+ */
+public class IngredientIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(IngredientIndex.class);
+    private static final int[] EMPTY = new int[0];
+    private static final int LOAD_FETCH_SIZE = 10_000;
+    private static final int REFRESH_STRIPES = 64;
+    private static IngredientIndex instance;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Serialiserer refreshRecipe per recipe (stribet på recipe id)
+    private final ReentrantLock[] refreshLocks = new ReentrantLock[REFRESH_STRIPES];
+
+    // Indekseret på ingredient id: postings[i][0..postingSizes[i]) er sorterede recipe ids
+    private int[][] postings = new int[0][];
+    private int[] postingSizes = new int[0];
+    // Indekseret på recipe id: sorterede, unikke ingredient ids (null = ingen ingredients)
+    private int[][] recipeIngredients = new int[0][];
+    private volatile boolean loaded = false;
+
+    public IngredientIndex() {
+        for (int i = 0; i < refreshLocks.length; i++) {
+            refreshLocks[i] = new ReentrantLock();
+        }
+    }
+
+    public static synchronized IngredientIndex getInstance() {
+        if (instance == null) {
+            instance = new IngredientIndex();
+        }
+        return instance;
+    }
+
+    // Læser alle recipe/ingredient par én gang. Writes der committer imens venter på write locken
+    // og lægges ovenpå bagefter - alle opdateringer er idempotente
+    public void ensureLoaded(EntityManagerFactory emf) {
+        if (loaded) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (loaded) {
+                return;
+            }
+            long start = System.nanoTime();
+            clear();
+            int pairs = load(emf);
+            loaded = true;
+            logger.info("Ingredient index loaded: {} recipe ingredients in {} ms", pairs, (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Markerer indekset som indlæst uden at læse databasen - til tests og benchmarks, der selv lægger data ind med setRecipe
+    public void initializeEmpty() {
+        lock.writeLock().lock();
+        try {
+            clear();
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Tømmer indekset, så det læses forfra ved næste forespørgsel - bruges når databasen ændres uden om DAO'erne
+    public void reset() {
+        lock.writeLock().lock();
+        try {
+            loaded = false;
+            clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    // Erstatter recipe's ingredients i indekset. Kun forskellen mellem gammel og ny liste røres
+    public void setRecipe(int recipeId, int[] ingredientIds) {
+        int[] ids = Arrays.stream(ingredientIds).distinct().sorted().toArray();
+        lock.writeLock().lock();
+        try {
+            // Ikke indlæst endnu: den kommende load læser den committede tilstand fra databasen
+            if (loaded) {
+                setRecipeLocked(recipeId, ids);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Læser recipe's ingredients fra databasen og sætter dem. Kaldes efter commit i stedet for setRecipe med
+    // transaktionens egen kopi af listen: to samtidige writes til samme recipe kan ellers committe i én rækkefølge
+    // og opdatere indekset i den modsatte, så det ældste snapshot vinder. Læsning og opdatering sker under en lås
+    // per recipe, så den sidste opdatering altid bygger på en læsning efter alle commits der er sket før den.
+    // Der læses også når indekset ikke er indlæst: en load kan være i gang med et snapshot fra før commit,
+    // og setRecipe venter på load'ens write lock og lægger de nyere rækker ovenpå bagefter
+    public void refreshRecipe(EntityManagerFactory emf, int recipeId) {
+        ReentrantLock refreshLock = refreshLocks[Math.floorMod(recipeId, refreshLocks.length)];
+        refreshLock.lock();
+        try (EntityManager em = emf.createEntityManager()) {
+            int[] ids = em.createQuery(
+                            "SELECT ri.ingredient.id FROM RecipeIngredient ri WHERE ri.recipe.id = :recipeId AND ri.ingredient IS NOT NULL",
+                            Integer.class)
+                    .setParameter("recipeId", recipeId)
+                    .getResultStream().mapToInt(Integer::intValue).toArray();
+            setRecipe(recipeId, ids);
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    public void removeRecipe(int recipeId) {
+        setRecipe(recipeId, EMPTY);
+    }
+
+    public void removeIngredient(int ingredientId) {
+        lock.writeLock().lock();
+        try {
+            if (!loaded || ingredientId < 0 || ingredientId >= postings.length || postings[ingredientId] == null) {
+                return;
+            }
+            int[] recipes = postings[ingredientId];
+            for (int i = 0; i < postingSizes[ingredientId]; i++) {
+                int recipeId = recipes[i];
+                int[] remaining = without(recipeIngredients[recipeId], ingredientId);
+                recipeIngredients[recipeId] = remaining.length == 0 ? null : remaining;
+            }
+            postings[ingredientId] = null;
+            postingSizes[ingredientId] = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Recipe ids (ascending) that match every given filter. An empty filter is ignored.
+     * @param all  recipes containing all of these ingredients
+     * @param any  recipes containing at least one of these ingredients
+     * @param only recipes whose ingredients are all in this set (recipes without ingredients never match)
+     */
+    public int[] findRecipes(int[] all, int[] any, int[] only) {
+        lock.readLock().lock();
+        try {
+            int[] result = null;
+            if (all.length > 0) {
+                result = containingAll(all);
+            }
+            if (any.length > 0) {
+                int[] union = containingAny(any);
+                result = result == null ? union : intersect(result, result.length, union, union.length);
+            }
+            if (only.length > 0) {
+                int[] makeable = makeableFrom(only);
+                result = result == null ? makeable : intersect(result, result.length, makeable, makeable.length);
+            }
+            return result == null ? EMPTY : result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int[] containingAll(int[] ingredientIds) {
+        // Mindste posting list først, så mellemresultatet er så lille som muligt fra starten
+        // Størrelse og id pakkes i én long, så der kan sorteres uden boxing
+        long[] bySize = Arrays.stream(ingredientIds).distinct()
+                .mapToLong(id -> ((long) postingSize(id) << 32) | (id & 0xFFFFFFFFL))
+                .sorted()
+                .toArray();
+
+        int first = (int) bySize[0];
+        int[] result = Arrays.copyOf(posting(first), postingSize(first));
+        for (int i = 1; i < bySize.length && result.length > 0; i++) {
+            int ingredientId = (int) bySize[i];
+            result = intersect(result, result.length, posting(ingredientId), postingSize(ingredientId));
+        }
+        return result;
+    }
+
+    private int[] containingAny(int[] ingredientIds) {
+        if (ingredientIds.length <= 2) {
+            int[] result = EMPTY;
+            for (int ingredientId : ingredientIds) {
+                result = union(result, result.length, posting(ingredientId), postingSize(ingredientId));
+            }
+            return result;
+        }
+        // Mange lister: sæt bits i et bitmap over recipe ids i stedet for at merge parvist igen og igen
+        long[] bits = new long[(recipeIngredients.length >> 6) + 1];
+        int total = 0;
+        for (int ingredientId : ingredientIds) {
+            int[] list = posting(ingredientId);
+            int size = postingSize(ingredientId);
+            for (int i = 0; i < size; i++) {
+                bits[list[i] >> 6] |= 1L << list[i];
+            }
+            total += size;
+        }
+        int[] result = new int[total];
+        int count = 0;
+        for (int word = 0; word < bits.length; word++) {
+            long value = bits[word];
+            while (value != 0) {
+                result[count++] = (word << 6) + Long.numberOfTrailingZeros(value);
+                value &= value - 1;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private int[] makeableFrom(int[] pantry) {
+        int[] sortedPantry = Arrays.stream(pantry).distinct().sorted().toArray();
+        int[] candidates = containingAny(sortedPantry);
+        int[] result = new int[candidates.length];
+        int size = 0;
+        for (int recipeId : candidates) {
+            if (isSubset(recipeIngredients[recipeId], sortedPantry)) {
+                result[size++] = recipeId;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    // Protected så tests kan holde en load åben og lade en refresh komme imellem
+    protected int load(EntityManagerFactory emf) {
+        int pairs = 0;
+        try (EntityManager em = emf.createEntityManager()) {
+            // PostgreSQL driveren bruger kun fetch size (cursor) inde i en transaktion
+            em.getTransaction().begin();
+            try (Stream<Object[]> rows = em.createQuery(
+                            "SELECT ri.recipe.id, ri.ingredient.id FROM RecipeIngredient ri " +
+                            "WHERE ri.recipe IS NOT NULL AND ri.ingredient IS NOT NULL " +
+                            "ORDER BY ri.recipe.id, ri.ingredient.id", Object[].class)
+                    .setHint("org.hibernate.fetchSize", LOAD_FETCH_SIZE)
+                    .setHint("org.hibernate.readOnly", true)
+                    .getResultStream()) {
+                // Rækkerne kommer sorteret på recipe id, så hver recipe samles i én buffer og postings vokser kun i enden
+                int currentRecipe = -1;
+                int[] buffer = new int[16];
+                int size = 0;
+                for (Object[] row : (Iterable<Object[]>) rows::iterator) {
+                    int recipeId = (Integer) row[0];
+                    int ingredientId = (Integer) row[1];
+                    if (recipeId != currentRecipe) {
+                        if (size > 0) {
+                            setRecipeLocked(currentRecipe, distinctSorted(buffer, size));
+                        }
+                        currentRecipe = recipeId;
+                        size = 0;
+                    }
+                    if (size == buffer.length) {
+                        buffer = Arrays.copyOf(buffer, size * 2);
+                    }
+                    buffer[size++] = ingredientId;
+                    pairs++;
+                }
+                if (size > 0) {
+                    setRecipeLocked(currentRecipe, distinctSorted(buffer, size));
+                }
+            }
+            em.getTransaction().commit();
+        }
+        return pairs;
+    }
+
+    private void setRecipeLocked(int recipeId, int[] newIds) {
+        int[] oldIds = recipeId < recipeIngredients.length && recipeIngredients[recipeId] != null
+                ? recipeIngredients[recipeId] : EMPTY;
+        int i = 0;
+        int j = 0;
+        while (i < oldIds.length || j < newIds.length) {
+            if (j == newIds.length || (i < oldIds.length && oldIds[i] < newIds[j])) {
+                removePosting(oldIds[i++], recipeId);
+            } else if (i == oldIds.length || newIds[j] < oldIds[i]) {
+                addPosting(newIds[j++], recipeId);
+            } else {
+                i++;
+                j++;
+            }
+        }
+        if (recipeId >= recipeIngredients.length) {
+            if (newIds.length == 0) {
+                return;
+            }
+            recipeIngredients = Arrays.copyOf(recipeIngredients, Math.max(recipeId + 1, recipeIngredients.length * 3 / 2));
+        }
+        recipeIngredients[recipeId] = newIds.length == 0 ? null : newIds;
+    }
+
+    private void addPosting(int ingredientId, int recipeId) {
+        if (ingredientId >= postings.length) {
+            int capacity = Math.max(ingredientId + 1, postings.length * 3 / 2);
+            postings = Arrays.copyOf(postings, capacity);
+            postingSizes = Arrays.copyOf(postingSizes, capacity);
+        }
+        int[] list = postings[ingredientId];
+        int size = postingSizes[ingredientId];
+        if (list == null) {
+            list = new int[4];
+        }
+        int position = Arrays.binarySearch(list, 0, size, recipeId);
+        if (position >= 0) {
+            return;
+        }
+        position = -position - 1;
+        if (size == list.length) {
+            list = Arrays.copyOf(list, size + (size >> 1) + 1);
+        }
+        System.arraycopy(list, position, list, position + 1, size - position);
+        list[position] = recipeId;
+        postings[ingredientId] = list;
+        postingSizes[ingredientId] = size + 1;
+    }
+
+    private void removePosting(int ingredientId, int recipeId) {
+        if (ingredientId >= postings.length || postings[ingredientId] == null) {
+            return;
+        }
+        int[] list = postings[ingredientId];
+        int size = postingSizes[ingredientId];
+        int position = Arrays.binarySearch(list, 0, size, recipeId);
+        if (position < 0) {
+            return;
+        }
+        System.arraycopy(list, position + 1, list, position, size - position - 1);
+        postingSizes[ingredientId] = size - 1;
+    }
+
+    private int[] posting(int ingredientId) {
+        return ingredientId >= 0 && ingredientId < postings.length && postings[ingredientId] != null
+                ? postings[ingredientId] : EMPTY;
+    }
+
+    private int postingSize(int ingredientId) {
+        return ingredientId >= 0 && ingredientId < postingSizes.length ? postingSizes[ingredientId] : 0;
+    }
+
+    private void clear() {
+        postings = new int[0][];
+        postingSizes = new int[0];
+        recipeIngredients = new int[0][];
+    }
+
+    static int[] intersect(int[] a, int aSize, int[] b, int bSize) {
+        int[] result = new int[Math.min(aSize, bSize)];
+        int i = 0;
+        int j = 0;
+        int size = 0;
+        while (i < aSize && j < bSize) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[size++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    static int[] union(int[] a, int aSize, int[] b, int bSize) {
+        int[] result = new int[aSize + bSize];
+        int i = 0;
+        int j = 0;
+        int size = 0;
+        while (i < aSize || j < bSize) {
+            if (j == bSize || (i < aSize && a[i] < b[j])) {
+                result[size++] = a[i++];
+            } else if (i == aSize || b[j] < a[i]) {
+                result[size++] = b[j++];
+            } else {
+                result[size++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    // Begge arrays er sorterede - ét gennemløb
+    private static boolean isSubset(int[] sub, int[] set) {
+        if (sub == null) {
+            return false;
+        }
+        int j = 0;
+        for (int value : sub) {
+            while (j < set.length && set[j] < value) {
+                j++;
+            }
+            if (j == set.length || set[j] != value) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int[] without(int[] ids, int value) {
+        if (ids == null) {
+            return EMPTY;
+        }
+        int position = Arrays.binarySearch(ids, value);
+        if (position < 0) {
+            return ids;
+        }
+        int[] result = new int[ids.length - 1];
+        System.arraycopy(ids, 0, result, 0, position);
+        System.arraycopy(ids, position + 1, result, position, ids.length - position - 1);
+        return result;
+    }
+
+    private static int[] distinctSorted(int[] buffer, int size) {
+        int[] result = new int[size];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (count == 0 || result[count - 1] != buffer[i]) {
+                result[count++] = buffer[i];
+            }
+        }
+        return count == size ? result : Arrays.copyOf(result, count);
+    }
+}
@@ -2,18 +2,56 @@ package app.services;
 
 import app.dtos.ServiceDTOs.NutritionDTO;
 import app.dtos.ServiceDTOs.NutritionListDTO;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.List;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 public class NutritionService {
+    private static final Logger logger = LoggerFactory.getLogger(NutritionService.class);
+    private static final long MAX_CACHED_SLUGS = 10_000;
+    // Nutrition data ændrer sig sjældent, men en ukendt slug kan blive oprettet hos provideren
+    private static final Duration KNOWN_SLUG_TTL = Duration.ofHours(6);
+    private static final Duration UNKNOWN_SLUG_TTL = Duration.ofMinutes(10);
+    // Øvre grænse for hvor længe en request tråd venter på nutrition data
+    private static final Duration LOOKUP_TIMEOUT = Duration.ofSeconds(5);
+    private static NutritionService instance;
+
     private final String endpoint = "https://apiprovider.cphbusinessapps.dk/api/v1/ingredients/nutrition?slugs=";
     private final FetchTools fetchTools;
 
+    // Optional.empty() er en cachet "ukendt slug" (negative caching).
+    // Async cache deler in-flight loads, så samtidige cache misses på samme slug giver kun ét kald (single-flight)
+    private final AsyncLoadingCache<String, Optional<NutritionDTO>> cache;
+
     public NutritionService(FetchTools fetchTools) {
         this.fetchTools = fetchTools;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(MAX_CACHED_SLUGS)
+                .expireAfter(new SlugExpiry())
+                .recordStats()
+                .buildAsync(new SlugLoader());
+    }
+
+    // Delt instans så cachen og dens statistik er den samme for alle controllers
+    public static synchronized NutritionService getInstance() {
+        if (instance == null) {
+            instance = new NutritionService(new FetchTools());
+        }
+        return instance;
     }
 
     public List<NutritionDTO> getNutrition(List<String> slugs) {
@@ -21,6 +59,44 @@ public class NutritionService {
             return new ArrayList<>();
         }
 
+        Set<String> keys = new LinkedHashSet<>();
+        slugs.forEach(slug -> keys.add(slug.toLowerCase()));
+
+        try {
+            // Kun de slugs der mangler i cachen bliver hentet fra API'et - i ét samlet kald
+            Map<String, Optional<NutritionDTO>> result = getNutritionAsync(keys)
+                    .get(LOOKUP_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+            return result.values().stream()
+                    .flatMap(Optional::stream)
+                    .toList();
+        } catch (ExecutionException | TimeoutException e) {
+            logger.warn("Could not fetch nutrition data for slugs {}: {}", keys, e.getMessage());
+            return new ArrayList<>();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new ArrayList<>();
+        }
+    }
+
+    public CompletableFuture<Map<String, Optional<NutritionDTO>>> getNutritionAsync(Set<String> slugs) {
+        return cache.getAll(slugs);
+    }
+
+    public Map<String, Object> getCacheStatistics() {
+        CacheStats stats = cache.synchronous().stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("size", cache.synchronous().estimatedSize());
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("hitRatio", stats.hitRate());
+        result.put("loadSuccesses", stats.loadSuccessCount());
+        result.put("loadFailures", stats.loadFailureCount());
+        result.put("averageLoadMillis", stats.averageLoadPenalty() / 1_000_000.0);
+        result.put("evictions", stats.evictionCount());
+        return result;
+    }
+
+    private CompletableFuture<NutritionListDTO> fetch(Collection<? extends String> slugs) {
         // URL encode hver slug og join med komma
         String joinedSlugs = slugs.stream()
                 .map(slug -> URLEncoder.encode(slug, StandardCharsets.UTF_8))
@@ -28,10 +104,55 @@ public class NutritionService {
                 .orElse("");
 
         // API returnerer data wrapped i {"data": [...]}
-        NutritionListDTO nutritionListDTO = fetchTools.getFromApi(endpoint + joinedSlugs, NutritionListDTO.class);
-        if (nutritionListDTO == null || nutritionListDTO.getNutritionDTOS() == null) {
-            return new ArrayList<>();
+        return fetchTools.getFromApiAsync(endpoint + joinedSlugs, NutritionListDTO.class);
+    }
+
+    private class SlugLoader implements AsyncCacheLoader<String, Optional<NutritionDTO>> {
+
+        @Override
+        public CompletableFuture<Optional<NutritionDTO>> asyncLoad(String slug, Executor executor) {
+            return fetch(Set.of(slug)).thenApply(list -> toResult(Set.of(slug), list).get(slug));
+        }
+
+        // Ikke-blokerende - ingen tråd venter mens provideren svarer
+        @Override
+        public CompletableFuture<Map<String, Optional<NutritionDTO>>> asyncLoadAll(Set<? extends String> slugs, Executor executor) {
+            return fetch(slugs).thenApply(list -> toResult(slugs, list));
+        }
+
+        private Map<String, Optional<NutritionDTO>> toResult(Set<? extends String> slugs, NutritionListDTO nutritionListDTO) {
+            if (nutritionListDTO == null) {
+                // Fejl hos provideren må ikke caches som "ukendt slug" - Caffeine fjerner fejlede loads
+                throw new IllegalStateException("Nutrition provider did not return any data");
+            }
+
+            Map<String, Optional<NutritionDTO>> result = new HashMap<>();
+            slugs.forEach(slug -> result.put(slug, Optional.empty()));
+            if (nutritionListDTO.getNutritionDTOS() != null) {
+                // API returnerer slugs i lowercase, så vi matcher også med lowercase
+                nutritionListDTO.getNutritionDTOS().stream()
+                        .filter(dto -> dto.getSlug() != null && result.containsKey(dto.getSlug().toLowerCase()))
+                        .forEach(dto -> result.put(dto.getSlug().toLowerCase(), Optional.of(dto)));
+            }
+            return result;
+        }
+    }
+
+    private static class SlugExpiry implements Expiry<String, Optional<NutritionDTO>> {
+
+        @Override
+        public long expireAfterCreate(String slug, Optional<NutritionDTO> nutrition, long currentTime) {
+            return (nutrition.isPresent() ? KNOWN_SLUG_TTL : UNKNOWN_SLUG_TTL).toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String slug, Optional<NutritionDTO> nutrition, long currentTime, long currentDuration) {
+            return expireAfterCreate(slug, nutrition, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String slug, Optional<NutritionDTO> nutrition, long currentTime, long currentDuration) {
+            return currentDuration;
         }
-        return nutritionListDTO.getNutritionDTOS();
     }
 }
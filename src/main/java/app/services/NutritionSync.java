@@ -0,0 +1,114 @@
+package app.services;
+
+import app.config.HibernateConfig;
+import app.config.Settings;
+import app.daos.IngredientDAO;
+import app.dtos.ServiceDTOs.NutritionDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Purpose: Keep the stored ingredient nutrition, and with it the recipe nutrition totals, in line with the
+ * nutrition API. Runs on one daemon thread at startup and then every NUTRITION_SYNC_HOURS (default 6, 0 disables).
+ * Slugs are looked up in batches through NutritionService, and IngredientDAO.updateNutrition only recomputes
+ * the recipes of ingredients whose values actually changed.
+ */
+public class NutritionSync {
+    private static final Logger logger = LoggerFactory.getLogger(NutritionSync.class);
+    private static final int BATCH_SIZE = 50;
+    private static final Duration BATCH_TIMEOUT = Duration.ofSeconds(30);
+    private static NutritionSync instance;
+
+    private final IngredientDAO ingredientDAO;
+    private final NutritionService nutritionService;
+    private ScheduledExecutorService executor;
+
+    public NutritionSync(IngredientDAO ingredientDAO, NutritionService nutritionService) {
+        this.ingredientDAO = ingredientDAO;
+        this.nutritionService = nutritionService;
+    }
+
+    public static synchronized NutritionSync getInstance() {
+        if (instance == null) {
+            instance = new NutritionSync(new IngredientDAO(HibernateConfig.getEntityManagerFactory()), NutritionService.getInstance());
+        }
+        return instance;
+    }
+
+    public synchronized void start() {
+        int interval = Settings.intSetting("NUTRITION_SYNC_HOURS", "nutritionSyncHours", 6);
+        if (interval <= 0 || executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "nutrition-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::syncAllSafely, 0, interval, TimeUnit.HOURS);
+        logger.info("Nutrition sync every {} hour(s)", interval);
+    }
+
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    // Fx lige efter en ingredient er oprettet eller har fået ny slug. Kører på sync tråden og gør intet hvis den er slået fra
+    public synchronized void requestSync(String slug) {
+        if (executor != null && slug != null && !slug.isBlank()) {
+            executor.execute(() -> sync(List.of(slug.toLowerCase())));
+        }
+    }
+
+    public int syncAll() {
+        return sync(ingredientDAO.findAllSlugs());
+    }
+
+    private void syncAllSafely() {
+        try {
+            long start = System.nanoTime();
+            int changed = syncAll();
+            logger.info("Nutrition sync: {} ingredient(s) changed in {} ms", changed, (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException e) {
+            // En fejl må ikke stoppe de næste planlagte kørsler
+            logger.warn("Nutrition sync failed: {}", e.getMessage());
+        }
+    }
+
+    // Et batch der fejler hos provideren springes over, så gemte værdier aldrig ryddes pga. en fejl.
+    // En slug provideren ikke kender rydder derimod ingredient's nutrition
+    private int sync(List<String> slugs) {
+        int changed = 0;
+        for (int from = 0; from < slugs.size(); from += BATCH_SIZE) {
+            List<String> batch = slugs.subList(from, Math.min(from + BATCH_SIZE, slugs.size()));
+            try {
+                Map<String, Optional<NutritionDTO>> result = nutritionService.getNutritionAsync(new LinkedHashSet<>(batch))
+                        .get(BATCH_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+                Map<String, NutritionDTO> nutritionBySlug = new HashMap<>();
+                result.forEach((slug, nutrition) -> nutritionBySlug.put(slug, nutrition.orElse(null)));
+                changed += ingredientDAO.updateNutrition(nutritionBySlug);
+            } catch (ExecutionException | TimeoutException e) {
+                logger.warn("Could not fetch nutrition data for {} slug(s): {}", batch.size(), e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return changed;
+            }
+        }
+        return changed;
+    }
+}
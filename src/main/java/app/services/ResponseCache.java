@@ -0,0 +1,278 @@
+package app.services;
+
+import app.config.Settings;
+import app.enums.Category;
+import app.enums.Type;
+import app.utils.ConditionalGet;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.javalin.http.ContentType;
+import io.javalin.http.Context;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Purpose: Cache of the final JSON bytes for the public GET endpoints, which are the same for every caller.
+ * Bodies live in direct (off-heap) ByteBuffers, so a large cache does not grow the heap the GC has to scan.
+ * Entries are keyed by path and query string. Caffeine bounds the cache by total body size and evicts with
+ * W-TinyLFU, so a burst of one-off pages does not push out the popular ones.
+ * Every entry is tagged with the recipes, ingredients and list memberships it was built from, and the DAOs
+ * invalidate tags after each commit. Updating an ingredient therefore evicts every cached recipe and page that
+ * contains it, and nothing else. RESPONSE_CACHE_MB sets the size (default 64, 0 disables the cache).
+ */
+public class ResponseCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResponseCache.class);
+    private static final String X_CACHE = "X-Cache";
+    // Headers der er en del af svaret og derfor gemmes sammen med body
+    private static final List<String> CACHED_HEADERS = List.of("X-Next-Cursor");
+    private static ResponseCache instance;
+
+    private final Cache<String, CachedResponse> cache;
+    // Tag -> cache keys. Vedligeholdes under samme lås som Caffeine bruger for den enkelte key
+    private final Map<String, Set<String>> keysByTag = new ConcurrentHashMap<>();
+    // Puts tager read locken, invalidate write locken, så et put aldrig kan ske midt i en invalidering
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLong skippedPuts = new AtomicLong();
+
+    public ResponseCache(long maxBytes) {
+        this.cache = maxBytes <= 0 ? null : Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String key, CachedResponse response) -> response.body().capacity() + key.length())
+                // Kaldes synkront under key'ens lås, så tag indekset aldrig peger på en nyere værdi ved en fejl
+                .evictionListener((String key, CachedResponse response, RemovalCause cause) -> {
+                    if (key != null && response != null) {
+                        unindex(key, response);
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    public static synchronized ResponseCache getInstance() {
+        if (instance == null) {
+            long size = Settings.intSetting("RESPONSE_CACHE_MB", "responseCacheMb", 64);
+            instance = new ResponseCache(size * 1024 * 1024);
+            logger.info(size > 0 ? "Response cache: {} MB off-heap" : "Response cache disabled", size);
+        }
+        return instance;
+    }
+
+    public static String recipeTag(int id) {
+        return "recipe:" + id;
+    }
+
+    public static String ingredientTag(int id) {
+        return "ingredient:" + id;
+    }
+
+    // Lister med et filter får deres eget tag, så en ny recipe kun rammer de lister den kan optræde i
+    public static String recipeListTag(Category category) {
+        return "recipes:" + (category == null ? "*" : category.name());
+    }
+
+    public static String ingredientListTag(Type type) {
+        return "ingredients:" + (type == null ? "*" : type.name());
+    }
+
+    // Path + sorteret query string, eller null hvis requesten har parametre uden for de cachebare
+    public static String key(Context ctx, Set<String> cacheableParams) {
+        Map<String, List<String>> params = ctx.queryParamMap();
+        if (!cacheableParams.containsAll(params.keySet())) {
+            return null;
+        }
+        return ctx.path() + "?" + new TreeMap<>(params);
+    }
+
+    // Tages før data læses - et put med et stamp fra før en invalidering springes over, da data kan være forældet
+    public long stamp() {
+        return invalidations.get();
+    }
+
+    // Skriver det cachede svar (eller 304 ved en gyldig conditional request). False hvis key ikke er cachet
+    public boolean serve(Context ctx, String key) {
+        if (cache == null || key == null) {
+            return false;
+        }
+        CachedResponse response = cache.getIfPresent(key);
+        if (response == null) {
+            return false;
+        }
+        ctx.header(X_CACHE, "HIT");
+        if (response.etag() != null && ConditionalGet.hasConditions(ctx)
+                && ConditionalGet.notModified(ctx, response.etag(), response.lastModified())) {
+            ctx.status(304);
+            return true;
+        }
+        response.headers().forEach(ctx::header);
+        if (response.etag() != null) {
+            ConditionalGet.setValidators(ctx, response.etag(), response.lastModified());
+        }
+        ctx.status(200).contentType(ContentType.APPLICATION_JSON).result(new ByteBufferInputStream(response.body().duplicate()));
+        return true;
+    }
+
+    // Serialiserer body med Javalins JSON mapper, gemmer bytes og headers der allerede er sat på ctx, og skriver svaret.
+    // ETag og Last-Modified sættes af kalderen med ConditionalGet.setValidators før kaldet
+    public void put(Context ctx, String key, long stamp, Object body, Collection<String> tags) {
+        byte[] json = ctx.jsonMapper().toJsonString(body, body.getClass()).getBytes(StandardCharsets.UTF_8);
+        ctx.status(200).contentType(ContentType.APPLICATION_JSON).result(json);
+        if (cache == null || key == null) {
+            return;
+        }
+        ctx.header(X_CACHE, "MISS");
+
+        Map<String, String> headers = new LinkedHashMap<>();
+        for (String header : CACHED_HEADERS) {
+            String value = ctx.res().getHeader(header);
+            if (value != null) {
+                headers.put(header, value);
+            }
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(json.length).put(json).flip();
+        CachedResponse response = new CachedResponse(buffer.asReadOnlyBuffer(), ctx.res().getHeader("ETag"),
+                ConditionalGet.parseDate(ctx.res().getHeader("Last-Modified")), Map.copyOf(headers), Set.copyOf(tags));
+
+        lock.readLock().lock();
+        try {
+            if (invalidations.get() != stamp) {
+                skippedPuts.incrementAndGet();
+                return;
+            }
+            cache.asMap().compute(key, (k, previous) -> {
+                if (previous != null) {
+                    unindex(k, previous);
+                }
+                for (String tag : response.tags()) {
+                    keysByTag.computeIfAbsent(tag, t -> ConcurrentHashMap.newKeySet()).add(k);
+                }
+                return response;
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Kaldes af DAO'erne efter commit med de tags en write har ændret
+    public void invalidate(String... tags) {
+        invalidate(Arrays.asList(tags));
+    }
+
+    public void invalidate(Collection<String> tags) {
+        if (cache == null || tags.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            invalidations.incrementAndGet();
+            for (String tag : tags) {
+                Set<String> keys = keysByTag.remove(tag);
+                if (keys == null) {
+                    continue;
+                }
+                for (String key : keys) {
+                    cache.asMap().computeIfPresent(key, (k, response) -> {
+                        unindex(k, response);
+                        return null;
+                    });
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Tømmer cachen - bruges når databasen ændres uden om DAO'erne
+    public void reset() {
+        if (cache == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            invalidations.incrementAndGet();
+            cache.invalidateAll();
+            keysByTag.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", cache != null);
+        if (cache == null) {
+            return result;
+        }
+        CacheStats stats = cache.stats();
+        result.put("entries", cache.estimatedSize());
+        result.put("bytes", cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L));
+        result.put("maxBytes", cache.policy().eviction().map(eviction -> eviction.getMaximum()).orElse(0L));
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("hitRatio", stats.hitRate());
+        result.put("evictions", stats.evictionCount());
+        result.put("invalidations", invalidations.get());
+        result.put("skippedPuts", skippedPuts.get());
+        return result;
+    }
+
+    private void unindex(String key, CachedResponse response) {
+        for (String tag : response.tags()) {
+            Set<String> keys = keysByTag.get(tag);
+            if (keys != null) {
+                keys.remove(key);
+            }
+        }
+    }
+
+    private record CachedResponse(ByteBuffer body, String etag, Instant lastModified,
+                                  Map<String, String> headers, Set<String> tags) {
+    }
+
+    // Læser direkte fra off-heap bufferen, så body ikke kopieres til et byte array på heapen per request
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
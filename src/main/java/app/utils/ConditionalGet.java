@@ -0,0 +1,83 @@
+package app.utils;
+
+import io.javalin.http.Context;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Purpose: ETag/Last-Modified validators and If-None-Match/If-Modified-Since evaluation for single resource GETs.
+ * ETags are built from the entity's @Version column, so they change whenever the representation does. They are weak,
+ * because the same version is sent both as identity and as gzip/brotli encoded bytes, which a strong ETag must not share.
+ * If-None-Match takes precedence over If-Modified-Since, as in RFC 9110.
+ */
+public class ConditionalGet {
+
+    private static final String ETAG = "ETag";
+    private static final String LAST_MODIFIED = "Last-Modified";
+    private static final String IF_NONE_MATCH = "If-None-Match";
+    private static final String IF_MODIFIED_SINCE = "If-Modified-Since";
+
+    public static String etag(String resource, int id, long version) {
+        return "W/\"" + resource + "-" + id + "-" + version + "\"";
+    }
+
+    // Kun requests med validators behøver den billige version query før selve læsningen
+    public static boolean hasConditions(Context ctx) {
+        return ctx.header(IF_NONE_MATCH) != null || ctx.header(IF_MODIFIED_SINCE) != null;
+    }
+
+    public static void setValidators(Context ctx, String etag, Instant lastModified) {
+        ctx.header(ETAG, etag);
+        if (lastModified != null) {
+            ctx.header(LAST_MODIFIED, DateTimeFormatter.RFC_1123_DATE_TIME.format(lastModified.atZone(ZoneOffset.UTC)));
+        }
+    }
+
+    // Sætter validators og returnerer true hvis klientens kopi stadig er gyldig - kalderen svarer så 304 uden body
+    public static boolean notModified(Context ctx, String etag, Instant lastModified) {
+        setValidators(ctx, etag, lastModified);
+        String ifNoneMatch = ctx.header(IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            return matches(ifNoneMatch, etag);
+        }
+        Instant since = parseDate(ctx.header(IF_MODIFIED_SINCE));
+        if (since == null || lastModified == null) {
+            return false;
+        }
+        // Last-Modified har kun sekund præcision
+        return !lastModified.truncatedTo(ChronoUnit.SECONDS).isAfter(since);
+    }
+
+    // HTTP dato (RFC 1123) - null hvis den mangler eller er ugyldig, så en ugyldig dato ignoreres
+    public static Instant parseDate(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    // If-None-Match bruger weak comparison: W/ ignoreres på begge sider
+    private static boolean matches(String ifNoneMatch, String etag) {
+        String opaque = opaque(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || opaque(tag).equals(opaque)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String opaque(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+}
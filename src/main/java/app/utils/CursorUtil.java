@@ -0,0 +1,86 @@
+package app.utils;
+
+import app.security.exceptions.ApiException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Purpose: Encode/decode opaque keyset cursors and page sizes for the list endpoints
+ */
+public class CursorUtil {
+
+    public static final int DEFAULT_LIMIT = 100;
+    public static final int MAX_LIMIT = 500;
+    private static final String PREFIX = "id:";
+    private static final String KEYSET_PREFIX = "k:";
+
+    // Cursor for sider der er sorteret efter en anden kolonne end id - id bryder uafgjorte værdier
+    public record Keyset(String value, int id) {
+    }
+
+    public static String encode(int lastId) {
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString((PREFIX + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String encode(String lastValue, int lastId) {
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString((KEYSET_PREFIX + lastId + ":" + lastValue).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static Keyset decodeKeyset(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = decoded.indexOf(':', KEYSET_PREFIX.length());
+            if (!decoded.startsWith(KEYSET_PREFIX) || separator < 0) {
+                throw new IllegalArgumentException(cursor);
+            }
+            // Id står først, så værdien gerne må indeholde ':'
+            return new Keyset(decoded.substring(separator + 1),
+                    Integer.parseInt(decoded.substring(KEYSET_PREFIX.length(), separator)));
+        } catch (IllegalArgumentException e) {
+            throw new ApiException(400, "Invalid cursor: " + cursor);
+        }
+    }
+
+    // Accepterer både et opaque cursor fra X-Next-Cursor og et rå id (?after=42)
+    public static Integer decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            if (cursor.chars().allMatch(Character::isDigit)) {
+                return Integer.parseInt(cursor);
+            }
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!decoded.startsWith(PREFIX)) {
+                throw new IllegalArgumentException(cursor);
+            }
+            return Integer.parseInt(decoded.substring(PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new ApiException(400, "Invalid cursor: " + cursor);
+        }
+    }
+
+    // Manglende limit giver DEFAULT_LIMIT, for stor limit bliver skåret ned til MAX_LIMIT
+    public static int parseLimit(String limit) {
+        if (limit == null || limit.isBlank()) {
+            return DEFAULT_LIMIT;
+        }
+        try {
+            int value = Integer.parseInt(limit);
+            if (value <= 0) {
+                throw new ApiException(400, "Invalid limit: " + limit + ". Limit must be a positive integer.");
+            }
+            return Math.min(value, MAX_LIMIT);
+        } catch (NumberFormatException e) {
+            throw new ApiException(400, "Invalid limit: " + limit + ". Limit must be a positive integer.");
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package app.utils;
+
+import app.security.exceptions.ApiException;
+import io.javalin.http.Context;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Purpose: Parse the filter and sort query parameters shared by the list endpoints.
+ * Invalid values give a 400 with the parameter name, so clients can see which one was wrong.
+ */
+public class FilterParams {
+
+    // Kommaseparerede enum værdier, fx category=BREAKFAST,LUNCH. Tom parameter giver et tomt sæt
+    public static <E extends Enum<E>> Set<E> enumSet(Context ctx, String param, Class<E> type) {
+        String value = ctx.queryParam(param);
+        Set<E> result = EnumSet.noneOf(type);
+        if (value == null || value.isBlank()) {
+            return result;
+        }
+        for (String name : value.split(",")) {
+            if (name.isBlank()) {
+                continue;
+            }
+            try {
+                result.add(Enum.valueOf(type, name.trim().toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                throw new ApiException(400, "Invalid " + param + ": " + name.trim());
+            }
+        }
+        return result;
+    }
+
+    // Null hvis parameteren mangler eller er tom
+    public static String prefix(Context ctx, String param) {
+        String value = ctx.queryParam(param);
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    public static Integer nonNegativeInt(Context ctx, String param) {
+        String value = ctx.queryParam(param);
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            int number = Integer.parseInt(value.trim());
+            if (number < 0) {
+                throw new NumberFormatException(value);
+            }
+            return number;
+        } catch (NumberFormatException e) {
+            throw new ApiException(400, "Invalid " + param + ": " + value + ". Must be a non-negative integer.");
+        }
+    }
+
+    // direction=asc|desc, default asc
+    public static boolean descending(Context ctx) {
+        String value = ctx.queryParamAsClass("direction", String.class).getOrDefault("asc");
+        return switch (value.toLowerCase()) {
+            case "asc" -> false;
+            case "desc" -> true;
+            default -> throw new ApiException(400, "Invalid direction: " + value + ". Use asc or desc.");
+        };
+    }
+}
@@ -0,0 +1,57 @@
+package app.utils;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Purpose: Write a JSON array element by element straight to the response stream,
+ * so large listings never have to exist as one List or one String on the heap
+ */
+public class JsonStreamWriter {
+
+    private static final ObjectMapper objectMapper = new Utils().getObjectMapper();
+
+    private final JsonGenerator generator;
+    private boolean started = false;
+
+    public JsonStreamWriter(OutputStream outputStream) {
+        try {
+            this.generator = objectMapper.getFactory().createGenerator(outputStream);
+            // Javalin ejer response streamen - den skal ikke lukkes af Jackson
+            this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void write(Object value) {
+        try {
+            // Array startes først ved første element, så en fejl før streaming stadig kan give et normalt fejl-svar
+            start();
+            generator.writeObject(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void finish() {
+        try {
+            start();
+            generator.writeEndArray();
+            generator.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void start() throws IOException {
+        if (!started) {
+            generator.writeStartArray();
+            started = true;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package app.utils;
+
+import app.dtos.BulkResultDTO;
+import app.exceptions.DatabaseException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Purpose: Read NDJSON (one JSON object per line) from a stream line by line, validate each line and
+ * hand valid items to the DAO in chunks - one transaction per chunk. Only one chunk is held in memory,
+ * and the result keeps counters and a capped list of failed lines
+ */
+public class NdjsonImporter<T> {
+
+    public static final int CHUNK_SIZE = 1000;
+    private static final ObjectMapper objectMapper = new Utils().getObjectMapper();
+
+    private final ObjectReader reader;
+    private final Function<T, String> lineValidator;
+    private final Function<List<T>, Map<Integer, String>> chunkValidator;
+    private final Function<List<T>, List<Integer>> chunkWriter;
+
+    /**
+     * @param lineValidator  returns an error message for an invalid item, or null
+     * @param chunkValidator returns errors by index for items that need a database lookup to validate (e.g. references)
+     * @param chunkWriter    persists the items in one transaction and returns their ids in the same order
+     */
+    public NdjsonImporter(Class<T> type,
+                          Function<T, String> lineValidator,
+                          Function<List<T>, Map<Integer, String>> chunkValidator,
+                          Function<List<T>, List<Integer>> chunkWriter) {
+        this.reader = objectMapper.readerFor(type);
+        this.lineValidator = lineValidator;
+        this.chunkValidator = chunkValidator;
+        this.chunkWriter = chunkWriter;
+    }
+
+    public BulkResultDTO importFrom(InputStream in) throws IOException {
+        BulkResultDTO result = new BulkResultDTO();
+        List<T> chunk = new ArrayList<>(CHUNK_SIZE);
+        List<Integer> chunkLines = new ArrayList<>(CHUNK_SIZE);
+
+        BufferedReader lines = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        int lineNumber = 0;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            T item;
+            try {
+                item = reader.readValue(line);
+            } catch (JsonProcessingException e) {
+                result.failed(lineNumber, "Invalid JSON: " + e.getOriginalMessage());
+                continue;
+            }
+            String error = item == null ? "Empty line" : lineValidator.apply(item);
+            if (error != null) {
+                result.failed(lineNumber, error);
+                continue;
+            }
+            chunk.add(item);
+            chunkLines.add(lineNumber);
+            if (chunk.size() == CHUNK_SIZE) {
+                writeChunk(chunk, chunkLines, result);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            writeChunk(chunk, chunkLines, result);
+        }
+        return result;
+    }
+
+    private void writeChunk(List<T> chunk, List<Integer> chunkLines, BulkResultDTO result) {
+        Map<Integer, String> rejected = chunkValidator.apply(chunk);
+        List<T> accepted = new ArrayList<>(chunk.size());
+        List<Integer> acceptedLines = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            String error = rejected.get(i);
+            if (error != null) {
+                result.failed(chunkLines.get(i), error);
+            } else {
+                accepted.add(chunk.get(i));
+                acceptedLines.add(chunkLines.get(i));
+            }
+        }
+
+        if (!accepted.isEmpty()) {
+            try {
+                result.created(chunkWriter.apply(accepted).size());
+            } catch (DatabaseException e) {
+                // Hele chunken er rullet tilbage - alle dens linjer markeres som fejlet
+                for (Integer acceptedLine : acceptedLines) {
+                    result.failed(acceptedLine, "Not saved, chunk rolled back: " + e.getMessage());
+                }
+            }
+        }
+        chunk.clear();
+        chunkLines.clear();
+    }
+}
@@ -0,0 +1,121 @@
+package app.utils;
+
+import app.config.Settings;
+import app.security.exceptions.ApiException;
+import app.security.exceptions.ServiceUnavailableException;
+import org.mindrot.jbcrypt.BCrypt;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Purpose: Run BCrypt hashing and checking on a small bounded pool, so a burst of logins
+ * cannot occupy every request thread. When the queue is full the caller gets a 503 with Retry-After
+ */
+public class PasswordHasher {
+
+    private static final Logger logger = LoggerFactory.getLogger(PasswordHasher.class);
+    private static final int MIN_COST = 10;
+    private static final int MAX_COST = 14;
+    private static final int RETRY_AFTER_SECONDS = 1;
+    private static PasswordHasher instance;
+
+    private final ThreadPoolExecutor executor;
+    private final int cost;
+
+    // Public til tests, der skal bruge en lille pool og en fast cost. Appen bruger getInstance()
+    public PasswordHasher(int threads, int queueLimit, int cost) {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueLimit),
+                r -> {
+                    Thread thread = new Thread(r, "password-hasher-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.cost = cost;
+        logger.info("Password hashing on {} threads (queue limit {}), BCrypt cost {}", threads, queueLimit, cost);
+    }
+
+    public static synchronized PasswordHasher getInstance() {
+        if (instance == null) {
+            int threads = Settings.intSetting("HASH_THREADS", "hashThreads", Runtime.getRuntime().availableProcessors());
+            int queueLimit = Settings.intSetting("HASH_QUEUE_LIMIT", "hashQueueLimit", threads * 4);
+            instance = new PasswordHasher(threads, queueLimit, resolveCost());
+        }
+        return instance;
+    }
+
+    public String hash(String password) {
+        return run(() -> BCrypt.hashpw(password, BCrypt.gensalt(cost)));
+    }
+
+    public boolean verify(String password, String hash) {
+        return run(() -> BCrypt.checkpw(password, hash));
+    }
+
+    // Gemte hashes med en anden cost end den konfigurerede hashes igen ved næste login
+    public boolean needsRehash(String hash) {
+        return costOf(hash) != cost;
+    }
+
+    public int getCost() {
+        return cost;
+    }
+
+    private <T> T run(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            // Neutral besked: køen bruges af både login og register
+            throw new ServiceUnavailableException("Server is busy, try again shortly", RETRY_AFTER_SECONDS);
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Password hashing was interrupted", RETRY_AFTER_SECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new ApiException(500, "Password hashing failed");
+        }
+    }
+
+    // BCrypt hash format: $2a$10$... - cost er de to cifre efter version
+    static int costOf(String hash) {
+        try {
+            return Integer.parseInt(hash.substring(4, 6));
+        } catch (RuntimeException e) {
+            return -1;
+        }
+    }
+
+    // BCRYPT_COST låser cost fast. Ellers kalibreres den ved opstart, så et hash tager ca. BCRYPT_TARGET_MS
+    private static int resolveCost() {
+        int fixed = Settings.intSetting("BCRYPT_COST", "bcryptCost", 0);
+        if (fixed > 0) {
+            return Math.max(4, Math.min(31, fixed));
+        }
+        int targetMillis = Settings.intSetting("BCRYPT_TARGET_MS", "bcryptTargetMs", 250);
+
+        // Opvarmning så JIT ikke tæller med i målingen
+        BCrypt.hashpw("calibration", BCrypt.gensalt(6));
+        long start = System.nanoTime();
+        BCrypt.hashpw("calibration", BCrypt.gensalt(MIN_COST));
+        double measuredMillis = Math.max(1, (System.nanoTime() - start) / 1_000_000.0);
+
+        // Hver +1 i cost fordobler arbejdet
+        int extra = (int) Math.floor(Math.log(targetMillis / measuredMillis) / Math.log(2));
+        int cost = Math.max(MIN_COST, Math.min(MAX_COST, MIN_COST + extra));
+        logger.info("BCrypt cost {} took {} ms, calibrated to cost {} for a {} ms target",
+                MIN_COST, Math.round(measuredMillis), cost, targetMillis);
+        return cost;
+    }
+}
@@ -0,0 +1,168 @@
+package app.utils;
+
+import app.dtos.RecipeExportRowDTO;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * Purpose: Write the rows of the recipe export (ordered by recipe id) to a stream as they arrive,
+ * either as NDJSON (one recipe with its ingredients per line) or as CSV (one row per recipe ingredient).
+ * Only the current recipe id is kept between rows
+ */
+public abstract class RecipeExportWriter {
+
+    public static final String NDJSON = "ndjson";
+    public static final String CSV = "csv";
+
+    public static RecipeExportWriter create(String format, OutputStream outputStream) {
+        return switch (format) {
+            case NDJSON -> new Ndjson(outputStream);
+            case CSV -> new Csv(outputStream);
+            default -> throw new IllegalArgumentException("Unknown export format: " + format);
+        };
+    }
+
+    public void write(RecipeExportRowDTO row) {
+        try {
+            writeRow(row);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void finish() {
+        try {
+            finishRows();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    protected abstract void writeRow(RecipeExportRowDTO row) throws IOException;
+
+    protected abstract void finishRows() throws IOException;
+
+    private static class Ndjson extends RecipeExportWriter {
+        private static final ObjectMapper objectMapper = new Utils().getObjectMapper();
+
+        private final JsonGenerator generator;
+        private Integer currentRecipeId;
+
+        Ndjson(OutputStream outputStream) {
+            try {
+                this.generator = objectMapper.getFactory().createGenerator(outputStream);
+                // Javalin ejer response streamen - den skal ikke lukkes af Jackson
+                this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        protected void writeRow(RecipeExportRowDTO row) throws IOException {
+            if (!Objects.equals(row.getRecipeId(), currentRecipeId)) {
+                endRecipe();
+                currentRecipeId = row.getRecipeId();
+                generator.writeStartObject();
+                generator.writeNumberField("id", row.getRecipeId());
+                generator.writeStringField("name", row.getRecipeName());
+                generator.writeStringField("category", row.getCategory());
+                generator.writeStringField("description", row.getRecipeDescription());
+                generator.writeArrayFieldStart("ingredients");
+            }
+            if (row.getIngredientId() != null) {
+                generator.writeStartObject();
+                generator.writeNumberField("id", row.getIngredientId());
+                generator.writeStringField("name", row.getIngredientName());
+                generator.writeStringField("type", row.getIngredientType());
+                generator.writeNumberField("quantity", row.getQuantity());
+                generator.writeStringField("unit", row.getUnit());
+                generator.writeStringField("preparation", row.getPreparation());
+                generator.writeEndObject();
+            }
+        }
+
+        @Override
+        protected void finishRows() throws IOException {
+            endRecipe();
+            generator.flush();
+        }
+
+        private void endRecipe() throws IOException {
+            if (currentRecipeId != null) {
+                generator.writeEndArray();
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+            }
+        }
+    }
+
+    private static class Csv extends RecipeExportWriter {
+        private static final String HEADER = "recipe_id,recipe_name,category,recipe_description," +
+                "ingredient_id,ingredient_name,ingredient_type,quantity,unit,preparation";
+
+        private final Writer writer;
+
+        Csv(OutputStream outputStream) {
+            this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), 64 * 1024);
+            try {
+                writer.write(HEADER);
+                writer.write("\r\n");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        protected void writeRow(RecipeExportRowDTO row) throws IOException {
+            writer.write(String.valueOf(row.getRecipeId()));
+            writer.write(',');
+            writeField(row.getRecipeName());
+            writer.write(',');
+            writeField(row.getCategory());
+            writer.write(',');
+            writeField(row.getRecipeDescription());
+            writer.write(',');
+            writeField(row.getIngredientId() == null ? null : String.valueOf(row.getIngredientId()));
+            writer.write(',');
+            writeField(row.getIngredientName());
+            writer.write(',');
+            writeField(row.getIngredientType());
+            writer.write(',');
+            writeField(row.getQuantity() == null ? null : String.valueOf(row.getQuantity()));
+            writer.write(',');
+            writeField(row.getUnit());
+            writer.write(',');
+            writeField(row.getPreparation());
+            writer.write("\r\n");
+        }
+
+        @Override
+        protected void finishRows() throws IOException {
+            writer.flush();
+        }
+
+        // RFC 4180: felter med komma, anførselstegn eller linjeskift sættes i "" og " fordobles
+        private void writeField(String value) throws IOException {
+            if (value == null) {
+                return;
+            }
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+    }
+}
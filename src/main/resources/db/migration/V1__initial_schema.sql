@@ -0,0 +1,49 @@
+-- Udgangsskema - matcher entity mappings, så hibernate.hbm2ddl.auto=validate går igennem.
+-- Eksisterende databaser oprettet af hbm2ddl baselines på denne version i stedet for at køre den
+
+CREATE TABLE roles (
+    name varchar(20) NOT NULL PRIMARY KEY
+);
+
+CREATE TABLE users (
+    username varchar(25) NOT NULL PRIMARY KEY,
+    password varchar(255) NOT NULL
+);
+
+CREATE TABLE user_roles (
+    user_name varchar(25) NOT NULL REFERENCES users (username),
+    role_name varchar(20) NOT NULL REFERENCES roles (name),
+    PRIMARY KEY (user_name, role_name)
+);
+
+CREATE TABLE ingredients (
+    id integer GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name varchar(255) NOT NULL,
+    type varchar(255) NOT NULL,
+    description varchar(255) NOT NULL,
+    slug varchar(255)
+);
+
+CREATE INDEX idx_ingredients_type_id ON ingredients (type, id);
+
+CREATE TABLE recipes (
+    id integer GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name varchar(255) NOT NULL,
+    category varchar(255) NOT NULL,
+    description varchar(255) NOT NULL
+);
+
+CREATE INDEX idx_recipes_category_id ON recipes (category, id);
+
+CREATE TABLE recipes_ingredients (
+    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    recipe_id integer REFERENCES recipes (id),
+    ingredient_id integer REFERENCES ingredients (id),
+    quantity integer NOT NULL,
+    unit varchar(255),
+    preparation varchar(255)
+);
+
+-- Join-tabellens foreign keys bruges i alle ingredient opslag
+CREATE INDEX idx_recipes_ingredients_recipe_id ON recipes_ingredients (recipe_id);
+CREATE INDEX idx_recipes_ingredients_ingredient_id ON recipes_ingredients (ingredient_id);
@@ -0,0 +1,14 @@
+-- Ids tildeles nu af Hibernate fra sekvenser (pooled-lo, blokke á 50) i stedet for IDENTITY kolonner.
+-- Sekvenserne starter efter højeste eksisterende id og ejes af id kolonnen, så TRUNCATE ... RESTART IDENTITY nulstiller dem
+
+ALTER TABLE recipes ALTER COLUMN id DROP IDENTITY IF EXISTS;
+CREATE SEQUENCE recipes_seq START WITH 1 INCREMENT BY 50 OWNED BY recipes.id;
+SELECT setval('recipes_seq', COALESCE((SELECT MAX(id) FROM recipes), 0) + 1, false);
+
+ALTER TABLE ingredients ALTER COLUMN id DROP IDENTITY IF EXISTS;
+CREATE SEQUENCE ingredients_seq START WITH 1 INCREMENT BY 50 OWNED BY ingredients.id;
+SELECT setval('ingredients_seq', COALESCE((SELECT MAX(id) FROM ingredients), 0) + 1, false);
+
+ALTER TABLE recipes_ingredients ALTER COLUMN id DROP IDENTITY IF EXISTS;
+CREATE SEQUENCE recipes_ingredients_seq START WITH 1 INCREMENT BY 50 OWNED BY recipes_ingredients.id;
+SELECT setval('recipes_ingredients_seq', COALESCE((SELECT MAX(id) FROM recipes_ingredients), 0) + 1, false);
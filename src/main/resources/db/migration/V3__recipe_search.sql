@@ -0,0 +1,18 @@
+-- Fuldtekst søgning i recipes. En generated column kan kun læse fra sin egen række, så ingredient navnene
+-- denormaliseres til recipes.ingredient_names (vedligeholdes af applikationen) og indgår derfra.
+-- Vægte: navn (A) > ingredients (B) > beskrivelse (C), som ts_rank bruger ved sortering
+
+ALTER TABLE recipes ADD COLUMN ingredient_names text;
+
+UPDATE recipes r SET ingredient_names = (
+    SELECT string_agg(i.name, ' ' ORDER BY i.name)
+    FROM recipes_ingredients ri
+    JOIN ingredients i ON i.id = ri.ingredient_id
+    WHERE ri.recipe_id = r.id);
+
+ALTER TABLE recipes ADD COLUMN search_vector tsvector GENERATED ALWAYS AS (
+    setweight(to_tsvector('english', coalesce(name, '')), 'A') ||
+    setweight(to_tsvector('english', coalesce(ingredient_names, '')), 'B') ||
+    setweight(to_tsvector('english', coalesce(description, '')), 'C')) STORED;
+
+CREATE INDEX idx_recipes_search_vector ON recipes USING GIN (search_vector);
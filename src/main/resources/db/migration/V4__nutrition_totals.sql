@@ -0,0 +1,24 @@
+-- Nutrition totaler per recipe. Ingredients får nutrition per 100 g (hentes af NutritionSync), og
+-- recipes_ingredients.quantity + unit omregnes til gram via unit_conversions (seedes af UnitConversionPopulator).
+-- Totalerne er denormaliseret på recipes og genberegnes af RecipeAggregates for de berørte recipes
+
+CREATE TABLE unit_conversions (
+    unit varchar(50) PRIMARY KEY,
+    grams double precision NOT NULL
+);
+
+ALTER TABLE ingredients
+    ADD COLUMN calories double precision,
+    ADD COLUMN protein double precision,
+    ADD COLUMN fat double precision,
+    ADD COLUMN carbs double precision;
+
+ALTER TABLE recipes
+    ADD COLUMN total_calories double precision,
+    ADD COLUMN total_protein double precision,
+    ADD COLUMN total_fat double precision,
+    ADD COLUMN total_carbs double precision;
+
+-- minCalories/maxCalories og sort=calories med og uden category filter
+CREATE INDEX idx_recipes_total_calories_id ON recipes (total_calories, id);
+CREATE INDEX idx_recipes_category_total_calories_id ON recipes (category, total_calories, id);
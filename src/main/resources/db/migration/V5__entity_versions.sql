@@ -0,0 +1,14 @@
+-- Optimistic locking og conditional GET (ETag/Last-Modified). version hæves af Hibernate ved hver UPDATE og
+-- af RecipeAggregates når en recipe's ingredients ændres. Eksisterende rækker starter på version 0
+
+ALTER TABLE recipes
+    ADD COLUMN version bigint NOT NULL DEFAULT 0,
+    ADD COLUMN updated_at timestamp(6) with time zone NOT NULL DEFAULT now();
+
+ALTER TABLE ingredients
+    ADD COLUMN version bigint NOT NULL DEFAULT 0,
+    ADD COLUMN updated_at timestamp(6) with time zone NOT NULL DEFAULT now();
+
+ALTER TABLE recipes_ingredients
+    ADD COLUMN version bigint NOT NULL DEFAULT 0,
+    ADD COLUMN updated_at timestamp(6) with time zone NOT NULL DEFAULT now();
@@ -0,0 +1,25 @@
+-- Filtre og sortering på GET /recipes og /ingredients (KeysetQuery). Hver filter kombination har et B-tree index
+-- med filter kolonnen først og sorteringen + id bagefter, så en side er én range scan i index rækkefølge.
+-- Navne sammenlignes som lower(name) COLLATE "C": samme index kan så bruges til både præfiks (LIKE 'x%') og sortering
+
+ALTER TABLE recipes ADD COLUMN ingredient_count integer NOT NULL DEFAULT 0;
+
+UPDATE recipes r SET ingredient_count = (
+    SELECT count(*) FROM recipes_ingredients ri WHERE ri.recipe_id = r.id);
+
+-- namePrefix og sort=name, med og uden category filter
+CREATE INDEX idx_recipes_name_id ON recipes ((lower(name) COLLATE "C"), id);
+CREATE INDEX idx_recipes_category_name_id ON recipes (category, (lower(name) COLLATE "C"), id);
+
+-- minIngredients/maxIngredients og sort=ingredientCount, med og uden category filter
+CREATE INDEX idx_recipes_ingredient_count_id ON recipes (ingredient_count, id);
+CREATE INDEX idx_recipes_category_ingredient_count_id ON recipes (category, ingredient_count, id);
+
+-- ingredients filteret (EXISTS per ingredient id) som index-only scan. Erstatter indexet på ingredient_id alene
+CREATE INDEX idx_recipes_ingredients_ingredient_id_recipe_id ON recipes_ingredients (ingredient_id, recipe_id);
+-- IF EXISTS: databaser der er baselinet ved V1 er skabt af hbm2ddl og har aldrig fået indexet fra V1
+DROP INDEX IF EXISTS idx_recipes_ingredients_ingredient_id;
+
+-- namePrefix og sort=name på ingredients, med og uden type filter
+CREATE INDEX idx_ingredients_name_id ON ingredients ((lower(name) COLLATE "C"), id);
+CREATE INDEX idx_ingredients_type_name_id ON ingredients (type, (lower(name) COLLATE "C"), id);
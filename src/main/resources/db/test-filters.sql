@@ -0,0 +1,4 @@
+CREATE INDEX idx_recipes_name_id ON recipes ((lower(name) COLLATE "C"), id);
+CREATE INDEX idx_recipes_category_name_id ON recipes (category, (lower(name) COLLATE "C"), id);
+CREATE INDEX idx_ingredients_name_id ON ingredients ((lower(name) COLLATE "C"), id);
+CREATE INDEX idx_ingredients_type_name_id ON ingredients (type, (lower(name) COLLATE "C"), id);
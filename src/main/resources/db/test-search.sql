@@ -0,0 +1,2 @@
+ALTER TABLE recipes ADD COLUMN search_vector tsvector GENERATED ALWAYS AS (setweight(to_tsvector('english', coalesce(name, '')), 'A') || setweight(to_tsvector('english', coalesce(ingredient_names, '')), 'B') || setweight(to_tsvector('english', coalesce(description, '')), 'C')) STORED;
+CREATE INDEX idx_recipes_search_vector ON recipes USING GIN (search_vector);
@@ -0,0 +1,3 @@
+ALTER SEQUENCE recipes_seq OWNED BY recipes.id;
+ALTER SEQUENCE ingredients_seq OWNED BY ingredients.id;
+ALTER SEQUENCE recipes_ingredients_seq OWNED BY recipes_ingredients.id;
@@ -4,6 +4,7 @@ import app.config.ApplicationConfig;
 import app.config.HibernateConfig;
 import app.populators.RecipePopulator;
 import app.populators.UserPopulator;
+import app.services.ResponseCache;
 import app.utils.TokenUtil;
 import io.javalin.Javalin;
 import io.restassured.RestAssured;
@@ -52,6 +53,8 @@ public class IngredientApiTest {
 
             UserPopulator.populate(em);
             RecipePopulator.populate(em);
+            // Databasen er ændret uden om DAO'erne, så cachede svar kan være forældede
+            ResponseCache.getInstance().reset();
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -73,6 +76,21 @@ public class IngredientApiTest {
         assertThat(response.jsonPath().getString("name[0]"), notNullValue());
     }
 
+    @Test
+    void getAllIngredientsStreamed() {
+        Response response = given()
+                .queryParam("stream", true)
+                .when()
+                .get("/api/ingredients")
+                .then()
+                .extract().response();
+
+        assertThat(response.statusCode(), is(200));
+        assertThat(response.contentType(), containsString("application/json"));
+        assertThat(response.jsonPath().getList(""), hasSize(greaterThanOrEqualTo(10)));
+        assertThat(response.header("X-Next-Cursor"), nullValue());
+    }
+
     @Test
     void getIngredientById() {
         // GET endpoints er public, ingen token nødvendig
@@ -134,6 +152,30 @@ public class IngredientApiTest {
         assertThat(response.statusCode(), is(400));
     }
 
+    @Test
+    void getIngredientsByTypesSortedByName() {
+        given().when().get("/api/ingredients?type=FRUIT,HERB&sort=name").then()
+                .statusCode(200)
+                .body("name", contains("Apple", "Banana", "Basil", "Blueberry", "Lemon", "Oregano", "Parsley", "Strawberry"));
+
+        Response first = given().when().get("/api/ingredients?namePrefix=b&sort=name&direction=desc&limit=5").then().extract().response();
+        assertThat(first.statusCode(), is(200));
+        assertThat(first.jsonPath().getList("name"), contains("Butter", "Broccoli", "Bread", "Blueberry", "Black Pepper"));
+        String cursor = first.header("X-Next-Cursor");
+        assertThat(cursor, notNullValue());
+
+        Response second = given().when().get("/api/ingredients?namePrefix=b&sort=name&direction=desc&limit=5&after=" + cursor).then().extract().response();
+        assertThat(second.jsonPath().getList("name"), contains("Bell Pepper", "Beef", "Basil", "Banana", "Bacon"));
+        assertThat(second.header("X-Next-Cursor"), nullValue());
+    }
+
+    @Test
+    void getIngredientsWithInvalidSort() {
+        given().when().get("/api/ingredients?sort=calories").then().statusCode(400);
+        given().when().get("/api/ingredients?sort=name&direction=sideways").then().statusCode(400);
+        given().when().get("/api/ingredients?type=VEGETABLE,INVALID_TYPE").then().statusCode(400);
+    }
+
     @Test
     void createIngredient() {
         String token = tokenUtil.generateToken("A", "A1");
@@ -182,6 +224,57 @@ public class IngredientApiTest {
         assertThat(response.statusCode(), is(400));
     }
 
+    @Test
+    void bulkCreateIngredients() {
+        String token = tokenUtil.generateToken("A", "A1");
+
+        String requestBody =
+                "{\"name\": \"Bulk One\", \"type\": \"VEGETABLE\", \"description\": \"First\", \"slug\": \"bulk-one\"}\n" +
+                "\n" +
+                "{\"name\": \"Bulk Two\", \"type\": \"FRUIT\", \"description\": \"Second\"}\n" +
+                "{\"name\": \"Bulk Three\", \"type\": \"VEGETABLE\", \"description\": \"Third\", \"slug\": \"bulk-three\"}\n" +
+                "not json\n";
+
+        Response response = given()
+                .header("Content-Type", "application/x-ndjson")
+                .header("Authorization", "Bearer " + token)
+                .body(requestBody)
+                .when()
+                .post("/api/ingredients/bulk")
+                .then()
+                .extract().response();
+
+        assertThat(response.statusCode(), is(200));
+        assertThat(response.jsonPath().getInt("lines"), is(4));
+        assertThat(response.jsonPath().getInt("created"), is(2));
+        assertThat(response.jsonPath().getInt("failed"), is(2));
+        // Kun fejlede linjer har et resultat. Tomme linjer springes over, men tæller med i linjenummeret
+        assertThat(response.jsonPath().getList("errors.line", Integer.class), contains(3, 5));
+        assertThat(response.jsonPath().getString("errors[0].error"), is("Slug is required"));
+        assertThat(response.jsonPath().getString("errors[1].error"), startsWith("Invalid JSON"));
+        assertThat(response.jsonPath().getBoolean("errorsTruncated"), is(false));
+
+        given().queryParam("namePrefix", "Bulk").when().get("/api/ingredients").then()
+                .statusCode(200)
+                .body("name", containsInAnyOrder("Bulk One", "Bulk Three"));
+    }
+
+    @Test
+    void bulkCreateIngredientsRequiresAdmin() {
+        String token = tokenUtil.generateToken("U", "U1");
+
+        Response response = given()
+                .header("Content-Type", "application/x-ndjson")
+                .header("Authorization", "Bearer " + token)
+                .body("{\"name\": \"Bulk\", \"type\": \"VEGETABLE\", \"description\": \"x\", \"slug\": \"bulk\"}\n")
+                .when()
+                .post("/api/ingredients/bulk")
+                .then()
+                .extract().response();
+
+        assertThat(response.statusCode(), is(401));
+    }
+
     @Test
     void updateIngredient() {
         String token = tokenUtil.generateToken("A", "A1");
@@ -209,6 +302,41 @@ public class IngredientApiTest {
         assertThat(response.jsonPath().getString("slug"), is("updated-ingredient"));
     }
 
+    @Test
+    void conditionalGetIngredient() {
+        Response first = given().when().get("/api/ingredients/3").then().extract().response();
+        assertThat(first.statusCode(), is(200));
+        String etag = first.header("ETag");
+        assertThat(etag, startsWith("W/\"ingredient-3-"));
+        assertThat(first.header("Last-Modified"), notNullValue());
+
+        given().header("If-None-Match", etag)
+                .when().get("/api/ingredients/3")
+                .then().statusCode(304)
+                .header("ETag", is(etag));
+        given().header("If-Modified-Since", first.header("Last-Modified"))
+                .when().get("/api/ingredients/3")
+                .then().statusCode(304);
+
+        // Bacon (3) indgår i recipe 3, så dens ETag skal også skifte
+        String recipeEtag = given().when().get("/api/recipes/3").then().extract().header("ETag");
+        given().header("Content-Type", "application/json")
+                .header("Authorization", "Bearer " + tokenUtil.generateToken("A", "A1"))
+                .body("{\"name\": \"Pancetta\", \"type\": \"PROTEIN\", \"description\": \"Cured pork belly\", \"slug\": \"pancetta\"}")
+                .when().put("/api/ingredients/3")
+                .then().statusCode(200);
+
+        given().header("If-None-Match", etag)
+                .when().get("/api/ingredients/3")
+                .then().statusCode(200)
+                .header("ETag", not(etag))
+                .body("name", is("Pancetta"));
+        given().header("If-None-Match", recipeEtag)
+                .when().get("/api/recipes/3")
+                .then().statusCode(200)
+                .header("ETag", not(recipeEtag));
+    }
+
     @Test
     void updateInvalidIngredient() {
         String token = tokenUtil.generateToken("A", "A1");
@@ -2,16 +2,37 @@ package dat.api;
 
 import app.config.ApplicationConfig;
 import app.config.HibernateConfig;
+import app.daos.IngredientDAO;
+import app.dtos.ServiceDTOs.NutritionDTO;
 import app.populators.RecipePopulator;
 import app.populators.UserPopulator;
+import app.services.IngredientIndex;
+import app.services.ResponseCache;
 import app.utils.TokenUtil;
 import io.javalin.Javalin;
 import io.restassured.RestAssured;
+import io.restassured.config.DecoderConfig;
 import io.restassured.response.Response;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
 import org.junit.jupiter.api.*;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
 import static io.restassured.RestAssured.*;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
@@ -52,6 +73,9 @@ public class RecipeApiTest {
 
             UserPopulator.populate(em);
             RecipePopulator.populate(em);
+            // Databasen er ændret uden om DAO'erne, så ingredient indekset skal læses forfra
+            IngredientIndex.getInstance().reset();
+            ResponseCache.getInstance().reset();
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -136,6 +160,131 @@ public class RecipeApiTest {
         assertThat(response.jsonPath().getString("category[0]"), is("BREAKFAST"));
     }
 
+    @Test
+    void getRecipesPaginated() {
+        Response firstPage = given()
+                .queryParam("limit", 20)
+                .when()
+                .get("/api/recipes")
+                .then()
+                .extract().response();
+
+        assertThat(firstPage.statusCode(), is(200));
+        assertThat(firstPage.jsonPath().getList(""), hasSize(20));
+        String cursor = firstPage.header("X-Next-Cursor");
+        assertThat(cursor, notNullValue());
+
+        // Næste side starter efter sidste id på første side
+        Response secondPage = given()
+                .queryParam("limit", 20)
+                .queryParam("after", cursor)
+                .when()
+                .get("/api/recipes")
+                .then()
+                .extract().response();
+
+        assertThat(secondPage.statusCode(), is(200));
+        assertThat(secondPage.jsonPath().getInt("id[0]"), is(21));
+    }
+
+    @Test
+    void getRecipesByCategoryPaginated() {
+        Response response = given()
+                .queryParam("category", "DINNER")
+                .queryParam("limit", 3)
+                .when()
+                .get("/api/recipes")
+                .then()
+                .extract().response();
+
+        assertThat(response.statusCode(), is(200));
+        assertThat(response.jsonPath().getList(""), hasSize(3));
+        assertThat(response.header("X-Next-Cursor"), notNullValue());
+        assertThat(response.jsonPath().getList("category"), everyItem(is("DINNER")));
+    }
+
+    @Test
+    void getRecipesStreamed() {
+        Response response = given()
+                .queryParam("stream", true)
+                .queryParam("category", "BREAKFAST")
+                .when()
+                .get("/api/recipes")
+                .then()
+                .extract().response();
+
+        assertThat(response.statusCode(), is(200));
+        assertThat(response.jsonPath().getList(""), hasSize(greaterThanOrEqualTo(1)));
+        assertThat(response.jsonPath().getList("category"), everyItem(is("BREAKFAST")));
+        assertThat(response.jsonPath().getList("ingredients[0]"), not(empty()));
+    }
+
+    @Test
+    void getRecipesWithInvalidCursor() {
+        Response response = given()
+                .queryParam("after", "not-a-cursor")
+                .when()
+                .get("/api/recipes")
+                .then()
+                .extract().response();
+
+        assertThat(response.statusCode(), is(400));
+    }
+
+    @Test
+    void getMetrics() {
+        given().when().get("/api/recipes/1").then().statusCode(200);
+        given().when().get("/api/recipes/999").then().statusCode(404);
+
+        Response response = given()
+                .when()
+                .get("/api/metrics")
+                .then()
+                .extract().response();
+
+        assertThat(response.statusCode(), is(200));
+        assertThat(response.contentType(), containsString("text/plain"));
+        String body = response.asString();
+        // Route template - ikke den konkrete URL - og separate serier per status
+        assertThat(body, containsString("method=\"GET\",route=\"/api/recipes/{id}\",status=\"200\"}"));
+        assertThat(body, containsString("method=\"GET\",route=\"/api/recipes/{id}\",status=\"404\"}"));
+        assertThat(body, containsString("method=\"GET\",route=\"/api/recipes/{id}\",quantile=\"0.99\"}"));
+        assertThat(body, not(containsString("route=\"/api/recipes/1\"")));
+        assertThat(body, containsString("jvm_memory_used_bytes{area=\"heap\"}"));
+        assertThat(body, containsString("jvm_threads_live"));
+    }
+
+    @Test
+    void getHibernateStatistics() {
+        String token = tokenUtil.generateToken("A", "A1");
+        given().when().get("/api/recipes").then().statusCode(200);
+
+        Response response = given()
+                .header("Authorization", "Bearer " + token)
+                .when()
+                .get("/api/admin/hibernate")
+                .then()
+                .extract().response();
+
+        assertThat(response.statusCode(), is(200));
+        assertThat(response.jsonPath().getList("queries"), not(empty()));
+        assertThat(response.jsonPath().getString("queries[0].query"), notNullValue());
+        assertThat(response.jsonPath().getLong("totals.queryExecutions"), greaterThan(0L));
+        assertThat(response.jsonPath().getLong("connections.acquired"), greaterThan(0L));
+        assertThat(response.jsonPath().getMap("entities"), hasKey("app.entities.Recipe"));
+    }
+
+    @Test
+    void getHibernateStatisticsWithoutAuth() {
+        Response response = given()
+                .when()
+                .get("/api/admin/hibernate")
+                .then()
+                .extract().response();
+
+        assertThat(response.statusCode(), is(401));
+    }
+
     @Test
     void createRecipe() {
         String token = tokenUtil.generateToken("A", "A1");
@@ -182,6 +331,520 @@ public class RecipeApiTest {
         assertThat(response.statusCode(), is(400));
     }
 
+    @Test
+    void bulkCreateRecipes() {
+        String token = tokenUtil.generateToken("A", "A1");
+
+        String requestBody =
+                "{\"name\": \"Bulk Salad\", \"category\": \"LUNCH\", \"description\": \"Salad\", " +
+                        "\"ingredients\": [{\"ingredientId\": 1, \"quantity\": 2, \"unit\": \"pcs\"}]}\n" +
+                "{\"name\": \"Bulk Soup\", \"category\": \"DINNER\", \"description\": \"Soup\", " +
+                        "\"ingredients\": [{\"ingredientId\": 99999, \"quantity\": 1, \"unit\": \"g\"}]}\n" +
+                "{\"name\": \"Bulk Toast\", \"category\": \"NOT_A_CATEGORY\", \"description\": \"Toast\"}\n" +
+                "{\"name\": \"Bulk Porridge\", \"category\": \"BREAKFAST\", \"description\": \"Porridge\"}\n";
+
+        Response response = given()
+                .header("Content-Type", "application/x-ndjson")
+                .header("Authorization", "Bearer " + token)
+                .body(requestBody)
+                .when()
+                .post("/api/recipes/bulk")
+                .then()
+                .extract().response();
+
+        assertThat(response.statusCode(), is(200));
+        assertThat(response.jsonPath().getInt("created"), is(2));
+        assertThat(response.jsonPath().getInt("failed"), is(2));
+        assertThat(response.jsonPath().getList("errors.line", Integer.class), contains(2, 3));
+        assertThat(response.jsonPath().getString("errors[0].error"), is("Ingredient with ID 99999 not found"));
+        assertThat(response.jsonPath().getString("errors[1].error"), startsWith("Invalid JSON"));
+
+        Response created = given().queryParam("namePrefix", "Bulk Salad").when().get("/api/recipes").then().extract().response();
+        assertThat(created.statusCode(), is(200));
+        assertThat(created.jsonPath().getList("name"), contains("Bulk Salad"));
+        assertThat(created.jsonPath().getList("ingredients[0]"), hasSize(1));
+    }
+
+    @Test
+    void searchRecipes() {
+        // Navnematch (vægt A) rangeres over ingredient match (vægt B)
+        Response response = given()
+                .when()
+                .get("/api/recipes/search?q=bacon")
+                .then()
+                .extract().response();
+
+        assertThat(response.statusCode(), is(200));
+        assertThat(response.jsonPath().getList("name"), contains("Bacon and Eggs", "Breakfast Burrito"));
+        assertThat(response.jsonPath().getFloat("[0].rank"), greaterThan(response.jsonPath().getFloat("[1].rank")));
+        assertThat(response.header("X-Next-Cursor"), nullValue());
+    }
+
+    @Test
+    void searchRecipesPaginated() {
+        Response first = given().when().get("/api/recipes/search?q=bacon&limit=1").then().extract().response();
+        assertThat(first.jsonPath().getList("name"), contains("Bacon and Eggs"));
+        String cursor = first.header("X-Next-Cursor");
+        assertThat(cursor, notNullValue());
+
+        Response second = given().when().get("/api/recipes/search?q=bacon&limit=1&after=" + cursor).then().extract().response();
+        assertThat(second.jsonPath().getList("name"), contains("Breakfast Burrito"));
+        assertThat(second.header("X-Next-Cursor"), nullValue());
+
+        // Cursoren er (rank, id) - et id cursor fra list endpoints passer ikke
+        given().when().get("/api/recipes/search?q=bacon&after=3").then().statusCode(400);
+    }
+
+    @Test
+    void searchRecipesWithoutQuery() {
+        given().when().get("/api/recipes/search").then().statusCode(400);
+    }
+
+    @Test
+    void findRecipesByIngredients() {
+        // Eggs (1) og bacon (3) indgår begge kun i "Bacon and Eggs" og "Breakfast Burrito"
+        Response all = given().when().get("/api/recipes/by-ingredients?all=1,3").then().extract().response();
+        assertThat(all.statusCode(), is(200));
+        assertThat(all.jsonPath().getList("id", Integer.class), contains(3, 8));
+        assertThat(all.header("X-Total-Count"), is("2"));
+
+        // Kun butter (7), salt (31) og honey (42) i skabet: Popcorn og Mixed Nuts
+        Response only = given().when().get("/api/recipes/by-ingredients?only=7,31,42").then().extract().response();
+        assertThat(only.jsonPath().getList("name"), contains("Popcorn", "Mixed Nuts"));
+
+        // Filtrene kombineres med AND
+        Response combined = given().when().get("/api/recipes/by-ingredients?any=12&only=1,7,12,31").then().extract().response();
+        assertThat(combined.jsonPath().getList("name"), contains("Garlic Scrambled Eggs"));
+    }
+
+    @Test
+    void findRecipesByIngredientsFollowsWrites() {
+        String token = tokenUtil.generateToken("A", "A1");
+        // Salmon (4) indgår i recipe 22 og 29
+        given().when().get("/api/recipes/by-ingredients?any=4").then().body("id", contains(22, 29));
+
+        given()
+                .header("Content-Type", "application/json")
+                .header("Authorization", "Bearer " + token)
+                .body("{\"ingredientId\": 4, \"quantity\": 1, \"unit\": \"fillet\"}")
+                .when()
+                .post("/api/recipes/1/ingredients")
+                .then()
+                .statusCode(201);
+        given().when().get("/api/recipes/by-ingredients?any=4").then().body("id", contains(1, 22, 29));
+
+        given().header("Authorization", "Bearer " + token).when().delete("/api/recipes/22").then().statusCode(204);
+        given().when().get("/api/recipes/by-ingredients?any=4").then().body("id", contains(1, 29));
+    }
+
+    @Test
+    void findRecipesByIngredientsAfterConcurrentWrites() throws Exception {
+        String token = tokenUtil.generateToken("A", "A1");
+        // Indekset skal være indlæst, ellers opdateres det ikke af writes
+        given().when().get("/api/recipes/by-ingredients?any=1").then().statusCode(200);
+
+        // Samtidige add og remove på samme recipe. Nogle kan fejle på version konflikter - indekset skal bare
+        // ende med at matche databasen, uanset hvilke writes der kom igennem
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int ingredientId = 2; ingredientId <= 11; ingredientId++) {
+            int id = ingredientId;
+            results.add(executor.submit(() -> {
+                start.await();
+                return given()
+                        .header("Content-Type", "application/json")
+                        .header("Authorization", "Bearer " + token)
+                        .body("{\"ingredientId\": " + id + ", \"quantity\": 1, \"unit\": \"piece\"}")
+                        .when().post("/api/recipes/1/ingredients")
+                        .statusCode();
+            }));
+        }
+        for (int ingredientId : new int[]{1, 12, 31}) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return given().header("Authorization", "Bearer " + token)
+                        .when().delete("/api/recipes/1/ingredients/" + ingredientId)
+                        .statusCode();
+            }));
+        }
+        start.countDown();
+        for (Future<Integer> result : results) {
+            result.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        List<Integer> stored = given().when().get("/api/recipes/1").then().statusCode(200)
+                .extract().jsonPath().getList("ingredients.ingredient.id", Integer.class);
+        for (int ingredientId = 1; ingredientId <= 12; ingredientId++) {
+            List<Integer> recipes = given().when().get("/api/recipes/by-ingredients?any=" + ingredientId)
+                    .then().extract().jsonPath().getList("id", Integer.class);
+            assertThat("ingredient " + ingredientId, recipes.contains(1), is(stored.contains(ingredientId)));
+        }
+    }
+
+    @Test
+    void findRecipesByIngredientsPaginated() {
+        // Eggs (1) indgår i 15 recipes
+        Response first = given().when().get("/api/recipes/by-ingredients?any=1&limit=10").then().extract().response();
+        assertThat(first.jsonPath().getList("id"), hasSize(10));
+        assertThat(first.header("X-Total-Count"), is("15"));
+        String cursor = first.header("X-Next-Cursor");
+        assertThat(cursor, notNullValue());
+
+        Response second = given().when().get("/api/recipes/by-ingredients?any=1&limit=10&after=" + cursor).then().extract().response();
+        assertThat(second.jsonPath().getList("id"), hasSize(5));
+        assertThat(second.header("X-Next-Cursor"), nullValue());
+    }
+
+    @Test
+    void findRecipesByIngredientsWithInvalidIds() {
+        given().when().get("/api/recipes/by-ingredients?all=1,x").then().statusCode(400);
+        given().when().get("/api/recipes/by-ingredients").then().statusCode(400);
+    }
+
+    // Nutrition for alle ingredients i "Garlic Scrambled Eggs" (1), "Bacon and Eggs" (3) og "Popcorn" (47) -
+    // totaler: 47 = 215.1, 1 = 234.15, 3 = 710.3 kcal. Alle andre recipes mangler nutrition og har ingen totaler
+    private void seedNutrition() {
+        Map<String, NutritionDTO> nutrition = new HashMap<>();
+        nutrition.put("egg", new NutritionDTO("egg", 155, 13.0, 11.0, 1.1));
+        nutrition.put("butter", new NutritionDTO("butter", 717, 0.9, 81.0, 0.1));
+        nutrition.put("garlic", new NutritionDTO("garlic", 149, 6.4, 0.5, 33.0));
+        nutrition.put("salt", new NutritionDTO("salt", 0, 0.0, 0.0, 0.0));
+        nutrition.put("bacon", new NutritionDTO("bacon", 541, 37.0, 42.0, 1.4));
+        nutrition.put("bread", new NutritionDTO("bread", 265, 9.0, 3.2, 49.0));
+        new IngredientDAO(emf).updateNutrition(nutrition);
+    }
+
+    @Test
+    void filterRecipesByCalories() {
+        seedNutrition();
+
+        given().when().get("/api/recipes?maxCalories=500").then()
+                .statusCode(200)
+                .body("id", contains(1, 47))
+                .body("[0].nutrition.calories", closeTo(234.15, 0.06))
+                .body("[0].nutrition.carbs", notNullValue());
+        given().when().get("/api/recipes?minCalories=220&maxCalories=800").then()
+                .statusCode(200)
+                .body("id", contains(1, 3));
+        // Recipes uden nutrition data har ingen nutrition i response
+        given().when().get("/api/recipes/2").then()
+                .statusCode(200)
+                .body("nutrition", nullValue());
+    }
+
+    @Test
+    void sortRecipesByCalories() {
+        seedNutrition();
+
+        given().when().get("/api/recipes?sort=calories").then()
+                .statusCode(200)
+                .body("id", contains(47, 1, 3));
+        given().when().get("/api/recipes?sort=calories&category=BREAKFAST").then()
+                .statusCode(200)
+                .body("id", contains(1, 3));
+
+        Response first = given().when().get("/api/recipes?sort=calories&limit=2").then().extract().response();
+        assertThat(first.jsonPath().getList("id"), contains(47, 1));
+        String cursor = first.header("X-Next-Cursor");
+        assertThat(cursor, notNullValue());
+
+        Response second = given().when().get("/api/recipes?sort=calories&limit=2&after=" + cursor).then().extract().response();
+        assertThat(second.jsonPath().getList("id"), contains(3));
+        assertThat(second.header("X-Next-Cursor"), nullValue());
+    }
+
+    @Test
+    void recipeTotalsFollowIngredientChanges() {
+        seedNutrition();
+        String token = tokenUtil.generateToken("A", "A1");
+
+        // Salt (31) har 0 kcal, så totalen er uændret efter den er fjernet
+        given().header("Authorization", "Bearer " + token)
+                .when().delete("/api/recipes/1/ingredients/31")
+                .then().statusCode(200)
+                .body("nutrition.calories", closeTo(234.15, 0.06));
+        given().header("Authorization", "Bearer " + token)
+                .contentType("application/json")
+                .body("{\"ingredientId\": 3, \"quantity\": 2, \"unit\": \"strips\", \"preparation\": \"crispy\"}")
+                .when().post("/api/recipes/1/ingredients")
+                .then().statusCode(201);
+
+        // 2 strips bacon = 30 g = 162.3 kcal ekstra
+        given().when().get("/api/recipes/1").then()
+                .statusCode(200)
+                .body("nutrition.calories", closeTo(396.45, 0.06));
+    }
+
+    @Test
+    void filterRecipesByCaloriesWithInvalidParameters() {
+        given().when().get("/api/recipes?minCalories=abc").then().statusCode(400);
+        given().when().get("/api/recipes?maxCalories=-1").then().statusCode(400);
+        given().when().get("/api/recipes?sort=rating").then().statusCode(400);
+    }
+
+    @Test
+    void filterRecipesByCategoriesAndNamePrefix() {
+        given().when().get("/api/recipes?category=SNACK,dessert").then()
+                .statusCode(200)
+                .body("size()", is(20))
+                .body("category", everyItem(oneOf("SNACK", "DESSERT")));
+        given().when().get("/api/recipes?namePrefix=CHOC").then()
+                .statusCode(200)
+                .body("id", contains(31, 34, 38));
+        // LIKE tegn i præfikset matches bogstaveligt
+        given().queryParam("namePrefix", "%").when().get("/api/recipes").then()
+                .statusCode(200)
+                .body("size()", is(0));
+    }
+
+    @Test
+    void filterRecipesByIngredientsAndIngredientCount() {
+        // Garlic (12)
+        given().when().get("/api/recipes?ingredients=12").then()
+                .statusCode(200)
+                .body("id", contains(1, 16, 19, 24, 26, 28));
+        // Recipes skal indeholde alle ingredients - ingen har både garlic og bacon (3)
+        given().when().get("/api/recipes?ingredients=12,3").then()
+                .statusCode(200)
+                .body("size()", is(0));
+        given().when().get("/api/recipes?minIngredients=2&maxIngredients=3").then()
+                .statusCode(200)
+                .body("id", contains(42, 43, 47, 50));
+        given().when().get("/api/recipes?maxIngredients=3&sort=ingredientCount").then()
+                .statusCode(200)
+                .body("id", contains(43, 47, 50, 42));
+    }
+
+    @Test
+    void sortRecipesByNameDescendingWithCursor() {
+        Response first = given().when().get("/api/recipes?namePrefix=b&sort=name&direction=desc&limit=4").then().extract().response();
+        assertThat(first.statusCode(), is(200));
+        assertThat(first.jsonPath().getList("id"), contains(21, 8, 36, 23));
+        String cursor = first.header("X-Next-Cursor");
+        assertThat(cursor, notNullValue());
+
+        Response second = given().when().get("/api/recipes?namePrefix=b&sort=name&direction=desc&limit=4&after=" + cursor).then().extract().response();
+        assertThat(second.jsonPath().getList("id"), contains(46, 9, 35, 27));
+
+        Response third = given().when().get("/api/recipes?namePrefix=b&sort=name&direction=desc&limit=4&after=" + second.header("X-Next-Cursor")).then().extract().response();
+        assertThat(third.jsonPath().getList("id"), contains(3));
+        assertThat(third.header("X-Next-Cursor"), nullValue());
+    }
+
+    @Test
+    void filterRecipesWithInvalidFilterParameters() {
+        given().when().get("/api/recipes?category=BRUNCH").then().statusCode(400);
+        given().when().get("/api/recipes?direction=up").then().statusCode(400);
+        given().when().get("/api/recipes?minIngredients=-1").then().statusCode(400);
+        given().when().get("/api/recipes?ingredients=garlic").then().statusCode(400);
+        given().when().get("/api/recipes?ingredients=1,2,3,4,5,6,7,8,9,10,11").then().statusCode(400);
+        // Et id cursor kan ikke bruges når der sorteres efter navn
+        given().when().get("/api/recipes?sort=name&after=5").then().statusCode(400);
+    }
+
+    @Test
+    void conditionalGetRecipe() {
+        Response first = given().when().get("/api/recipes/1").then().extract().response();
+        assertThat(first.statusCode(), is(200));
+        String etag = first.header("ETag");
+        assertThat(etag, startsWith("W/\"recipe-1-"));
+        assertThat(first.header("Last-Modified"), notNullValue());
+
+        given().header("If-None-Match", etag)
+                .when().get("/api/recipes/1")
+                .then().statusCode(304)
+                .header("ETag", is(etag))
+                .body(emptyString());
+        // Weak comparison - den samme tag uden W/ matcher også
+        given().header("If-None-Match", "\"recipe-1-0\", " + etag.substring(2))
+                .when().get("/api/recipes/1")
+                .then().statusCode(304);
+        given().header("If-Modified-Since", first.header("Last-Modified"))
+                .when().get("/api/recipes/1")
+                .then().statusCode(304);
+
+        // En ny ingredient hæver recipe's version
+        given().header("Authorization", "Bearer " + tokenUtil.generateToken("A", "A1"))
+                .contentType("application/json")
+                .body("{\"ingredientId\": 3, \"quantity\": 2, \"unit\": \"strips\", \"preparation\": \"crispy\"}")
+                .when().post("/api/recipes/1/ingredients")
+                .then().statusCode(201);
+
+        Response changed = given().header("If-None-Match", etag).when().get("/api/recipes/1").then().extract().response();
+        assertThat(changed.statusCode(), is(200));
+        assertThat(changed.header("ETag"), not(etag));
+        assertThat(changed.jsonPath().getList("ingredients"), hasSize(5));
+    }
+
+    @Test
+    void conditionalGetNonExistentRecipe() {
+        given().header("If-None-Match", "\"recipe-999-1\"")
+                .when().get("/api/recipes/999")
+                .then().statusCode(404);
+    }
+
+    @Test
+    void corsAllowsConditionalGet() {
+        // Preflight skal tillade validator headerne, og svaret skal give scripts adgang til ETag og Last-Modified
+        given().header("Origin", "http://example.com")
+                .header("Access-Control-Request-Method", "GET")
+                .header("Access-Control-Request-Headers", "If-None-Match")
+                .when().options("/api/recipes/1")
+                .then().statusCode(204)
+                .header("Access-Control-Allow-Headers", allOf(containsString("If-None-Match"), containsString("If-Modified-Since")));
+
+        given().when().get("/api/recipes/1")
+                .then().statusCode(200)
+                .header("Access-Control-Expose-Headers", allOf(containsString("ETag"), containsString("Last-Modified")));
+    }
+
+    @Test
+    void cacheRecipeResponses() {
+        String token = tokenUtil.generateToken("A", "A1");
+        Response first = given().when().get("/api/recipes/1").then().extract().response();
+        assertThat(first.header("X-Cache"), is("MISS"));
+        Response second = given().when().get("/api/recipes/1").then().extract().response();
+        assertThat(second.statusCode(), is(200));
+        assertThat(second.header("X-Cache"), is("HIT"));
+        assertThat(second.header("ETag"), is(first.header("ETag")));
+        assertThat(second.asString(), is(first.asString()));
+        // Validators kommer fra cachen, så en conditional request giver stadig 304
+        given().header("If-None-Match", first.header("ETag"))
+                .when().get("/api/recipes/1")
+                .then().statusCode(304).header("X-Cache", is("HIT"));
+
+        given().when().get("/api/ingredients/42").then().statusCode(200);
+
+        // Garlic (12) indgår i recipe 1 - den skal ud af cachen, honey (42) skal blive
+        given().header("Content-Type", "application/json")
+                .header("Authorization", "Bearer " + token)
+                .body("{\"name\": \"Black Garlic\", \"type\": \"VEGETABLE\", \"description\": \"Fermented garlic\", \"slug\": \"garlic\"}")
+                .when().put("/api/ingredients/12")
+                .then().statusCode(200);
+
+        Response changed = given().when().get("/api/recipes/1").then().extract().response();
+        assertThat(changed.header("X-Cache"), is("MISS"));
+        assertThat(changed.asString(), containsString("Black Garlic"));
+        assertThat(changed.header("ETag"), not(first.header("ETag")));
+        given().when().get("/api/ingredients/42").then().header("X-Cache", is("HIT"));
+    }
+
+    @Test
+    void cacheRecipeListsPerCategory() {
+        String token = tokenUtil.generateToken("A", "A1");
+        given().queryParam("category", "BREAKFAST").when().get("/api/recipes").then().header("X-Cache", is("MISS"));
+        given().when().get("/api/recipes").then().header("X-Cache", is("MISS"));
+        given().queryParam("category", "BREAKFAST").when().get("/api/recipes").then().header("X-Cache", is("HIT"));
+        // Sortering og filtre caches ikke
+        given().queryParam("sort", "calories").when().get("/api/recipes").then().statusCode(200).header("X-Cache", nullValue());
+
+        // En ny DINNER recipe ændrer den ufiltrerede liste, men ikke BREAKFAST listen
+        given().header("Content-Type", "application/json")
+                .header("Authorization", "Bearer " + token)
+                .body("{\"name\": \"Late Pasta\", \"category\": \"DINNER\", \"description\": \"Quick pasta\"}")
+                .when().post("/api/recipes")
+                .then().statusCode(201);
+
+        given().queryParam("category", "BREAKFAST").when().get("/api/recipes").then().header("X-Cache", is("HIT"));
+        Response all = given().when().get("/api/recipes").then().extract().response();
+        assertThat(all.header("X-Cache"), is("MISS"));
+        assertThat(all.jsonPath().getList("name"), hasItem("Late Pasta"));
+    }
+
+    @Test
+    void exportRecipesAsNdjson() {
+        Response response = given()
+                .header("Authorization", "Bearer " + tokenUtil.generateToken("A", "A1"))
+                .when()
+                .get("/api/recipes/export?format=ndjson")
+                .then()
+                .extract().response();
+
+        assertThat(response.statusCode(), is(200));
+        assertThat(response.contentType(), startsWith("application/x-ndjson"));
+        String[] lines = response.asString().split("\n");
+        // Én linje per seedet recipe, sorteret efter id
+        assertThat(lines.length, is(50));
+        assertThat(lines[0], startsWith("{\"id\":1,"));
+        assertThat(lines[0], containsString("\"ingredients\":[{"));
+    }
+
+    @Test
+    void exportRecipesAsGzippedCsv() throws IOException {
+        Response response = given()
+                .header("Authorization", "Bearer " + tokenUtil.generateToken("A", "A1"))
+                .when()
+                .get("/api/recipes/export?format=csv&gzip=true")
+                .then()
+                .extract().response();
+
+        assertThat(response.statusCode(), is(200));
+        assertThat(response.contentType(), startsWith("application/gzip"));
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new ByteArrayInputStream(response.asByteArray())), StandardCharsets.UTF_8))) {
+            List<String> lines = reader.lines().toList();
+            assertThat(lines.get(0), startsWith("recipe_id,recipe_name,category"));
+            // Header + én række per recipe ingredient i seed data
+            assertThat(lines, hasSize(1 + 228));
+        }
+    }
+
+    @Test
+    void exportRecipesWithInvalidFormat() {
+        given().header("Authorization", "Bearer " + tokenUtil.generateToken("A", "A1"))
+                .when().get("/api/recipes/export?format=xml").then().statusCode(400);
+    }
+
+    @Test
+    void exportRecipesRequiresAdmin() {
+        given().when().get("/api/recipes/export").then().statusCode(401);
+        given().header("Authorization", "Bearer " + tokenUtil.generateToken("U", "U1"))
+                .when().get("/api/recipes/export").then().statusCode(401);
+    }
+
+    // RestAssured pakker ellers selv svaret ud, så Content-Encoding kan ikke ses
+    private Response getWithGzip(String path) {
+        return given()
+                .config(RestAssured.config().decoderConfig(DecoderConfig.decoderConfig().noContentDecoders()))
+                .header("Accept-Encoding", "gzip")
+                .when()
+                .get(path)
+                .then()
+                .extract().response();
+    }
+
+    @Test
+    void compressLargeResponses() throws IOException {
+        Response response = getWithGzip("/api/recipes");
+
+        assertThat(response.statusCode(), is(200));
+        assertThat(response.header("Content-Encoding"), is("gzip"));
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(response.asByteArray()))) {
+            String body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            assertThat(body, startsWith("["));
+            assertThat(body, containsString("Garlic Scrambled Eggs"));
+        }
+    }
+
+    @Test
+    void skipCompressionForSmallResponses() {
+        Response response = getWithGzip("/api/recipes/999");
+
+        assertThat(response.statusCode(), is(404));
+        assertThat(response.header("Content-Encoding"), nullValue());
+    }
+
+    @Test
+    void skipCompressionForExport() {
+        Response response = getWithGzip("/api/recipes/export?format=ndjson");
+
+        assertThat(response.statusCode(), is(200));
+        assertThat(response.header("Content-Encoding"), nullValue());
+        assertThat(response.asString(), startsWith("{\"id\":1,"));
+    }
+
     @Test
     void updateRecipe() {
         String token = tokenUtil.generateToken("A", "A1");
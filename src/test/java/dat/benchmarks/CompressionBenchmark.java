@@ -0,0 +1,112 @@
+package dat.benchmarks;
+
+import app.config.HibernateConfig;
+import app.daos.RecipeDAO;
+import app.populators.RecipePopulator;
+import app.utils.Utils;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Purpose: CPU cost versus bytes saved for gzip response compression on the seed dataset.
+ * "list" is the GET /api/recipes body (all 50 seed recipes), "single" is GET /api/recipes/1.
+ * Compressed sizes are logged once per trial, the timings are per response.
+ * Brotli is not measured - it needs the native brotli4j library, which is not a dependency.
+ * Runs against PostgreSQL in Testcontainers (Docker required).
+ *
+ * Run: mvn -Pbenchmarks test-compile exec:exec -Dbenchmark.main=dat.benchmarks.CompressionBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompressionBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(CompressionBenchmark.class);
+
+    @Param({"1", "4", "6", "9"})
+    private int level;
+
+    @Param({"list", "single"})
+    private String payload;
+
+    private byte[] body;
+    private EntityManagerFactory emf;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        HibernateConfig.setTest(true);
+        emf = HibernateConfig.getEntityManagerFactoryForTest();
+        try (EntityManager em = emf.createEntityManager()) {
+            RecipePopulator.populate(em);
+        }
+        RecipeDAO recipeDAO = new RecipeDAO(emf);
+        ObjectMapper objectMapper = new Utils().getObjectMapper();
+        body = payload.equals("list")
+                ? objectMapper.writeValueAsBytes(recipeDAO.readAll())
+                : objectMapper.writeValueAsBytes(recipeDAO.read(1));
+
+        long compressed = gzip();
+        logger.info("{} level={}: {} -> {} bytes ({} saved)", payload, level, body.length, compressed,
+                String.format("%.1f%%", 100.0 * (body.length - compressed) / body.length));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (emf != null) {
+            emf.close();
+        }
+    }
+
+    @Benchmark
+    public long gzip() throws IOException {
+        CountingOutputStream sink = new CountingOutputStream();
+        try (GZIPOutputStream gzip = new LeveledGzipStream(sink, level)) {
+            gzip.write(body);
+        }
+        return sink.count;
+    }
+
+    // Samme som Javalins gzip compressor: GZIPOutputStream med et andet level end default
+    private static class LeveledGzipStream extends GZIPOutputStream {
+        LeveledGzipStream(OutputStream out, int level) throws IOException {
+            super(out, 8192);
+            def.setLevel(level);
+        }
+    }
+
+    // Tæller bytes i stedet for at samle dem, så kun selve komprimeringen måles
+    private static class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CompressionBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
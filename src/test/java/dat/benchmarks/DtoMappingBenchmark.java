@@ -0,0 +1,109 @@
+package dat.benchmarks;
+
+import app.dtos.RecipeDTO;
+import app.dtos.RecipeIngredientDTO;
+import app.entities.Ingredient;
+import app.entities.Recipe;
+import app.entities.RecipeIngredient;
+import app.enums.Category;
+import app.enums.Type;
+import app.utils.Utils;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Purpose: Microbenchmarks for the per-request hot path of the recipe endpoints:
+ * entity -> DTO mapping, hashing of the nested DTO set and JSON serialization.
+ *
+ * Run (with the GC profiler for allocation rates):
+ * mvn -Pbenchmarks test-compile exec:exec -Dbenchmark.main=dat.benchmarks.DtoMappingBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DtoMappingBenchmark {
+
+    @Param({"5", "50", "500"})
+    private int ingredientCount;
+
+    private Recipe recipe;
+    private RecipeDTO recipeDTO;
+    private ObjectMapper objectMapper;
+
+    @Setup
+    public void setup() {
+        recipe = new Recipe();
+        recipe.setId(1);
+        recipe.setName("Benchmark Recipe");
+        recipe.setCategory(Category.DINNER);
+        recipe.setDescription("A recipe used to benchmark DTO mapping and serialization");
+
+        for (int i = 1; i <= ingredientCount; i++) {
+            Ingredient ingredient = new Ingredient();
+            ingredient.setId(i);
+            ingredient.setName("Ingredient " + i);
+            ingredient.setType(Type.values()[i % Type.values().length]);
+            ingredient.setDescription("Description of ingredient " + i);
+            ingredient.setSlug("ingredient-" + i);
+
+            RecipeIngredient recipeIngredient = new RecipeIngredient();
+            recipeIngredient.setId((long) i);
+            recipeIngredient.setRecipe(recipe);
+            recipeIngredient.setIngredient(ingredient);
+            recipeIngredient.setQuantity(i);
+            recipeIngredient.setUnit("g");
+            recipeIngredient.setPreparation("chopped");
+            recipe.getIngredients().add(recipeIngredient);
+        }
+
+        recipeDTO = new RecipeDTO(recipe);
+        objectMapper = new Utils().getObjectMapper();
+    }
+
+    @Benchmark
+    public RecipeDTO mapRecipeToDto() {
+        return new RecipeDTO(recipe);
+    }
+
+    // Lombok @EqualsAndHashCode går igennem hele den nestede IngredientDTO for hvert element
+    @Benchmark
+    public Set<RecipeIngredientDTO> hashIngredientSet() {
+        return new HashSet<>(recipeDTO.getIngredients());
+    }
+
+    @Benchmark
+    public int recipeDtoHashCode() {
+        return recipeDTO.hashCode();
+    }
+
+    @Benchmark
+    public byte[] serializeRecipeDto() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(recipeDTO);
+    }
+
+    // Hele vejen fra entity til JSON bytes, som RecipeController.read gør det
+    @Benchmark
+    public byte[] mapAndSerialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(new RecipeDTO(recipe));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(DtoMappingBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build())
+                .run();
+    }
+}
@@ -0,0 +1,82 @@
+package dat.benchmarks;
+
+import app.services.IngredientIndex;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Purpose: Query latency of the in-memory ingredient index on a synthetic catalog
+ * (recipes with 3-10 ingredients drawn from 500 ingredients, skewed towards the common ones).
+ *
+ * Run: mvn -Pbenchmarks test-compile exec:exec -Dbenchmark.main=dat.benchmarks.IngredientIndexBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IngredientIndexBenchmark {
+
+    private static final int INGREDIENTS = 500;
+    private static final int[] NONE = new int[0];
+
+    @Param({"100000", "1000000"})
+    private int recipeCount;
+
+    private IngredientIndex index;
+    private final int[] twoCommon = {1, 2};
+    private final int[] threeMixed = {1, 40, 300};
+    private final int[] pantry = new int[20];
+
+    @Setup
+    public void setup() {
+        index = new IngredientIndex();
+        index.initializeEmpty();
+        Random random = new Random(42);
+        for (int recipeId = 1; recipeId <= recipeCount; recipeId++) {
+            int[] ingredients = new int[3 + random.nextInt(8)];
+            for (int i = 0; i < ingredients.length; i++) {
+                // Kvadratet skævvrider fordelingen, så lave ids (salt, olie, ...) er de mest brugte
+                double r = random.nextDouble();
+                ingredients[i] = 1 + (int) (r * r * INGREDIENTS);
+            }
+            index.setRecipe(recipeId, ingredients);
+        }
+        for (int i = 0; i < pantry.length; i++) {
+            pantry[i] = i + 1;
+        }
+    }
+
+    @Benchmark
+    public int[] allOfTwoCommon() {
+        return index.findRecipes(twoCommon, NONE, NONE);
+    }
+
+    @Benchmark
+    public int[] allOfThreeMixed() {
+        return index.findRecipes(threeMixed, NONE, NONE);
+    }
+
+    @Benchmark
+    public int[] anyOfThreeMixed() {
+        return index.findRecipes(NONE, threeMixed, NONE);
+    }
+
+    @Benchmark
+    public int[] onlyFromPantry() {
+        return index.findRecipes(NONE, NONE, pantry);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(IngredientIndexBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
@@ -0,0 +1,82 @@
+package dat.benchmarks;
+
+import app.config.HibernateConfig;
+import app.config.PooledSequenceGenerator;
+import app.populators.RecipePopulator;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * Purpose: Insert throughput for the seed dataset (45 ingredients, 50 recipes, 228 recipe ingredients)
+ * with and without JDBC batching. "unbatched" approximates the old IDENTITY setup: one id round trip and one
+ * INSERT statement per row. "batched" is the default configuration: pooled-lo sequence blocks of 50,
+ * hibernate.jdbc.batch_size=50 with ordered inserts and reWriteBatchedInserts.
+ * Runs against PostgreSQL in Testcontainers (Docker required).
+ *
+ * Run: mvn -Pbenchmarks test-compile exec:exec -Dbenchmark.main=dat.benchmarks.InsertThroughputBenchmark
+ * Tuning when running the class directly: -Dbench.warmup=5 -Dbench.rounds=20
+ */
+public class InsertThroughputBenchmark {
+
+    private static final int WARMUP = Integer.getInteger("bench.warmup", 5);
+    private static final int ROUNDS = Integer.getInteger("bench.rounds", 20);
+    private static final int SEED_ROWS = 45 + 50 + 228;
+
+    public static void main(String[] args) {
+        System.out.printf("warmup=%d rounds=%d rows per round=%d%n", WARMUP, ROUNDS, SEED_ROWS);
+
+        Properties unbatched = new Properties();
+        unbatched.put(PooledSequenceGenerator.INCREMENT_SIZE_SETTING, "1");
+        unbatched.put("hibernate.jdbc.batch_size", "0");
+        unbatched.put("hibernate.order_inserts", "false");
+        unbatched.put("hibernate.hikari.dataSource.reWriteBatchedInserts", "false");
+        run("unbatched", unbatched);
+
+        Properties batched = new Properties();
+        batched.put(PooledSequenceGenerator.INCREMENT_SIZE_SETTING, "50");
+        run("batched", batched);
+    }
+
+    private static void run(String name, Properties overrides) {
+        overrides.put("hibernate.show_sql", "false");
+        EntityManagerFactory emf = HibernateConfig.createEntityManagerFactoryForTest(overrides);
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        try {
+            for (int i = 0; i < WARMUP; i++) {
+                seedOnce(emf);
+            }
+            statistics.clear();
+            long[] millis = new long[ROUNDS];
+            for (int i = 0; i < ROUNDS; i++) {
+                millis[i] = seedOnce(emf);
+            }
+            Arrays.sort(millis);
+            double avg = Arrays.stream(millis).average().orElse(0);
+            System.out.printf("%-10s avg=%6.1f ms  p50=%4d ms  max=%4d ms  rows/s=%8.0f  statements/round=%d%n",
+                    name, avg, millis[ROUNDS / 2], millis[ROUNDS - 1],
+                    SEED_ROWS / (avg / 1000.0),
+                    statistics.getPrepareStatementCount() / ROUNDS);
+        } finally {
+            emf.close();
+        }
+    }
+
+    // Tøm tabellerne og kør seed data igen - kun selve populate tiden måles
+    private static long seedOnce(EntityManagerFactory emf) {
+        try (EntityManager em = emf.createEntityManager()) {
+            em.getTransaction().begin();
+            em.createNativeQuery("TRUNCATE TABLE recipes_ingredients, recipes, ingredients CASCADE").executeUpdate();
+            em.getTransaction().commit();
+        }
+        try (EntityManager em = emf.createEntityManager()) {
+            long start = System.nanoTime();
+            RecipePopulator.populate(em);
+            return (System.nanoTime() - start) / 1_000_000;
+        }
+    }
+}
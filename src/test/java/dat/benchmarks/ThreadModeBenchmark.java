@@ -0,0 +1,113 @@
+package dat.benchmarks;
+
+import io.javalin.Javalin;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Purpose: Compare platform vs virtual request threads when handlers block on a slow database and a slow provider.
+ * The database is simulated by a fixed size "connection pool" (a Semaphore, like Hikari) and an injected latency,
+ * so the benchmark runs without PostgreSQL.
+ *
+ * Run: mvn -Pbenchmarks test-compile exec:exec -Dbenchmark.main=dat.benchmarks.ThreadModeBenchmark
+ * Tuning when running the class directly: -Dbench.clients=500 -Dbench.seconds=15 -Dbench.poolSize=10 -Dbench.dbLatencyMs=10 -Dbench.providerLatencyMs=200
+ */
+public class ThreadModeBenchmark {
+
+    private static final int CLIENTS = Integer.getInteger("bench.clients", 500);
+    private static final int SECONDS = Integer.getInteger("bench.seconds", 15);
+    private static final int POOL_SIZE = Integer.getInteger("bench.poolSize", 10);
+    private static final int DB_LATENCY_MS = Integer.getInteger("bench.dbLatencyMs", 10);
+    private static final int PROVIDER_LATENCY_MS = Integer.getInteger("bench.providerLatencyMs", 200);
+
+    public static void main(String[] args) throws Exception {
+        System.out.printf("clients=%d seconds=%d poolSize=%d dbLatency=%dms providerLatency=%dms%n",
+                CLIENTS, SECONDS, POOL_SIZE, DB_LATENCY_MS, PROVIDER_LATENCY_MS);
+        run(false, 7101);
+        run(true, 7102);
+    }
+
+    private static void run(boolean virtualThreads, int port) throws Exception {
+        Semaphore connectionPool = new Semaphore(POOL_SIZE, true);
+        AtomicLong maxConcurrentQueries = new AtomicLong();
+        AtomicLong activeQueries = new AtomicLong();
+
+        Javalin app = Javalin.create(config -> {
+            config.showJavalinBanner = false;
+            config.useVirtualThreads = virtualThreads;
+        }).get("/recipes/{id}", ctx -> {
+            // Samme mønster som RecipeController.read: DB opslag efterfulgt af et kald til nutrition provideren
+            connectionPool.acquire();
+            try {
+                maxConcurrentQueries.accumulateAndGet(activeQueries.incrementAndGet(), Math::max);
+                Thread.sleep(DB_LATENCY_MS);
+            } finally {
+                activeQueries.decrementAndGet();
+                connectionPool.release();
+            }
+            Thread.sleep(PROVIDER_LATENCY_MS);
+            ctx.result("ok");
+        }).start(port);
+
+        try {
+            Result result = load("http://localhost:" + port + "/recipes/1");
+            System.out.printf("%-8s throughput=%8.1f req/s  p50=%5d ms  p99=%5d ms  errors=%d  maxConcurrentQueries=%d%n",
+                    virtualThreads ? "virtual" : "platform",
+                    result.completed / (double) SECONDS,
+                    result.percentile(0.50), result.percentile(0.99),
+                    result.errors, maxConcurrentQueries.get());
+        } finally {
+            app.stop();
+        }
+    }
+
+    // Lukket load model: CLIENTS samtidige klienter der sender en ny request så snart den forrige er svaret
+    private static Result load(String url) throws InterruptedException {
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url)).timeout(Duration.ofSeconds(30)).GET().build();
+        ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        AtomicLong errors = new AtomicLong();
+        long deadline = System.nanoTime() + Duration.ofSeconds(SECONDS).toNanos();
+
+        Thread[] clients = new Thread[CLIENTS];
+        for (int i = 0; i < CLIENTS; i++) {
+            clients[i] = Thread.ofVirtual().start(() -> {
+                while (System.nanoTime() < deadline) {
+                    long start = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() == 200) {
+                            latencies.add((System.nanoTime() - start) / 1_000_000);
+                        } else {
+                            errors.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                    }
+                }
+            });
+        }
+        for (Thread thread : clients) {
+            thread.join();
+        }
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        return new Result(sorted.length, errors.get(), sorted);
+    }
+
+    private record Result(long completed, long errors, long[] sortedLatencies) {
+        long percentile(double p) {
+            if (sortedLatencies.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(p * sortedLatencies.length) - 1;
+            return sortedLatencies[Math.max(0, Math.min(index, sortedLatencies.length - 1))];
+        }
+    }
+}
@@ -2,8 +2,14 @@ package dat.daos;
 
 import app.config.HibernateConfig;
 import app.daos.IngredientDAO;
+import app.daos.RecipeDAO;
 import app.dtos.IngredientDTO;
+import app.dtos.IngredientFilterDTO;
+import app.dtos.NutritionTotalsDTO;
+import app.dtos.RecipeSummaryDTO;
+import app.dtos.ServiceDTOs.NutritionDTO;
 import app.entities.Ingredient;
+import app.enums.IngredientSort;
 import app.enums.Type;
 import app.exceptions.DatabaseException;
 import app.populators.RecipePopulator;
@@ -11,6 +17,11 @@ import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
 import org.junit.jupiter.api.*;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
 
@@ -110,6 +121,46 @@ public class IngredientDAOTest {
         assertThat(updated.getSlug(), is("updated-ingredient"));
     }
 
+    @Test
+    void testRenameIngredientUpdatesRecipeSearch() {
+        // Ingredient 3 er Bacon, som indgår i "Bacon and Eggs" og "Breakfast Burrito"
+        IngredientDTO updateData = IngredientDTO.builder()
+                .name("Pancetta")
+                .type(Type.PROTEIN)
+                .description("Cured pork belly")
+                .slug("pancetta")
+                .build();
+
+        ingredientDAO.update(3, updateData);
+
+        List<RecipeSummaryDTO> results = new RecipeDAO(emf).search("pancetta", null, null, 10);
+        assertThat(results.stream().map(RecipeSummaryDTO::getName).toList(),
+                containsInAnyOrder("Bacon and Eggs", "Breakfast Burrito"));
+    }
+
+    @Test
+    void testUpdateNutritionRecomputesRecipeTotals() {
+        // Recipe 1 "Garlic Scrambled Eggs": 2 eggs (100 g), 10 g butter, 1 clove garlic (5 g), 1 pinch salt
+        RecipeDAO recipeDAO = new RecipeDAO(emf);
+        Map<String, NutritionDTO> nutrition = new HashMap<>();
+        nutrition.put("egg", new NutritionDTO("egg", 155, 13.0, 11.0, 1.1));
+        nutrition.put("butter", new NutritionDTO("butter", 717, 0.9, 81.0, 0.1));
+        nutrition.put("garlic", new NutritionDTO("garlic", 149, 6.4, 0.5, 33.0));
+
+        assertThat(ingredientDAO.updateNutrition(nutrition), is(3));
+        // Salt mangler stadig, så totalerne er ukendte
+        assertThat(recipeDAO.read(1).getNutrition(), nullValue());
+
+        assertThat(ingredientDAO.updateNutrition(Map.of("salt", new NutritionDTO("salt", 0, 0.0, 0.0, 0.0))), is(1));
+        NutritionTotalsDTO totals = recipeDAO.read(1).getNutrition();
+        assertThat(totals, notNullValue());
+        assertThat(totals.getCalories(), closeTo(234.15, 0.06));
+        assertThat(totals.getProtein(), closeTo(13.41, 0.06));
+
+        // Uændrede værdier skrives ikke igen
+        assertThat(ingredientDAO.updateNutrition(nutrition), is(0));
+    }
+
     @Test
     void testUpdateNonExistentIngredient() {
         IngredientDTO updateData = IngredientDTO.builder()
@@ -192,5 +243,40 @@ public class IngredientDAOTest {
         assertThat(ingredientDAO.validatePrimaryKey(0), is(false));
         assertThat(ingredientDAO.validatePrimaryKey(-1), is(false));
     }
-}
 
+    @Test
+    void testReadFilteredByTypesSortedByName() {
+        IngredientFilterDTO filter = IngredientFilterDTO.builder()
+                .types(Set.of(Type.FRUIT, Type.HERB))
+                .sort(IngredientSort.NAME)
+                .build();
+
+        var first = ingredientDAO.readFiltered(filter, null, null, 5);
+        assertThat(first.getItems().stream().map(IngredientDTO::getName).toList(),
+                contains("Apple", "Banana", "Basil", "Blueberry", "Lemon"));
+        assertThat(first.isHasMore(), is(true));
+        assertThat(first.getLastSortKey(), is("lemon"));
+
+        var second = ingredientDAO.readFiltered(filter, first.getLastSortKey(), first.getLastId(), 5);
+        assertThat(second.getItems().stream().map(IngredientDTO::getName).toList(),
+                contains("Oregano", "Parsley", "Strawberry"));
+        assertThat(second.isHasMore(), is(false));
+    }
+
+    // Seq scan er slået fra under EXPLAIN, så testen viser kun at kombinationen KAN bruge sit index, ikke at den gør det
+    @Test
+    void testFilterCombinationsCanUseIndexWhenSeqScanIsDisabled() {
+        String byName = plan(IngredientFilterDTO.builder().namePrefix("b").sort(IngredientSort.NAME).build());
+        assertThat(byName, containsString("idx_ingredients_name_id"));
+
+        String byTypeAndName = plan(IngredientFilterDTO.builder()
+                .types(Set.of(Type.VEGETABLE)).sort(IngredientSort.NAME).descending(true).build());
+        assertThat(byTypeAndName, containsString("idx_ingredients_type_name_id"));
+    }
+
+    private String plan(IngredientFilterDTO filter) {
+        String plan = String.join("\n", ingredientDAO.explainFiltered(filter, 20));
+        assertThat(plan, not(containsString("Seq Scan")));
+        return plan;
+    }
+}
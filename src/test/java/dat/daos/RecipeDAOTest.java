@@ -2,20 +2,28 @@ package dat.daos;
 
 import app.config.HibernateConfig;
 import app.daos.RecipeDAO;
+import app.daos.RecipeIngredientDAO;
+import app.dtos.IngredientDTO;
 import app.dtos.RecipeDTO;
+import app.dtos.RecipeFilterDTO;
 import app.dtos.RecipeIngredientDTO;
 import app.entities.Recipe;
 import app.entities.Ingredient;
 import app.entities.RecipeIngredient;
 import app.enums.Category;
+import app.enums.RecipeSort;
 import app.enums.Type;
 import app.exceptions.DatabaseException;
 import app.populators.RecipePopulator;
 import app.populators.UserPopulator;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.*;
 
+import java.util.Set;
+
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
 
@@ -65,6 +73,16 @@ public class RecipeDAOTest {
         assertThat(recipe.getIngredients().size(), greaterThan(0));
     }
 
+    @Test
+    void testPopulateSkipsWhenSeeded() {
+        try (EntityManager em = emf.createEntityManager()) {
+            RecipePopulator.populate(em);
+        }
+
+        assertThat(recipeDAO.readAll(), hasSize(50));
+        assertThat(recipeDAO.read(1).getName(), is("Garlic Scrambled Eggs"));
+    }
+
     @Test
     void testReadNonExistentRecipe() {
         RecipeDTO recipe = recipeDAO.read(999);
@@ -79,6 +97,49 @@ public class RecipeDAOTest {
         assertThat(recipes.size(), greaterThanOrEqualTo(3));
     }
 
+    @Test
+    void testReadAllUsesConstantNumberOfStatements() {
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        var recipes = recipeDAO.readAll();
+
+        // 50 recipes med ingredients må ikke give én lazy query per recipe
+        assertThat(recipes.size(), greaterThanOrEqualTo(50));
+        assertThat(recipes.get(0).getIngredients().size(), greaterThan(0));
+        assertThat(statistics.getPrepareStatementCount(), is(1L));
+    }
+
+    @Test
+    void testSearchByCategoryUsesConstantNumberOfStatements() {
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        var recipes = recipeDAO.searchByCategory("BREAKFAST");
+
+        assertThat(recipes.size(), greaterThan(1));
+        assertThat(statistics.getPrepareStatementCount(), is(1L));
+    }
+
+    @Test
+    void testReadPageStatementCountIsIndependentOfPageSize() {
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+
+        statistics.clear();
+        var smallPage = recipeDAO.readPage(null, null, null, null, 5);
+        long smallPageStatements = statistics.getPrepareStatementCount();
+
+        statistics.clear();
+        var largePage = recipeDAO.readPage(null, null, null, null, 50);
+        long largePageStatements = statistics.getPrepareStatementCount();
+
+        assertThat(smallPage.getItems(), hasSize(5));
+        assertThat(largePage.getItems().size(), greaterThan(5));
+        // Én query til id'er og én til recipes med ingredients
+        assertThat(smallPageStatements, is(2L));
+        assertThat(largePageStatements, is(smallPageStatements));
+    }
+
     @Test
     void testCreateRecipe() {
         RecipeDTO newRecipe = RecipeDTO.builder()
@@ -172,6 +233,25 @@ public class RecipeDAOTest {
         assertThat(result.getIngredient(), notNullValue());
     }
 
+    @Test
+    void testCreateRecipeIngredientGoesThroughRecipe() {
+        RecipeIngredientDAO recipeIngredientDAO = new RecipeIngredientDAO(emf);
+        RecipeIngredientDTO created = recipeIngredientDAO.create(RecipeIngredientDTO.builder()
+                .recipeId(1)
+                .ingredient(IngredientDTO.builder().id(5).build())
+                .quantity(3)
+                .unit("pieces")
+                .build());
+
+        assertThat(created.getId(), notNullValue());
+        assertThat(recipeDAO.read(1).getIngredients().stream().map(RecipeIngredientDTO::getId).toList(), hasItem(created.getId()));
+
+        // Uden recipe er der intet at oprette rækken under
+        DatabaseException e = Assertions.assertThrows(DatabaseException.class, () -> recipeIngredientDAO.create(
+                RecipeIngredientDTO.builder().ingredient(IngredientDTO.builder().id(5).build()).quantity(1).build()));
+        assertThat(e.getCode(), is(400));
+    }
+
     @Test
     void testAddIngredientToNonExistentRecipe() {
         Assertions.assertThrows(DatabaseException.class, () -> {
@@ -235,5 +315,46 @@ public class RecipeDAOTest {
         assertThat(recipeDAO.validatePrimaryKey(0), is(false));
         assertThat(recipeDAO.validatePrimaryKey(-1), is(false));
     }
-}
 
+    @Test
+    void testReadFilteredCombinesFilters() {
+        RecipeFilterDTO filter = RecipeFilterDTO.builder()
+                .categories(Set.of(Category.LUNCH, Category.DINNER))
+                .ingredientIds(Set.of(12))
+                .sort(RecipeSort.NAME)
+                .descending(true)
+                .build();
+
+        var page = recipeDAO.readFiltered(filter, null, null, 100);
+        assertThat(page.getItems().stream().map(RecipeDTO::getId).toList(), contains(16, 26, 28, 24, 19));
+        assertThat(page.isHasMore(), is(false));
+    }
+
+    // Seq scan er slået fra under EXPLAIN, så testen viser kun at kombinationen KAN bruge sit index.
+    // Om planneren vælger det på rigtige data afhænger af statistikken og testes ikke her
+    @Test
+    void testFilterCombinationsCanUseIndexWhenSeqScanIsDisabled() {
+        String byName = plan(RecipeFilterDTO.builder().namePrefix("choc").sort(RecipeSort.NAME).build());
+        assertThat(byName, containsString("idx_recipes_name_id"));
+
+        String byCount = plan(RecipeFilterDTO.builder().minIngredients(2).maxIngredients(3).sort(RecipeSort.INGREDIENT_COUNT).build());
+        assertThat(byCount, containsString("idx_recipes_ingredient_count_id"));
+
+        String byIngredient = plan(RecipeFilterDTO.builder().ingredientIds(Set.of(12)).build());
+        assertThat(byIngredient, containsString("idx_recipes_ingredients_ingredient_id_recipe_id"));
+
+        String byCategoryAndName = plan(RecipeFilterDTO.builder()
+                .categories(Set.of(Category.SNACK)).sort(RecipeSort.NAME).descending(true).build());
+        assertThat(byCategoryAndName, containsString("idx_recipes_category_name_id"));
+
+        // Flere kategorier kan planneren løse med flere index - her er det nok at der ikke er en seq scan
+        plan(RecipeFilterDTO.builder()
+                .categories(Set.of(Category.SNACK, Category.DESSERT)).maxIngredients(4).sort(RecipeSort.INGREDIENT_COUNT).build());
+    }
+
+    private String plan(RecipeFilterDTO filter) {
+        String plan = String.join("\n", recipeDAO.explainFiltered(filter, 20));
+        assertThat(plan, not(containsString("Seq Scan")));
+        return plan;
+    }
+}
@@ -0,0 +1,86 @@
+package dat.daos;
+
+import app.config.HibernateConfig;
+import app.daos.RecipeDAO;
+import app.dtos.RecipeDTO;
+import app.enums.Category;
+import app.populators.RecipePopulator;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.*;
+
+import java.util.Properties;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+// De andre tests kører uden second-level cache. Her slås den til på en egen EMF, så cachen selv bliver testet
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class SecondLevelCacheTest {
+    private EntityManagerFactory emf;
+    private RecipeDAO recipeDAO;
+    private Statistics statistics;
+
+    @BeforeAll
+    void beforeAll() {
+        Properties overrides = new Properties();
+        overrides.put("hibernate.cache.use_second_level_cache", "true");
+        overrides.put("hibernate.cache.use_query_cache", "true");
+        emf = HibernateConfig.createEntityManagerFactoryForTest(overrides);
+        recipeDAO = new RecipeDAO(emf);
+        statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        try (EntityManager em = emf.createEntityManager()) {
+            RecipePopulator.populate(em);
+        }
+    }
+
+    @AfterAll
+    void afterAll() {
+        if (emf != null) {
+            emf.close();
+        }
+    }
+
+    @BeforeEach
+    void setup() {
+        emf.getCache().evictAll();
+        statistics.clear();
+    }
+
+    @Test
+    void testReadRecipeHitsSecondLevelCache() {
+        recipeDAO.read(1);
+        assertThat(statistics.getDomainDataRegionStatistics("recipe").getHitCount(), is(0L));
+        assertThat(statistics.getDomainDataRegionStatistics("recipe").getPutCount(), greaterThan(0L));
+
+        RecipeDTO cached = recipeDAO.read(1);
+        assertThat(cached.getIngredients(), not(empty()));
+        // Anden gang kommer både recipe og dens ingredients fra cachen
+        assertThat(statistics.getDomainDataRegionStatistics("recipe").getHitCount(), greaterThan(0L));
+        assertThat(statistics.getDomainDataRegionStatistics("recipe.ingredients").getHitCount(), greaterThan(0L));
+    }
+
+    @Test
+    void testUpdateIsVisibleThroughCache() {
+        recipeDAO.read(2);
+
+        recipeDAO.update(2, RecipeDTO.builder()
+                .name("Cached Then Updated")
+                .category(Category.DINNER)
+                .description("Updated description")
+                .build());
+
+        assertThat(recipeDAO.read(2).getName(), is("Cached Then Updated"));
+    }
+
+    @Test
+    void testCategoryPageHitsQueryCache() {
+        recipeDAO.readPage("BREAKFAST", null, null, null, 10);
+        assertThat(statistics.getQueryCacheHitCount(), is(0L));
+
+        recipeDAO.readPage("BREAKFAST", null, null, null, 10);
+        assertThat(statistics.getQueryCacheHitCount(), greaterThan(0L));
+    }
+}
@@ -0,0 +1,73 @@
+package dat.daos;
+
+import app.config.HibernateConfig;
+import app.populators.UserPopulator;
+import app.security.daos.SecurityDAO;
+import app.security.exceptions.ValidationException;
+import app.utils.PasswordHasher;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.*;
+import org.mindrot.jbcrypt.BCrypt;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class SecurityDAOTest {
+    private EntityManagerFactory emf;
+    private SecurityDAO securityDAO;
+
+    @BeforeAll
+    void beforeAll() {
+        HibernateConfig.setTest(true);
+        emf = HibernateConfig.getEntityManagerFactoryForTest();
+        securityDAO = new SecurityDAO(emf);
+        try (EntityManager em = emf.createEntityManager()) {
+            UserPopulator.populate(em);
+        }
+    }
+
+    @AfterAll
+    void afterAll() {
+        if (emf != null) {
+            emf.close();
+        }
+    }
+
+    @Test
+    void testLoginRehashesPasswordWithOtherCost() throws ValidationException {
+        int cost = PasswordHasher.getInstance().getCost();
+        int oldCost = cost == 4 ? 5 : 4;
+        setPasswordHash("U", BCrypt.hashpw("U1", BCrypt.gensalt(oldCost)));
+
+        securityDAO.getVerifiedUser("U", "U1");
+
+        String rehashed = passwordHash("U");
+        assertThat(rehashed, startsWith(String.format("$2a$%02d$", cost)));
+        assertThat(BCrypt.checkpw("U1", rehashed), is(true));
+
+        // Har hashet allerede den rigtige cost, bliver det ikke skrevet igen
+        securityDAO.getVerifiedUser("U", "U1");
+        assertThat(passwordHash("U"), is(rehashed));
+    }
+
+    private void setPasswordHash(String username, String hash) {
+        try (EntityManager em = emf.createEntityManager()) {
+            em.getTransaction().begin();
+            em.createNativeQuery("UPDATE users SET password = :hash WHERE username = :username")
+                    .setParameter("hash", hash)
+                    .setParameter("username", username)
+                    .executeUpdate();
+            em.getTransaction().commit();
+        }
+    }
+
+    private String passwordHash(String username) {
+        try (EntityManager em = emf.createEntityManager()) {
+            return (String) em.createNativeQuery("SELECT password FROM users WHERE username = :username")
+                    .setParameter("username", username)
+                    .getSingleResult();
+        }
+    }
+}
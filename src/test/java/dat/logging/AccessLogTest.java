@@ -0,0 +1,24 @@
+package dat.logging;
+
+import app.logging.AccessLog;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class AccessLogTest {
+
+    @Test
+    void testEntriesBeyondCapacityAreDroppedAndCounted() {
+        // Ingen writer tråd, så intet bliver taget ud af bufferen
+        AccessLog accessLog = new AccessLog(4);
+
+        for (int i = 0; i < 10; i++) {
+            accessLog.log("GET", "/api/recipes", 200, 1.5f, null, 100);
+        }
+        assertThat(accessLog.getDropped(), is(6L));
+
+        accessLog.log("GET", "/api/recipes", 200, 1.5f, "A", 100);
+        assertThat(accessLog.getDropped(), is(7L));
+    }
+}
@@ -0,0 +1,35 @@
+package dat.logging;
+
+import app.logging.LogRateLimiter;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class LogRateLimiterTest {
+
+    private static final long WINDOW_MS = 200;
+
+    @Test
+    void testLinesBeyondPermitsAreSuppressedAndReportedNextWindow() throws InterruptedException {
+        LogRateLimiter limiter = new LogRateLimiter(3, WINDOW_MS);
+        String key = "/api/recipes/{id} 404 EntityNotFoundException";
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(limiter.tryAcquire(key), is(0L));
+        }
+        for (int i = 0; i < 5; i++) {
+            assertThat(limiter.tryAcquire(key), is(-1L));
+        }
+        assertThat(limiter.getSuppressed(), is(5L));
+
+        // Andre nøgler har deres egne permits
+        assertThat(limiter.tryAcquire("/api/ingredients 500 RuntimeException"), is(0L));
+
+        // Første linje i næste vindue fortæller hvor mange der blev undertrykt i det forrige
+        Thread.sleep(WINDOW_MS + 50);
+        assertThat(limiter.tryAcquire(key), is(5L));
+        assertThat(limiter.tryAcquire(key), is(0L));
+        assertThat(limiter.getSuppressed(), is(5L));
+    }
+}
@@ -0,0 +1,101 @@
+package dat.security;
+
+import app.config.SecurityConfig;
+import app.security.controllers.SecurityController;
+import app.security.exceptions.ApiException;
+import dk.bugelhartmann.UserDTO;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+// verifyToken uden database: tokens udløber efter 1 minut, og testens ur styrer både exp tjekket og token cachen
+public class SecurityControllerTest {
+
+    private static final SecurityConfig CONFIG =
+            new SecurityConfig("test-issuer", "60000", "test-secret-key-that-is-at-least-256-bits-long");
+
+    private TestClock clock;
+    private SecurityController securityController;
+
+    @BeforeEach
+    void setup() {
+        clock = new TestClock(Instant.now());
+        securityController = new SecurityController(null, CONFIG, clock);
+    }
+
+    @Test
+    void testVerifyTokenReadsClaims() {
+        String token = securityController.createToken(new UserDTO("A", Set.of("ADMIN", "USER")));
+
+        UserDTO user = securityController.verifyToken(token);
+        assertThat(user.getUsername(), is("A"));
+        assertThat(user.getRoles(), containsInAnyOrder("ADMIN", "USER"));
+    }
+
+    @Test
+    void testCachedTokenSkipsVerification() {
+        String token = securityController.createToken(new UserDTO("A", Set.of("ADMIN")));
+
+        // Et nyt verify ville parse tokenet og bygge en ny UserDTO - samme instans betyder at den kom fra cachen
+        UserDTO first = securityController.verifyToken(token);
+        UserDTO second = securityController.verifyToken(token);
+        assertThat(second, sameInstance(first));
+    }
+
+    @Test
+    void testExpiredTokenIsEvicted() {
+        String token = securityController.createToken(new UserDTO("A", Set.of("ADMIN")));
+        securityController.verifyToken(token);
+
+        // Lå tokenet stadig i cachen, ville brugeren komme tilbage uden at exp blev tjekket
+        clock.advance(Duration.ofMinutes(2));
+        ApiException e = Assertions.assertThrows(ApiException.class, () -> securityController.verifyToken(token));
+        assertThat(e.getCode(), is(401));
+    }
+
+    @Test
+    void testTokenWithWrongSignatureIsRejected() {
+        SecurityConfig otherConfig = new SecurityConfig("test-issuer", "60000", "another-secret-key-that-is-at-least-256-bits");
+        String token = new SecurityController(null, otherConfig, clock).createToken(new UserDTO("A", Set.of("ADMIN")));
+
+        ApiException e = Assertions.assertThrows(ApiException.class, () -> securityController.verifyToken(token));
+        assertThat(e.getCode(), is(401));
+    }
+
+    private static class TestClock extends Clock {
+        private Instant now;
+
+        TestClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
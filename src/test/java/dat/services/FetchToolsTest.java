@@ -0,0 +1,193 @@
+package dat.services;
+
+import app.services.FetchResult;
+import app.services.FetchTools;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+// FetchTools mod en lokal HTTP server: /fast svarer med det samme, /slow og /limited efter 1 sekund og /fail med 500.
+// /dribble sender headers med det samme og derefter body'en et tegn ad gangen over 5 sekunder
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class FetchToolsTest {
+
+    private static final long SLOW_MS = 1000;
+    private static final long DRIBBLE_MS = 5000;
+
+    private final FetchTools fetchTools = new FetchTools();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final CountDownLatch dribbleAborted = new CountDownLatch(1);
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private String baseUrl;
+
+    @BeforeAll
+    void beforeAll() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/fast", exchange -> respond(exchange, 200, 0));
+        server.createContext("/slow", exchange -> respond(exchange, 200, SLOW_MS));
+        server.createContext("/fail", exchange -> respond(exchange, 500, 0));
+        // Egen tæller, så annullerede /slow kald fra andre tests ikke tælles med
+        server.createContext("/limited", exchange -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                respond(exchange, 200, SLOW_MS);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        });
+        server.createContext("/dribble", this::dribble);
+        // Flere tråde end host grænsen, så det er FetchTools der begrænser og ikke serveren
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort();
+    }
+
+    @AfterAll
+    void afterAll() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    void testDeadlineCancelsSlowCalls() {
+        long start = System.nanoTime();
+        List<FetchResult<Map>> results = fetchTools.getFromApiList(
+                List.of(baseUrl + "/fast", baseUrl + "/slow"), Map.class, Duration.ofMillis(300), false);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertThat(results.get(0).isSuccess(), is(true));
+        assertThat(results.get(1).isSuccess(), is(false));
+        assertThat(results.get(1).error(), containsString("deadline"));
+        assertThat(elapsedMs, lessThan(SLOW_MS));
+    }
+
+    @Test
+    void testFailureCancelsRemainingCalls() {
+        List<FetchResult<Map>> results = fetchTools.getFromApiList(
+                List.of(baseUrl + "/fail", baseUrl + "/slow", baseUrl + "/slow"), Map.class, Duration.ofSeconds(5), true);
+
+        assertThat(results.get(0).error(), is("No data returned"));
+        assertThat(results.get(1).error(), containsString("Cancelled after " + baseUrl + "/fail failed"));
+        assertThat(results.get(2).error(), containsString("Cancelled after " + baseUrl + "/fail failed"));
+    }
+
+    @Test
+    void testConcurrentCallsPerHostAreLimited() {
+        List<String> endpoints = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            endpoints.add(baseUrl + "/limited?i=" + i);
+        }
+        List<FetchResult<Map>> results = fetchTools.getFromApiList(endpoints, Map.class, Duration.ofSeconds(10), false);
+
+        assertThat(results.stream().allMatch(FetchResult::isSuccess), is(true));
+        assertThat(maxInFlight.get(), allOf(greaterThan(1), lessThanOrEqualTo(8)));
+    }
+
+    @Test
+    void testInvalidUriFailsOnlyItsOwnEndpoint() {
+        List<FetchResult<Map>> results = fetchTools.getFromApiList(
+                List.of("not a uri", baseUrl + "/fast"), Map.class, Duration.ofSeconds(5), false);
+
+        assertThat(results.get(0).isSuccess(), is(false));
+        assertThat(results.get(1).isSuccess(), is(true));
+    }
+
+    @Test
+    void testLongQueueOfCancelledCallsReleasesHost() {
+        // 8 kald fylder host grænsen, resten venter i kø og annulleres ved deadline. Når pladserne bliver ledige,
+        // skal alle de annullerede kald gives videre uden at sprænge stakken eller tabe en plads
+        List<String> endpoints = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            endpoints.add(baseUrl + "/slow?i=" + i);
+        }
+        List<FetchResult<Map>> cancelled = fetchTools.getFromApiList(endpoints, Map.class, Duration.ofMillis(200), false);
+        assertThat(cancelled.stream().noneMatch(FetchResult::isSuccess), is(true));
+
+        List<String> after = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            after.add(baseUrl + "/fast?i=" + i);
+        }
+        List<FetchResult<Map>> results = fetchTools.getFromApiList(after, Map.class, Duration.ofSeconds(5), false);
+        assertThat(results.stream().allMatch(FetchResult::isSuccess), is(true));
+    }
+
+    @Test
+    void testTimeoutAbortsBodyRead() throws InterruptedException {
+        long start = System.nanoTime();
+        CompletableFuture<Map> future = fetchTools.getFromApiAsync(baseUrl + "/dribble", Map.class, Duration.ofMillis(300));
+
+        ExecutionException e = Assertions.assertThrows(ExecutionException.class, future::get);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        assertThat(e.getCause(), instanceOf(TimeoutException.class));
+        assertThat(elapsedMs, lessThan(SLOW_MS));
+        // Serveren ser forbindelsen blive lukket længe før den er færdig med body'en - læsningen er stoppet
+        assertThat(dribbleAborted.await(DRIBBLE_MS / 2, TimeUnit.MILLISECONDS), is(true));
+    }
+
+    private void dribble(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write("{\"ok\": ".getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            long steps = DRIBBLE_MS / 50;
+            for (int i = 0; i < steps; i++) {
+                Thread.sleep(50);
+                out.write(' ');
+                out.flush();
+            }
+            out.write("true}".getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            dribbleAborted.countDown();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void respond(HttpExchange exchange, int status, long delayMs) throws IOException {
+        try {
+            if (delayMs > 0) {
+                Thread.sleep(delayMs);
+            }
+            byte[] body = "{\"ok\": true}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package dat.services;
+
+import app.config.HibernateConfig;
+import app.populators.RecipePopulator;
+import app.services.IngredientIndex;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class IngredientIndexTest {
+
+    private static final int[] NONE = new int[0];
+    private IngredientIndex index;
+
+    @BeforeEach
+    void setup() {
+        index = new IngredientIndex();
+        index.initializeEmpty();
+        index.setRecipe(1, new int[]{1, 2});
+        index.setRecipe(2, new int[]{2, 3});
+        index.setRecipe(3, new int[]{1});
+        // Samme ingredient to gange tæller kun én gang
+        index.setRecipe(5, new int[]{3, 1, 2, 3});
+    }
+
+    @Test
+    void testContainingAll() {
+        assertThat(index.findRecipes(new int[]{1, 2}, NONE, NONE), is(new int[]{1, 5}));
+        assertThat(index.findRecipes(new int[]{1, 99}, NONE, NONE), is(NONE));
+    }
+
+    @Test
+    void testContainingAny() {
+        assertThat(index.findRecipes(NONE, new int[]{3, 1}, NONE), is(new int[]{1, 2, 3, 5}));
+        assertThat(index.findRecipes(NONE, new int[]{3, 1, 2}, NONE), is(new int[]{1, 2, 3, 5}));
+    }
+
+    @Test
+    void testMakeableFromOnly() {
+        assertThat(index.findRecipes(NONE, NONE, new int[]{1, 2}), is(new int[]{1, 3}));
+        assertThat(index.findRecipes(NONE, NONE, new int[]{4}), is(NONE));
+    }
+
+    @Test
+    void testFiltersAreCombined() {
+        assertThat(index.findRecipes(new int[]{2}, NONE, new int[]{1, 2}), is(new int[]{1}));
+    }
+
+    @Test
+    void testIncrementalUpdates() {
+        index.setRecipe(1, new int[]{2});
+        assertThat(index.findRecipes(NONE, new int[]{1}, NONE), is(new int[]{3, 5}));
+
+        index.removeRecipe(5);
+        assertThat(index.findRecipes(NONE, new int[]{3}, NONE), is(new int[]{2}));
+
+        index.removeIngredient(2);
+        assertThat(index.findRecipes(NONE, NONE, new int[]{3}), is(new int[]{2}));
+        assertThat(index.findRecipes(NONE, new int[]{2}, NONE), is(NONE));
+    }
+
+    @Test
+    void testRefreshDuringLoadIsApplied() throws Exception {
+        // En ingredient tilføjes efter at load'ens snapshot er læst. Refresh'en for den kommer imens indekset
+        // endnu ikke er markeret som indlæst, og skal alligevel ende i indekset når load'en er færdig
+        HibernateConfig.setTest(true);
+        EntityManagerFactory emf = HibernateConfig.getEntityManagerFactoryForTest();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try (EntityManager em = emf.createEntityManager()) {
+            RecipePopulator.populate(em);
+            int ingredientId = em.createQuery(
+                            "SELECT i.id FROM Ingredient i WHERE i.id NOT IN " +
+                            "(SELECT ri.ingredient.id FROM RecipeIngredient ri WHERE ri.recipe.id = 1) ORDER BY i.id",
+                            Integer.class)
+                    .setMaxResults(1)
+                    .getSingleResult();
+
+            PausedLoadIndex racing = new PausedLoadIndex();
+            Future<?> load = executor.submit(() -> racing.ensureLoaded(emf));
+            assertThat(racing.snapshotTaken.await(30, TimeUnit.SECONDS), is(true));
+
+            em.getTransaction().begin();
+            em.createNativeQuery("INSERT INTO recipes_ingredients (recipe_id, ingredient_id, quantity, unit) VALUES (1, :ingredientId, 1, 'g')")
+                    .setParameter("ingredientId", ingredientId)
+                    .executeUpdate();
+            em.getTransaction().commit();
+            Future<?> refresh = executor.submit(() -> racing.refreshRecipe(emf, 1));
+
+            load.get(30, TimeUnit.SECONDS);
+            refresh.get(30, TimeUnit.SECONDS);
+            assertThat(racing.refreshApplying.getCount(), is(0L));
+            assertThat(Arrays.stream(racing.findRecipes(NONE, new int[]{ingredientId}, NONE)).boxed().toList(), hasItem(1));
+
+            em.getTransaction().begin();
+            em.createNativeQuery("DELETE FROM recipes_ingredients WHERE recipe_id = 1 AND ingredient_id = :ingredientId")
+                    .setParameter("ingredientId", ingredientId)
+                    .executeUpdate();
+            em.getTransaction().commit();
+        } finally {
+            executor.shutdownNow();
+            emf.close();
+        }
+    }
+
+    @Test
+    void testWritesBeforeLoadAreIgnored() {
+        IngredientIndex notLoaded = new IngredientIndex();
+        notLoaded.setRecipe(1, new int[]{1});
+        notLoaded.initializeEmpty();
+        assertThat(notLoaded.findRecipes(NONE, new int[]{1}, NONE), is(NONE));
+    }
+
+    // Holder load'en åben efter dens snapshot, indtil en refresh er nået til setRecipe (eller 5 sekunder er gået)
+    private static class PausedLoadIndex extends IngredientIndex {
+        private final CountDownLatch snapshotTaken = new CountDownLatch(1);
+        private final CountDownLatch refreshApplying = new CountDownLatch(1);
+
+        @Override
+        protected int load(EntityManagerFactory emf) {
+            int pairs = super.load(emf);
+            snapshotTaken.countDown();
+            try {
+                refreshApplying.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return pairs;
+        }
+
+        @Override
+        public void setRecipe(int recipeId, int[] ingredientIds) {
+            refreshApplying.countDown();
+            super.setRecipe(recipeId, ingredientIds);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package dat.services;
+
+import app.dtos.ServiceDTOs.NutritionDTO;
+import app.dtos.ServiceDTOs.NutritionListDTO;
+import app.services.FetchTools;
+import app.services.NutritionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class NutritionServiceTest {
+
+    private StubFetchTools fetchTools;
+    private NutritionService nutritionService;
+
+    @BeforeEach
+    void setup() {
+        fetchTools = new StubFetchTools();
+        nutritionService = new NutritionService(fetchTools);
+    }
+
+    @Test
+    void testRepeatedLookupIsServedFromCache() {
+        nutritionService.getNutrition(List.of("egg", "butter"));
+        List<NutritionDTO> second = nutritionService.getNutrition(List.of("egg", "butter"));
+
+        assertThat(second, hasSize(2));
+        assertThat(fetchTools.calls.get(), is(1));
+    }
+
+    @Test
+    void testOnlyMissingSlugsAreRequested() {
+        nutritionService.getNutrition(List.of("egg"));
+        nutritionService.getNutrition(List.of("egg", "butter"));
+
+        assertThat(fetchTools.calls.get(), is(2));
+        assertThat(fetchTools.lastUri, endsWith("slugs=butter"));
+    }
+
+    @Test
+    void testUnknownSlugIsCached() {
+        List<NutritionDTO> first = nutritionService.getNutrition(List.of("unicorn"));
+        List<NutritionDTO> second = nutritionService.getNutrition(List.of("unicorn"));
+
+        assertThat(first, empty());
+        assertThat(second, empty());
+        assertThat(fetchTools.calls.get(), is(1));
+    }
+
+    @Test
+    void testFailedLookupIsNotCached() {
+        fetchTools.failing = true;
+        assertThat(nutritionService.getNutrition(List.of("egg")), empty());
+
+        fetchTools.failing = false;
+        assertThat(nutritionService.getNutrition(List.of("egg")), hasSize(1));
+        assertThat(fetchTools.calls.get(), is(2));
+    }
+
+    @Test
+    void testConcurrentMissesShareOneFetch() throws Exception {
+        fetchTools.delayMillis = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<List<NutritionDTO>>> tasks = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                tasks.add(() -> nutritionService.getNutrition(List.of("egg")));
+            }
+            for (Future<List<NutritionDTO>> future : executor.invokeAll(tasks)) {
+                assertThat(future.get(), hasSize(1));
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertThat(fetchTools.calls.get(), is(1));
+    }
+
+    // Kender kun "egg" og "butter" - alle andre slugs er ukendte hos provideren
+    private static class StubFetchTools extends FetchTools {
+        private final AtomicInteger calls = new AtomicInteger();
+        private volatile String lastUri;
+        private volatile boolean failing = false;
+        private volatile long delayMillis = 0;
+
+        @Override
+        public <T> CompletableFuture<T> getFromApiAsync(String uri, Class<T> dtoClass) {
+            return CompletableFuture.supplyAsync(() -> getFromApi(uri, dtoClass));
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T getFromApi(String uri, Class<T> dtoClass) {
+            calls.incrementAndGet();
+            lastUri = uri;
+            if (delayMillis > 0) {
+                try {
+                    Thread.sleep(delayMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (failing) {
+                return null;
+            }
+            String slugs = uri.substring(uri.indexOf("slugs=") + "slugs=".length());
+            List<NutritionDTO> data = new ArrayList<>();
+            for (String slug : slugs.split(",")) {
+                if (slug.equals("egg") || slug.equals("butter")) {
+                    data.add(new NutritionDTO(slug, 100, 1.0, 1.0, 1.0));
+                }
+            }
+            return (T) new NutritionListDTO(data);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package dat.utils;
+
+import app.dtos.BulkResultDTO;
+import app.utils.NdjsonImporter;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+// Importen uden database: chunkWriter returnerer bare et id per linje
+public class NdjsonImporterTest {
+
+    private final NdjsonImporter<Map> importer = new NdjsonImporter<>(Map.class,
+            item -> item.containsKey("name") ? null : "Name is required",
+            chunk -> Map.of(),
+            chunk -> {
+                List<Integer> ids = new ArrayList<>(chunk.size());
+                for (int i = 0; i < chunk.size(); i++) {
+                    ids.add(i + 1);
+                }
+                return ids;
+            });
+
+    @Test
+    void testCreatedLinesAreOnlyCounted() throws IOException {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 2500; i++) {
+            body.append("{\"name\": \"Item ").append(i).append("\"}\n");
+        }
+        body.append("{}\n");
+
+        BulkResultDTO result = importer.importFrom(stream(body.toString()));
+        assertThat(result.getLines(), is(2501));
+        assertThat(result.getCreated(), is(2500));
+        assertThat(result.getFailed(), is(1));
+        assertThat(result.getErrors(), hasSize(1));
+        assertThat(result.getErrors().get(0).getLine(), is(2501));
+        assertThat(result.isErrorsTruncated(), is(false));
+    }
+
+    @Test
+    void testErrorsAreCappedAtLowestLineNumbers() throws IOException {
+        StringBuilder body = new StringBuilder();
+        int invalid = BulkResultDTO.MAX_ERRORS + 500;
+        for (int i = 0; i < invalid; i++) {
+            body.append(i % 2 == 0 ? "not json\n" : "{}\n");
+        }
+
+        BulkResultDTO result = importer.importFrom(stream(body.toString()));
+        assertThat(result.getFailed(), is(invalid));
+        assertThat(result.getErrors(), hasSize(BulkResultDTO.MAX_ERRORS));
+        assertThat(result.getErrors().get(0).getLine(), is(1));
+        assertThat(result.getErrors().get(BulkResultDTO.MAX_ERRORS - 1).getLine(), is(BulkResultDTO.MAX_ERRORS));
+        assertThat(result.isErrorsTruncated(), is(true));
+    }
+
+    private static ByteArrayInputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
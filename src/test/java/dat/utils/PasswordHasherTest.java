@@ -0,0 +1,67 @@
+package dat.utils;
+
+import app.security.exceptions.ServiceUnavailableException;
+import app.utils.PasswordHasher;
+import org.junit.jupiter.api.Test;
+import org.mindrot.jbcrypt.BCrypt;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class PasswordHasherTest {
+
+    @Test
+    void testFullQueueGives503WithRetryAfter() throws InterruptedException {
+        // Én tråd og plads til ét hash i kø. Cost 12 tager flere hundrede ms, så 8 samtidige kald kan ikke alle komme ind
+        PasswordHasher hasher = new PasswordHasher(1, 1, 12);
+        int callers = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<String>> futures = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                return hasher.hash("secret");
+            }));
+        }
+        start.countDown();
+
+        int hashed = 0;
+        int rejected = 0;
+        for (Future<String> future : futures) {
+            try {
+                future.get();
+                hashed++;
+            } catch (ExecutionException e) {
+                assertThat(e.getCause(), instanceOf(ServiceUnavailableException.class));
+                ServiceUnavailableException busy = (ServiceUnavailableException) e.getCause();
+                assertThat(busy.getCode(), is(503));
+                assertThat(busy.getRetryAfterSeconds(), greaterThan(0));
+                // Samme kø bruges af register, så beskeden må ikke nævne login
+                assertThat(busy.getMessage(), not(containsStringIgnoringCase("login")));
+                rejected++;
+            }
+        }
+        pool.shutdown();
+
+        assertThat(hashed, greaterThan(0));
+        assertThat(rejected, greaterThan(0));
+    }
+
+    @Test
+    void testNeedsRehashWhenCostDiffers() {
+        PasswordHasher hasher = new PasswordHasher(1, 1, 5);
+
+        assertThat(hasher.needsRehash(BCrypt.hashpw("secret", BCrypt.gensalt(5))), is(false));
+        assertThat(hasher.needsRehash(BCrypt.hashpw("secret", BCrypt.gensalt(4))), is(true));
+        assertThat(hasher.needsRehash(hasher.hash("secret")), is(false));
+    }
+}